@@ -0,0 +1,62 @@
+package com.crowdar.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.crowdar.util.Models.Item;
+
+/**
+ * Validation of expected objects read through their {@link ExpectedPlan} against the previous conversion of every
+ * expected element to a map. Both skip the sort and the output files of {@link ValidateUtils#validateFields(List, List)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidateUtilsBenchmark {
+
+	@Param({"1000", "100000"})
+	private int elements;
+
+	private List<Item> actual;
+	private List<Item> expected;
+
+	@Setup
+	public void setUp() {
+		actual = new ArrayList<>(elements);
+		expected = new ArrayList<>(elements);
+		for (int i = 0; i < elements; i++) {
+			actual.add(new Item(i, "item " + i, "city " + i % 100));
+			expected.add(new Item(i, "item " + i, "city " + i % 100));
+		}
+	}
+
+	@Benchmark
+	public List<Item> plan() throws Exception {
+		ValidateUtils.validateListFields(actual, expected);
+		return expected;
+	}
+
+	@Benchmark
+	public List<Item> map() throws Exception {
+		for (int i = 0; i < elements; i++) {
+			ValidateUtils.validateMap(MapUtils.convertObjectToMap(expected.get(i)), actual.get(i));
+		}
+		return expected;
+	}
+}
@@ -0,0 +1,140 @@
+package io.lippia.api.extractor.json;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compiled json path extractors against the org.json extractors they replaced, which parse the remaining json again
+ * for every segment of the path. The legacy methods are copies of the previous extractors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathBenchmark {
+
+	private static final String STRING_PATH = "store.books[1].title";
+	private static final String INTEGER_PATH = "store.stock.total";
+	private static final String ARRAY_PATH = "store.books";
+
+	@Param({"10", "1000"})
+	private int books;
+
+	private String json;
+
+	@Setup
+	public void setUp() {
+		StringBuilder builder = new StringBuilder("{\"store\": {\"name\": \"lippia\", \"stock\": {\"total\": ").append(books).append("}, \"books\": [");
+		for (int i = 0; i < books; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("{\"title\": \"book ").append(i).append("\", \"price\": ").append(i % 50).append(".5, \"isbn\": \"")
+					.append(1000 + i).append("\", \"tags\": [\"a\", \"b\"]}");
+		}
+		json = builder.append("]}}").toString();
+	}
+
+	@Benchmark
+	public String compiledString() {
+		return JsonStringValueExtractor.handle(json, STRING_PATH);
+	}
+
+	@Benchmark
+	public String legacyString() {
+		return legacyStringHandle(json, STRING_PATH);
+	}
+
+	@Benchmark
+	public int compiledInteger() {
+		return JsonIntegerValueExtractor.handle(json, INTEGER_PATH);
+	}
+
+	@Benchmark
+	public int legacyInteger() {
+		return legacyIntegerHandle(json, INTEGER_PATH);
+	}
+
+	@Benchmark
+	public List<Object> compiledArray() {
+		return JsonArrayValueExtractor.handle(json, ARRAY_PATH);
+	}
+
+	@Benchmark
+	public List<Object> legacyArray() {
+		return legacyArrayHandle(json, ARRAY_PATH);
+	}
+
+	@Benchmark
+	public ExtractedValues compiledSeveralPaths() {
+		return JsonMultiValueExtractor.handle(json, STRING_PATH, INTEGER_PATH, "store.name");
+	}
+
+	@Benchmark
+	public Object[] legacySeveralPaths() {
+		return new Object[] {legacyStringHandle(json, STRING_PATH), legacyIntegerHandle(json, INTEGER_PATH), legacyStringHandle(json, "store.name")};
+	}
+
+	private static String legacyStringHandle(String jsonString, String jsonPath) {
+		String[] jsonPaths = jsonPath.split("\\.");
+		for (int i = 0; i < jsonPaths.length; i++) {
+			String[] once = jsonPaths[i].split("\\[");
+			JSONObject jsonObject = new JSONObject(jsonString);
+			if (once.length > 1) {
+				jsonString = jsonObject.getJSONArray(once[0]).get(Integer.parseInt(once[1].replace("]", ""))).toString();
+				if (i + 1 == jsonPaths.length) {
+					return jsonString;
+				}
+				continue;
+			}
+			if (i + 1 == jsonPaths.length) {
+				return jsonObject.getString(once[0]);
+			}
+			jsonString = jsonObject.getJSONObject(once[i]).toString();
+		}
+		return jsonString;
+	}
+
+	private static int legacyIntegerHandle(String jsonString, String jsonPath) {
+		String[] jsonPaths = jsonPath.split("\\.");
+		int count = 0;
+		for (String once : jsonPaths) {
+			count++;
+			JSONObject jsonObject = new JSONObject(jsonString);
+			if (count == jsonPaths.length) {
+				return jsonObject.getInt(once);
+			}
+			jsonString = jsonObject.getJSONObject(once).toString();
+		}
+		return 0;
+	}
+
+	private static List<Object> legacyArrayHandle(String jsonString, String jsonPath) {
+		String[] jsonPaths = jsonPath.split("\\.");
+		int count = 0;
+		for (String once : jsonPaths) {
+			count++;
+			JSONObject jsonObject = new JSONObject(jsonString);
+			if (count == jsonPaths.length) {
+				return jsonObject.getJSONArray(once).toList();
+			}
+			jsonString = jsonObject.getJSONObject(once).toString();
+		}
+		return null;
+	}
+}
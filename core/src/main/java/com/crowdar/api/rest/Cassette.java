@@ -0,0 +1,267 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.JsonUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recorded request/response pairs of the VcrInterceptor, stored as one json line per exchange.
+ * Exchanges are keyed by method, normalized url with its parameters sorted and the sha-256 of the request body.
+ * Lenient matching ignores scheme, host, port and body. When the same key was recorded more than once the
+ * recordings are replayed in order and the last one is repeated.
+ */
+public class Cassette {
+
+    public enum Matching {
+        STRICT, LENIENT
+    }
+
+    private static final Map<Path, Cassette> CASSETTES = new ConcurrentHashMap<>();
+    private static final String NO_BODY = "-";
+
+    private final Path path;
+    private final Map<String, List<Recording>> strict = new ConcurrentHashMap<>();
+    private final Map<String, List<Recording>> lenient = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> replayed = new ConcurrentHashMap<>();
+
+    private Cassette(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @param cassettePath json lines file
+     * @param record       true to start a new recording of the file, false to load it for replay
+     * @return the cassette shared by every RestClient of the run
+     */
+    public static Cassette get(String cassettePath, boolean record) {
+        return CASSETTES.computeIfAbsent(Paths.get(cassettePath).toAbsolutePath(), path -> {
+            Cassette cassette = new Cassette(path);
+            try {
+                if (record) {
+                    cassette.create();
+                } else {
+                    cassette.load();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cassette " + path + " could not be opened", e);
+            }
+            return cassette;
+        });
+    }
+
+    public static void purge() {
+        CASSETTES.clear();
+    }
+
+    /**
+     * @return next recording for the request, null when there is none
+     */
+    public Recording find(HttpMethod method, URI uri, byte[] body, Matching matching) {
+        String key = matching == Matching.STRICT ? getKey(method, uri, body) : getLenientKey(method, uri);
+        List<Recording> recordings = (matching == Matching.STRICT ? strict : lenient).get(key);
+        if (recordings == null || recordings.isEmpty()) {
+            return null;
+        }
+        int index = replayed.computeIfAbsent(matching + key, k -> new AtomicInteger()).getAndIncrement();
+        return recordings.get(Math.min(index, recordings.size() - 1));
+    }
+
+    /**
+     * Adds the exchange and appends it to the file right away, so an interrupted run keeps what was recorded.
+     */
+    public synchronized void record(Recording recording) throws IOException {
+        index(recording);
+        String line = JsonUtils.serialize(recording) + System.lineSeparator();
+        Files.write(path, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<Recording> recordings : strict.values()) {
+            size += recordings.size();
+        }
+        return size;
+    }
+
+    static String getKey(HttpMethod method, URI uri, byte[] body) {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase();
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+        return method + " " + scheme + "://" + host + (defaultPort ? "" : ":" + port) + getLenientPath(uri) + " " + sha256(body);
+    }
+
+    static String getLenientKey(HttpMethod method, URI uri) {
+        return method + " " + getLenientPath(uri);
+    }
+
+    private static String getLenientPath(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return path;
+        }
+        String[] parameters = query.split("&");
+        Arrays.sort(parameters);
+        return path + "?" + String.join("&", parameters);
+    }
+
+    private static String sha256(byte[] body) {
+        if (body == null || body.length == 0) {
+            return NO_BODY;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void create() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.deleteIfExists(path);
+        Logger.getLogger(Cassette.class).info(">>>Recording API calls in cassette " + path);
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(path)) {
+            Logger.getLogger(Cassette.class).warn(">>>Cassette " + path + " does not exist, every call will be a miss");
+            return;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                index(JsonUtils.deserialize(line, Recording.class));
+            }
+        }
+        Logger.getLogger(Cassette.class).info(">>>Replaying " + size() + " API calls from cassette " + path);
+    }
+
+    private void index(Recording recording) {
+        strict.computeIfAbsent(recording.getKey(), k -> Collections.synchronizedList(new ArrayList<>())).add(recording);
+        lenient.computeIfAbsent(recording.getLenientKey(), k -> Collections.synchronizedList(new ArrayList<>())).add(recording);
+    }
+
+    /**
+     * One recorded exchange. Text bodies are stored as they are, other bodies in base64.
+     */
+    public static class Recording {
+
+        private String key;
+        private String lenientKey;
+        private int status;
+        private Map<String, List<String>> headers;
+        private String body;
+        private boolean base64;
+        private byte[] bodyBytes;
+
+        public Recording() {
+        }
+
+        public Recording(HttpMethod method, URI uri, byte[] requestBody, int status, Map<String, List<String>> headers, byte[] responseBody) {
+            this.key = Cassette.getKey(method, uri, requestBody);
+            this.lenientKey = Cassette.getLenientKey(method, uri);
+            this.status = status;
+            this.headers = headers;
+            String text = new String(responseBody, StandardCharsets.UTF_8);
+            this.base64 = !Arrays.equals(text.getBytes(StandardCharsets.UTF_8), responseBody);
+            this.body = base64 ? Base64.getEncoder().encodeToString(responseBody) : text;
+            this.bodyBytes = responseBody;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getLenientKey() {
+            return lenientKey;
+        }
+
+        public void setLenientKey(String lenientKey) {
+            this.lenientKey = lenientKey;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(Map<String, List<String>> headers) {
+            this.headers = headers;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public void setBody(String body) {
+            this.body = body;
+            this.bodyBytes = null;
+        }
+
+        public boolean isBase64() {
+            return base64;
+        }
+
+        public void setBase64(boolean base64) {
+            this.base64 = base64;
+            this.bodyBytes = null;
+        }
+
+        @JsonIgnore
+        public byte[] getBodyBytes() {
+            if (bodyBytes == null) {
+                if (body == null) {
+                    bodyBytes = new byte[0];
+                } else {
+                    bodyBytes = base64 ? Base64.getDecoder().decode(body) : body.getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            return bodyBytes;
+        }
+    }
+}
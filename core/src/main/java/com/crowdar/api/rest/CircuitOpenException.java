@@ -0,0 +1,14 @@
+package com.crowdar.api.rest;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling an upstream whose circuit is open. RestTemplate reports it as a ResourceAccessException,
+ * the same as any other transport error.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String host) {
+        super("Circuit open for host " + host + ", the call was not made");
+    }
+}
@@ -1,6 +1,5 @@
 package com.crowdar.api.rest;
 
-import com.crowdar.core.PropertyManager;
 import com.crowdar.core.Utils;
 import com.crowdar.util.MapUtils;
 import cucumber.api.java.en.And;
@@ -9,8 +8,8 @@ import org.apache.commons.lang.StringUtils;
 import org.testng.Assert;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +20,9 @@ public class CommonSteps {
     private Object expectedJsonResponse;
 
     private final String STATUS_CODE_ERROR = "Status code are not equals.";
-    private final String GET_ENTITY_SERVICE_METHOD_NAME = "getEntityService";
+    private final String RESPONSE_TIME_ERROR = "Response time %d ms is not below %d ms. %s";
+    private final String TIME_TO_FIRST_BYTE_ERROR = "Time to first byte %d ms is not below %d ms. %s";
+    private final String VALIDATE_FIELDS_METHOD_NAME = "validateFields";
 
     @Then("se obtuvo el status code (.*)")
     @And("status code (.*) is obtained")
@@ -30,6 +31,20 @@ public class CommonSteps {
         Assert.assertEquals(actualStatusCode, expStatusCode, STATUS_CODE_ERROR);
     }
 
+    @Then("el tiempo de respuesta es menor a (\\d+) ms")
+    @And("response time is below (\\d+) ms")
+    public void verifyResponseTime(long maxMillis) {
+        ResponseMetrics metrics = APIManager.getLastResponse().getMetrics();
+        Assert.assertTrue(metrics.getTotalMillis() < maxMillis, String.format(RESPONSE_TIME_ERROR, metrics.getTotalMillis(), maxMillis, metrics));
+    }
+
+    @Then("el tiempo hasta el primer byte es menor a (\\d+) ms")
+    @And("time to first byte is below (\\d+) ms")
+    public void verifyTimeToFirstByte(long maxMillis) {
+        ResponseMetrics metrics = APIManager.getLastResponse().getMetrics();
+        Assert.assertTrue(metrics.getTimeToFirstByteMillis() < maxMillis, String.format(TIME_TO_FIRST_BYTE_ERROR, metrics.getTimeToFirstByteMillis(), maxMillis, metrics));
+    }
+
     @Then("no se obtuvo ningun response")
     @And("not response at all is obtained")
     public void verifyNullResponse() {
@@ -92,7 +107,7 @@ public class CommonSteps {
     @And("expected response is obtained in '([^']*)'")
     public void iWillGetTheProperResponseWithObject(String entity) throws IOException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
         setInjectorParameters(null);
-        invokeValidateMethod(entity, "validateFields");
+        invokeValidateMethod(entity, VALIDATE_FIELDS_METHOD_NAME);
     }
 
     @Then("se obtuvo el response esperado en ([^ ]*) y sus parametros ([^ ]*)")
@@ -111,38 +126,33 @@ public class CommonSteps {
     }
 
     private void invokeValidateMethod(String entity, String method) throws ClassNotFoundException, IllegalAccessException, NoSuchMethodException, InstantiationException {
-        try {
-            Class service = this.getServiceClass(entity);
-            service.getMethod(method, this.objectClass).invoke(service.newInstance(), this.actualJsonResponse);
-        } catch (InvocationTargetException e) {
-            Assert.fail(e.getCause().toString());
-        }
+        invokeServiceMethod(entity, method, new Class[]{this.objectClass}, this.actualJsonResponse);
     }
 
     private void invokeValidateMethod(String entity, Class objectClass, Class objectClass2, Object expectedJsonResponse, Object actualJsonResponse) throws ClassNotFoundException, IllegalAccessException, NoSuchMethodException, InstantiationException {
-        try {
-            Class service = getServiceClass(entity);
-            service.getMethod("validateFields", objectClass, objectClass2).invoke(service.newInstance(), expectedJsonResponse, actualJsonResponse);
-        } catch (InvocationTargetException e) {
-            Assert.fail(e.getCause().toString());
-        }
+        invokeServiceMethod(entity, VALIDATE_FIELDS_METHOD_NAME, new Class[]{objectClass, objectClass2}, expectedJsonResponse, actualJsonResponse);
     }
 
     private void invokeValidateMethod(String entity, Map<String, String> parameters, Class objectClass, Class objectClass2, Object expectedJsonResponse) throws ClassNotFoundException, IllegalAccessException, NoSuchMethodException, InstantiationException {
+        invokeServiceMethod(entity, VALIDATE_FIELDS_METHOD_NAME, new Class[]{objectClass, objectClass2, Map.class}, expectedJsonResponse, actualJsonResponse, parameters);
+    }
+
+    private void invokeServiceMethod(String entity, String method, Class[] parameterTypes, Object... arguments) throws ClassNotFoundException, IllegalAccessException, NoSuchMethodException, InstantiationException {
+        MethodHandle handle;
+        Object service;
         try {
-            Class service = getServiceClass(entity);
-            service.getMethod("validateFields", objectClass, objectClass2, Map.class).invoke(service.newInstance(), expectedJsonResponse, actualJsonResponse, parameters);
+            Class serviceClass = EntityServiceRegistry.getServiceClass(entity);
+            handle = EntityServiceRegistry.getMethod(serviceClass, method, parameterTypes);
+            service = EntityServiceRegistry.newInstance(serviceClass);
         } catch (InvocationTargetException e) {
             Assert.fail(e.getCause().toString());
+            return;
+        }
+        try {
+            EntityServiceRegistry.invoke(handle, service, arguments);
+        } catch (Throwable e) {
+            Assert.fail(e.toString());
         }
-    }
-
-    private Class getServiceClass(String entity) throws ClassNotFoundException, IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        Class entityCLass = Class.forName(PropertyManager.getProperty("crowdar.api.entityConfiguration"));
-        Enum entityConfiguration = Enum.valueOf(entityCLass, entity);
-        Method method = entityConfiguration.getClass().getMethod(GET_ENTITY_SERVICE_METHOD_NAME);
-        method.setAccessible(true);
-        return (Class) method.invoke(entityConfiguration);
     }
 
     private void setInjectorParameters(String expectedJsonName) throws IOException {
@@ -0,0 +1,174 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.Constants;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-run conditional GET cache.
+ * GET responses with an ETag or Last-Modified are kept in memory, the next GET of the same url, Accept and token
+ * is sent with If-None-Match / If-Modified-Since and a 304 is answered with the kept response, so the body is not
+ * downloaded again. Requests that already send conditional headers and responses with Cache-Control no-store are not cached.
+ * Any other method on the url drops its cached responses.
+ */
+public class ConditionalCacheInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final List<String> NOT_CACHED_HEADERS = Arrays.asList(HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING);
+    private static final String NO_STORE = "no-store";
+
+    private final boolean enabled;
+    private final Map<String, CachedResponse> cache;
+
+    public ConditionalCacheInterceptor() {
+        this(Constants.isApiCacheEnabled(), Constants.getApiCacheMaxEntries());
+    }
+
+    public ConditionalCacheInterceptor(boolean enabled, final int maxEntries) {
+        this.enabled = enabled;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (request.getMethod() != HttpMethod.GET) {
+            if (request.getMethod() != HttpMethod.HEAD && request.getMethod() != HttpMethod.OPTIONS) {
+                invalidate(request);
+            }
+            return execution.execute(request, body);
+        }
+        HttpHeaders requestHeaders = request.getHeaders();
+        if (requestHeaders.containsKey(HttpHeaders.IF_NONE_MATCH) || requestHeaders.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                || hasNoStore(requestHeaders)) {
+            return execution.execute(request, body);
+        }
+
+        String key = getKey(request);
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            if (cached.etag != null) {
+                requestHeaders.set(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            }
+            if (cached.lastModified != null) {
+                requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        int statusCode = response.getRawStatusCode();
+        if (cached != null && statusCode == 304) {
+            return revalidated(cached, response);
+        }
+        if (statusCode != 200 || hasNoStore(response.getHeaders())) {
+            return response;
+        }
+        String etag = response.getHeaders().getETag();
+        String lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            return response;
+        }
+
+        byte[] responseBody;
+        try {
+            InputStream responseStream = response.getBody();
+            responseBody = responseStream == null ? new byte[0] : StreamUtils.copyToByteArray(responseStream);
+        } finally {
+            response.close();
+        }
+        HttpHeaders headers = copyHeaders(response.getHeaders());
+        cache.put(key, new CachedResponse(headers, responseBody, etag, lastModified));
+        return new BufferedClientHttpResponse(statusCode, headers, responseBody);
+    }
+
+    public void purge() {
+        cache.clear();
+    }
+
+    /**
+     * The 304 headers replace the kept ones, as a revalidation may update the validators or the expiration.
+     */
+    private ClientHttpResponse revalidated(CachedResponse cached, ClientHttpResponse notModified) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(cached.headers);
+        headers.putAll(copyHeaders(notModified.getHeaders()));
+        notModified.close();
+
+        ResponseMetrics metrics = ResponseMetrics.current();
+        if (metrics != null) {
+            metrics.servedFromCache(cached.body.length);
+        }
+        return new BufferedClientHttpResponse(200, headers, cached.body);
+    }
+
+    private void invalidate(HttpRequest request) {
+        String uri = request.getURI().toString() + "\n";
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(uri));
+        }
+    }
+
+    private String getKey(HttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getURI().toString() + "\n" + headers.getFirst(HttpHeaders.ACCEPT) + "\n" + headers.getFirst(Constants.getApiTokenHeader());
+    }
+
+    private boolean hasNoStore(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase().contains(NO_STORE);
+    }
+
+    private HttpHeaders copyHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!isNotCached(header.getKey())) {
+                copy.put(header.getKey(), header.getValue());
+            }
+        }
+        return copy;
+    }
+
+    private boolean isNotCached(String header) {
+        for (String notCached : NOT_CACHED_HEADERS) {
+            if (notCached.equalsIgnoreCase(header)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class CachedResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+
+        CachedResponse(HttpHeaders headers, byte[] body, String etag, String lastModified) {
+            this.headers = headers;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.crowdar.api.rest;
+
+import java.nio.file.Path;
+
+/**
+ * Response of MethodsService.download: the file the body was written to, its size and its digest when a FileChecksum was given.
+ */
+public class DownloadedFile {
+
+    private final Path path;
+    private final long size;
+    private final String algorithm;
+    private final String digest;
+
+    DownloadedFile(Path path, long size, String algorithm, String digest) {
+        this.path = path;
+        this.size = size;
+        this.algorithm = algorithm;
+        this.digest = digest;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return digest of the file in hexadecimal, null when no checksum was requested
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + size + " bytes" + (digest == null ? "" : ", " + algorithm + ":" + digest) + ")";
+    }
+}
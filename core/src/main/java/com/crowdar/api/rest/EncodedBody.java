@@ -0,0 +1,116 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.JsonUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Request body encoded once into bytes with its content type.
+ * Bodies that can not be written as text or json (files, multipart maps, streams) are kept as they are
+ * and left to the RestTemplate message converters.
+ */
+public class EncodedBody {
+
+    public static final EncodedBody EMPTY = new EncodedBody(new byte[0], null, "", StandardCharsets.UTF_8);
+
+    private final byte[] bytes;
+    private final MediaType contentType;
+    private final Charset charset;
+    private Object value;
+
+    private EncodedBody(byte[] bytes, MediaType contentType, Object value, Charset charset) {
+        this.bytes = bytes;
+        this.contentType = contentType;
+        this.value = value;
+        this.charset = charset;
+    }
+
+    /**
+     * @param body        request body as it was set in the Request
+     * @param contentType Content-Type header of the request, can be null
+     * @return the encoded body
+     */
+    public static EncodedBody encode(Object body, String contentType) {
+        if (body == null) {
+            return EMPTY;
+        }
+        if (isPassThrough(body)) {
+            return new EncodedBody(null, null, body, null);
+        }
+        Charset charset = getCharset(contentType);
+        if (body instanceof CharSequence) {
+            String text = body.toString();
+            if (text.isEmpty()) {
+                return EMPTY;
+            }
+            MediaType type = isJsonText(text) ? new MediaType(MediaType.APPLICATION_JSON, charset) : new MediaType(MediaType.TEXT_PLAIN, charset);
+            return new EncodedBody(text.getBytes(charset), type, text, charset);
+        }
+        byte[] json = JsonUtils.serializeAsBytes(body);
+        if (json != null && json.length > 0 && (json[0] == '{' || json[0] == '[')) {
+            return new EncodedBody(json, new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8), null, StandardCharsets.UTF_8);
+        }
+        return new EncodedBody(null, null, body, null);
+    }
+
+    public boolean isEmpty() {
+        return bytes != null && bytes.length == 0;
+    }
+
+    /**
+     * @return encoded bytes, null when the body is sent through the message converters
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return body as it was returned by Request.getBody(): text or json as String, otherwise the original object
+     */
+    public Object getValue() {
+        if (value == null) {
+            value = new String(bytes, charset);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return getValue().toString();
+    }
+
+    private static boolean isPassThrough(Object body) {
+        return body instanceof byte[] || body instanceof Resource || body instanceof MultiValueMap
+                || body instanceof File || body instanceof Path || body instanceof InputStream;
+    }
+
+    private static boolean isJsonText(String text) {
+        String trimmed = text.trim();
+        return (trimmed.startsWith("{") && trimmed.endsWith("}")) || (trimmed.startsWith("[") && trimmed.endsWith("]"));
+    }
+
+    private static Charset getCharset(String contentType) {
+        if (contentType != null) {
+            try {
+                Charset charset = MediaType.parseMediaType(contentType).getCharset();
+                if (charset != null) {
+                    return charset;
+                }
+            } catch (IllegalArgumentException e) {
+                // invalid header, the default charset is used
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,158 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.util.LatencyHistogram;
+import org.apache.log4j.Logger;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates the ResponseMetrics of every RestClient call per endpoint and reports them at suite end.
+ * Numeric and uuid path segments are grouped as {id}, so /users/1 and /users/2 share the same endpoint.
+ */
+public class EndpointMetrics {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9a-fA-F]{24,}");
+    private static final String REPORT_HEADER = String.format("%-60s %7s %7s %7s %9s %9s %9s %9s %9s %9s %9s %9s %9s %12s %7s %12s",
+            "ENDPOINT", "CALLS", "ERRORS", "RETRIES", "AVG_MS", "P95_MS", "MAX_MS", "POOL_MS", "DNS_MS", "CONN_MS", "TLS_MS", "TTFB_MS", "DOWN_MS", "BYTES",
+            "CACHED", "SAVED_BYTES");
+
+    private static final Map<String, EndpointMetrics> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long errors;
+    private long retries;
+    private long poolWaitNanos;
+    private long dnsNanos;
+    private long connectNanos;
+    private long tlsNanos;
+    private long ttfbNanos;
+    private long downloadNanos;
+    private long bytesReceived;
+    private long cacheHits;
+    private long responseCompressionSavedBytes;
+    private long requestCompressionSavedBytes;
+    private long cacheSavedBytes;
+
+    public static void record(String method, URI uri, int statusCode, ResponseMetrics metrics) {
+        String endpoint = getEndpointKey(method, uri);
+        ENDPOINTS.computeIfAbsent(endpoint, key -> new EndpointMetrics()).add(statusCode, metrics);
+    }
+
+    public static Map<String, EndpointMetrics> getAll() {
+        return new TreeMap<>(ENDPOINTS);
+    }
+
+    public static void purge() {
+        ENDPOINTS.clear();
+    }
+
+    /**
+     * Logs one line per endpoint with the call count, errors, retries, latency, the average of every transport phase and the bytes saved,
+     * followed by the totals of bytes received and saved.
+     */
+    public static void report() {
+        if (ENDPOINTS.isEmpty()) {
+            return;
+        }
+        Logger logger = Logger.getLogger(EndpointMetrics.class);
+        StringBuilder report = new StringBuilder(">>> API metrics per endpoint").append(System.lineSeparator()).append(REPORT_HEADER);
+        long bytesReceived = 0;
+        long responseCompressionSaved = 0;
+        long requestCompressionSaved = 0;
+        long cacheSaved = 0;
+        for (Map.Entry<String, EndpointMetrics> entry : getAll().entrySet()) {
+            EndpointMetrics metrics = entry.getValue();
+            report.append(System.lineSeparator()).append(metrics.toReportLine(entry.getKey()));
+            synchronized (metrics) {
+                bytesReceived += metrics.bytesReceived;
+                responseCompressionSaved += metrics.responseCompressionSavedBytes;
+                requestCompressionSaved += metrics.requestCompressionSavedBytes;
+                cacheSaved += metrics.cacheSavedBytes;
+            }
+        }
+        report.append(System.lineSeparator()).append(String.format("Bytes received: %d, saved: %d (compressed responses %d, compressed requests %d, conditional cache %d)",
+                bytesReceived, responseCompressionSaved + requestCompressionSaved + cacheSaved, responseCompressionSaved, requestCompressionSaved, cacheSaved));
+        logger.info(report.toString());
+    }
+
+    static String getEndpointKey(String method, URI uri) {
+        if (uri == null) {
+            return method;
+        }
+        StringBuilder path = new StringBuilder();
+        if (uri.getPath() != null) {
+            for (String segment : uri.getPath().split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                path.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+            }
+        }
+        return method + " " + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort()) + path;
+    }
+
+    private synchronized void add(int statusCode, ResponseMetrics metrics) {
+        latency.record(metrics.getTotalNanos());
+        if (statusCode < 0 || statusCode >= 400) {
+            errors++;
+        }
+        retries += metrics.getRetries();
+        poolWaitNanos += metrics.getPoolWaitNanos();
+        dnsNanos += metrics.getDnsNanos();
+        connectNanos += metrics.getConnectNanos();
+        tlsNanos += metrics.getTlsNanos();
+        ttfbNanos += metrics.getTimeToFirstByteNanos();
+        downloadNanos += metrics.getDownloadNanos();
+        bytesReceived += metrics.getBytesReceived();
+        if (metrics.isServedFromCache()) {
+            cacheHits++;
+        }
+        responseCompressionSavedBytes += metrics.getResponseCompressionSavedBytes();
+        requestCompressionSavedBytes += metrics.getRequestCompressionSavedBytes();
+        cacheSavedBytes += metrics.getCacheSavedBytes();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return bytes not transferred thanks to response compression, request compression and the conditional cache
+     */
+    public synchronized long getBytesSaved() {
+        return responseCompressionSavedBytes + requestCompressionSavedBytes + cacheSavedBytes;
+    }
+
+    private synchronized String toReportLine(String endpoint) {
+        return String.format("%-60s %7d %7d %7d %9.1f %9d %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %12d %7d %12d",
+                endpoint, latency.getCount(), errors, retries, latency.getMeanMillis(), latency.getPercentileMillis(95), latency.getMaxMillis(),
+                average(poolWaitNanos), average(dnsNanos), average(connectNanos), average(tlsNanos), average(ttfbNanos), average(downloadNanos),
+                bytesReceived, cacheHits, getBytesSaved());
+    }
+
+    private double average(long nanos) {
+        long count = latency.getCount();
+        return count == 0 ? 0 : nanos / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.PropertyManager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves once the entity services of the crowdar.api.entityConfiguration enum and their validation methods,
+ * so the validation steps do not use reflection on every call.
+ * Method handles are kept per service class and signature. Each call gets a new service instance, so services keep no state
+ * between steps.
+ */
+public class EntityServiceRegistry {
+
+    private static final String GET_ENTITY_SERVICE_METHOD_NAME = "getEntityService";
+
+    private static final Map<String, Class<?>> SERVICES = new ConcurrentHashMap<>();
+    private static final ClassValue<Map<String, MethodHandle>> METHODS = new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private EntityServiceRegistry() {
+    }
+
+    /**
+     * @param entity constant of the crowdar.api.entityConfiguration enum
+     * @return the class returned by its getEntityService method
+     */
+    public static Class<?> getServiceClass(String entity) throws ClassNotFoundException, IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        String configuration = PropertyManager.getProperty("crowdar.api.entityConfiguration");
+        String key = configuration + "#" + entity;
+        Class<?> service = SERVICES.get(key);
+        if (service == null) {
+            service = resolveServiceClass(configuration, entity);
+            SERVICES.put(key, service);
+        }
+        return service;
+    }
+
+    /**
+     * @return public method of the service adapted to take and return Object, so it can be called with {@link #invoke}
+     */
+    public static MethodHandle getMethod(Class<?> service, String name, Class<?>... parameterTypes) throws NoSuchMethodException, IllegalAccessException {
+        Map<String, MethodHandle> methods = METHODS.get(service);
+        String key = name + Arrays.toString(parameterTypes);
+        MethodHandle handle = methods.get(key);
+        if (handle == null) {
+            Method method = service.getMethod(name, parameterTypes);
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method).asType(MethodType.genericMethodType(parameterTypes.length + 1));
+            methods.put(key, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * @return a new instance of the service, created with its default constructor
+     */
+    public static Object newInstance(Class<?> service) throws IllegalAccessException, InstantiationException {
+        return service.newInstance();
+    }
+
+    /**
+     * Calls a handle returned by {@link #getMethod}. Exceptions thrown by the method are thrown as they are.
+     */
+    public static Object invoke(MethodHandle handle, Object instance, Object... arguments) throws Throwable {
+        switch (arguments.length) {
+            case 0:
+                return handle.invokeExact(instance);
+            case 1:
+                return handle.invokeExact(instance, arguments[0]);
+            case 2:
+                return handle.invokeExact(instance, arguments[0], arguments[1]);
+            case 3:
+                return handle.invokeExact(instance, arguments[0], arguments[1], arguments[2]);
+            default:
+                Object[] allArguments = new Object[arguments.length + 1];
+                allArguments[0] = instance;
+                System.arraycopy(arguments, 0, allArguments, 1, arguments.length);
+                return handle.invokeWithArguments(allArguments);
+        }
+    }
+
+    private static Class<?> resolveServiceClass(String configuration, String entity) throws ClassNotFoundException, IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        Class entityClass = Class.forName(configuration);
+        Enum entityConfiguration = Enum.valueOf(entityClass, entity);
+        Method method = entityConfiguration.getClass().getMethod(GET_ENTITY_SERVICE_METHOD_NAME);
+        method.setAccessible(true);
+        return (Class<?>) method.invoke(entityConfiguration);
+    }
+}
@@ -0,0 +1,39 @@
+package com.crowdar.api.rest;
+
+/**
+ * Expected digest of a downloaded file, for example new FileChecksum("SHA-256", "9f86d0...").
+ */
+public class FileChecksum {
+
+    private final String algorithm;
+    private final String value;
+
+    public FileChecksum(String algorithm, String value) {
+        this.algorithm = algorithm;
+        this.value = value;
+    }
+
+    public static FileChecksum sha256(String value) {
+        return new FileChecksum("SHA-256", value);
+    }
+
+    public static FileChecksum md5(String value) {
+        return new FileChecksum("MD5", value);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return digest in hexadecimal
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + ":" + value;
+    }
+}
@@ -0,0 +1,187 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.JsonUtils;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.testng.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File uploads and downloads made straight with the HttpClient of the RestClient, so bodies are streamed between
+ * the connection and the disk instead of going through the RestTemplate message converters.
+ * The RestTemplate interceptors (vcr, conditional cache, retries) do not apply to these calls; metrics are recorded as usual.
+ */
+class FileTransfer {
+
+    private static final long TRANSFER_CHUNK = 64 * 1024;
+
+    private final CloseableHttpClient httpClient;
+
+    FileTransfer(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Sends the file as the request body, with the Content-Type of the headers or the one probed from the file name.
+     */
+    Response upload(HttpMethod httpMethod, URI uri, Path file, Map<String, String> headers, Class<?> type) {
+        String contentType = null;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                contentType = header.getValue();
+            }
+        }
+        try {
+            return send(httpMethod, uri, new PathEntity(file, contentType == null ? PathEntity.probeContentType(file) : contentType), headers, type);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Can not read " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    Response upload(HttpMethod httpMethod, URI uri, Multipart multipart, Map<String, String> headers, Class<?> type) {
+        try {
+            return send(httpMethod, uri, multipart.toEntity(), headers, type);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Can not read the files of the multipart body: " + e.getMessage(), e);
+        }
+    }
+
+    private Response send(HttpMethod httpMethod, URI uri, HttpEntity entity, Map<String, String> headers, Class<?> type) {
+        HttpUriRequest request = createRequest(httpMethod, uri, entity, headers);
+        ResponseMetrics metrics = ResponseMetrics.start();
+        int statusCode = -1;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            statusCode = response.getStatusLine().getStatusCode();
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            metrics.finish();
+            Logger.getLogger(this.getClass()).info(">>>Response: " + statusCode + " " + body);
+            Object responseBody = type == String.class || body.isEmpty() ? body : JsonUtils.deserialize(body, type);
+            return new Response(statusCode, getMessage(response), responseBody, getHeaders(response), metrics);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on " + httpMethod + " request for \"" + uri + "\": " + e.getMessage(), e);
+        } finally {
+            metrics.finish();
+            ResponseMetrics.end();
+            EndpointMetrics.record(httpMethod.name(), uri, statusCode, metrics);
+        }
+    }
+
+    /**
+     * Writes the response body to the target file as it arrives, computing the checksum on the way.
+     * Error responses are not written, their body is returned as text.
+     */
+    Response download(URI uri, Path target, FileChecksum checksum, Map<String, String> headers) {
+        HttpUriRequest request = createRequest(HttpMethod.GET, uri, null, headers);
+        ResponseMetrics metrics = ResponseMetrics.start();
+        int statusCode = -1;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (statusCode >= 400 || entity == null) {
+                String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                metrics.finish();
+                Logger.getLogger(this.getClass()).info(">>>Error Response: " + statusCode + " " + body);
+                return new Response(statusCode, getMessage(response), body, getHeaders(response), metrics);
+            }
+            DownloadedFile file = write(entity, target, checksum);
+            metrics.finish();
+            Logger.getLogger(this.getClass()).info(">>>Response: " + statusCode + " downloaded to " + file);
+            return new Response(statusCode, getMessage(response), file, getHeaders(response), metrics);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + e.getMessage(), e);
+        } finally {
+            metrics.finish();
+            ResponseMetrics.end();
+            EndpointMetrics.record(HttpMethod.GET.name(), uri, statusCode, metrics);
+        }
+    }
+
+    private DownloadedFile write(HttpEntity entity, Path target, FileChecksum checksum) throws IOException {
+        MessageDigest digest = checksum == null ? null : getMessageDigest(checksum.getAlgorithm());
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long size = 0;
+        try (InputStream content = entity.getContent();
+             ReadableByteChannel source = Channels.newChannel(digest == null ? content : new DigestInputStream(content, digest));
+             FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long transferred;
+            while ((transferred = file.transferFrom(source, size, TRANSFER_CHUNK)) > 0) {
+                size += transferred;
+            }
+        }
+
+        long expectedSize = entity.getContentLength();
+        if (expectedSize >= 0 && size != expectedSize) {
+            Files.deleteIfExists(target);
+            Assert.fail("Downloaded " + size + " bytes to " + target + " but Content-Length is " + expectedSize);
+        }
+        String hex = digest == null ? null : Hex.encodeHexString(digest.digest());
+        if (checksum != null && !checksum.getValue().equalsIgnoreCase(hex)) {
+            Files.deleteIfExists(target);
+            Assert.fail("Checksum of " + target + " is " + checksum.getAlgorithm() + ":" + hex + ", expected " + checksum);
+        }
+        return new DownloadedFile(target, size, checksum == null ? null : checksum.getAlgorithm(), hex);
+    }
+
+    private HttpUriRequest createRequest(HttpMethod httpMethod, URI uri, HttpEntity entity, Map<String, String> headers) {
+        RequestBuilder builder = RequestBuilder.create(httpMethod.name()).setUri(uri).setEntity(entity);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())
+                    || (entity != null && HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey()))) {
+                continue;
+            }
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+
+    private MessageDigest getMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown checksum algorithm " + algorithm, e);
+        }
+    }
+
+    private String getMessage(CloseableHttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode < 400 ? "OK" : statusCode + " " + response.getStatusLine().getReasonPhrase();
+    }
+
+    private Headers getHeaders(CloseableHttpResponse response) {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return new Headers(headers);
+    }
+}
@@ -0,0 +1,369 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.Constants;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the Apache HttpClient used by RestClient, instrumented to record the ResponseMetrics of each exchange:
+ * pool lease wait, dns, connect, tls handshake, time to first byte, body download and bytes received.
+ * Responses are requested with gzip/deflate and decoded transparently unless crowdar.api.compression.response is false,
+ * request bodies are compressed above crowdar.api.compression.requestThreshold bytes.
+ */
+public class HttpClientFactory {
+
+    private static final String GZIP = "gzip";
+
+    private HttpClientFactory() {
+    }
+
+    public static CloseableHttpClient create() {
+        return builder(SSLConnectionSocketFactory.getSystemSocketFactory()).build();
+    }
+
+    public static CloseableHttpClient create(LayeredConnectionSocketFactory sslSocketFactory) {
+        return builder(sslSocketFactory).build();
+    }
+
+    public static HttpClientBuilder builder(LayeredConnectionSocketFactory sslSocketFactory) {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new TimedSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+                .register("https", new TimedSocketFactory(sslSocketFactory))
+                .build();
+        TimedConnectionManager connectionManager = new TimedConnectionManager(registry);
+        connectionManager.setDefaultMaxPerRoute(Constants.getApiPoolMaxPerRoute());
+        connectionManager.setMaxTotal(Constants.getApiPoolMaxTotal());
+
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setRequestExecutor(new TimedRequestExecutor())
+                .addInterceptorFirst(new BodyMetricsInterceptor())
+                .addInterceptorLast(new DecodedBodyMetricsInterceptor());
+        if (!Constants.isApiCompressionResponse()) {
+            builder.disableContentCompression();
+        }
+        int requestCompressionThreshold = Constants.getApiCompressionRequestThreshold();
+        if (requestCompressionThreshold > 0) {
+            builder.addInterceptorFirst(new GzipRequestInterceptor(requestCompressionThreshold));
+        }
+        return builder;
+    }
+
+    private static class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        TimedConnectionManager(Registry<ConnectionSocketFactory> registry) {
+            super(registry, new TimedDnsResolver());
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return request.get(timeout, timeUnit);
+                    } finally {
+                        ResponseMetrics metrics = ResponseMetrics.current();
+                        if (metrics != null) {
+                            metrics.addPoolWait(System.nanoTime() - start);
+                        }
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    }
+
+    private static class TimedDnsResolver implements DnsResolver {
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                ResponseMetrics metrics = ResponseMetrics.current();
+                if (metrics != null) {
+                    metrics.addDns(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the tcp connect from the tls handshake: layered factories receive an already connected plain socket.
+     */
+    private static class TimedSocketFactory implements LayeredConnectionSocketFactory {
+
+        private final ConnectionSocketFactory delegate;
+
+        TimedSocketFactory(ConnectionSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            ResponseMetrics metrics = ResponseMetrics.current();
+            long start = System.nanoTime();
+            if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+                try {
+                    return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+                } finally {
+                    if (metrics != null) {
+                        metrics.addConnect(System.nanoTime() - start);
+                    }
+                }
+            }
+            Socket plain = PlainConnectionSocketFactory.getSocketFactory().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            if (metrics != null) {
+                metrics.addConnect(System.nanoTime() - start);
+            }
+            if (connectTimeout > 0 && plain.getSoTimeout() == 0) {
+                plain.setSoTimeout(connectTimeout);
+            }
+            return createLayeredSocket(plain, host.getHostName(), remoteAddress.getPort(), context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+            } finally {
+                ResponseMetrics metrics = ResponseMetrics.current();
+                if (metrics != null) {
+                    metrics.addTls(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static class TimedRequestExecutor extends HttpRequestExecutor {
+
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+            ResponseMetrics metrics = ResponseMetrics.current();
+            if (metrics != null) {
+                metrics.requestSending();
+            }
+            return super.doSendRequest(request, conn, context);
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse(request, conn, context);
+            ResponseMetrics metrics = ResponseMetrics.current();
+            if (metrics != null) {
+                metrics.headersReceived();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Compresses with gzip the request bodies of at least crowdar.api.compression.requestThreshold bytes.
+     * Registered first, so the Content-Length and Content-Encoding headers are set from the compressed entity.
+     * Only bodies buffered in memory are compressed: file uploads, bodies that already have a content encoding and bodies
+     * that do not get smaller are sent as they are.
+     */
+    private static class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+        private final int threshold;
+
+        GzipRequestInterceptor(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void process(HttpRequest request, HttpContext context) throws IOException {
+            if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HTTP.CONTENT_ENCODING)) {
+                return;
+            }
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            HttpEntity entity = entityRequest.getEntity();
+            if (!(entity instanceof ByteArrayEntity) || entity.getContentEncoding() != null || entity.getContentLength() < threshold) {
+                return;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) Math.min(entity.getContentLength(), Integer.MAX_VALUE - 8));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                entity.writeTo(gzip);
+            }
+            if (compressed.size() >= entity.getContentLength()) {
+                return;
+            }
+            ByteArrayEntity gzipEntity = new ByteArrayEntity(compressed.toByteArray());
+            gzipEntity.setContentType(entity.getContentType());
+            gzipEntity.setContentEncoding(GZIP);
+            entityRequest.setEntity(gzipEntity);
+
+            ResponseMetrics metrics = ResponseMetrics.current();
+            if (metrics != null) {
+                metrics.requestCompressed(entity.getContentLength(), compressed.size());
+            }
+        }
+    }
+
+    /**
+     * Registered first, so it counts the body bytes as they come from the connection, before any content decoding.
+     */
+    private static class BodyMetricsInterceptor implements HttpResponseInterceptor {
+
+        private final boolean decoded;
+
+        BodyMetricsInterceptor() {
+            this(false);
+        }
+
+        BodyMetricsInterceptor(boolean decoded) {
+            this.decoded = decoded;
+        }
+
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+            ResponseMetrics metrics = ResponseMetrics.current();
+            HttpEntity entity = response.getEntity();
+            if (metrics != null && entity != null) {
+                response.setEntity(new MeteredEntity(entity, metrics, decoded));
+            }
+        }
+    }
+
+    /**
+     * Registered last, so it counts the body bytes after gzip/deflate decoding.
+     * A class of its own because HttpClient keeps a single interceptor per class.
+     */
+    private static class DecodedBodyMetricsInterceptor extends BodyMetricsInterceptor {
+
+        DecodedBodyMetricsInterceptor() {
+            super(true);
+        }
+    }
+
+    private static class MeteredEntity extends HttpEntityWrapper {
+
+        private final ResponseMetrics metrics;
+        private final boolean decoded;
+
+        MeteredEntity(HttpEntity wrappedEntity, ResponseMetrics metrics, boolean decoded) {
+            super(wrappedEntity);
+            this.metrics = metrics;
+            this.decoded = decoded;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new MeteredInputStream(super.getContent(), metrics, decoded);
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream content = getContent()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    outStream.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    private static class MeteredInputStream extends FilterInputStream {
+
+        private final ResponseMetrics metrics;
+        private final boolean decoded;
+
+        MeteredInputStream(InputStream in, ResponseMetrics metrics, boolean decoded) {
+            super(in);
+            this.metrics = metrics;
+            this.decoded = decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value == -1) {
+                metrics.bodyCompleted();
+            } else {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                metrics.bodyCompleted();
+            } else {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int bytes) {
+            if (decoded) {
+                metrics.bodyDecoded(bytes);
+            } else {
+                metrics.bodyRead(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            metrics.bodyCompleted();
+            super.close();
+        }
+    }
+}
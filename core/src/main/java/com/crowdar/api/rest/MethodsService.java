@@ -1,13 +1,19 @@
 package com.crowdar.api.rest;
 
-import com.crowdar.core.JsonUtils;
 import com.crowdar.util.ValidateUtils;
 import org.apache.log4j.Logger;
+import org.springframework.http.HttpMethod;
 import org.testng.Assert;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.crowdar.api.rest.APIManager.setLastResponse;
 public class MethodsService {
@@ -17,7 +23,9 @@ public class MethodsService {
     }
     
     public static <T> Response get(Request req, Class<T> classModel, RestClient restClient) {
-    	Response resp = restClient.get(req.getCompleteUrl(), classModel, req.getBody().toString(), req.getUrlParameters(), req.getHeaders());
+    	Response resp = req.getUri() != null
+                ? restClient.get(req.getUri(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders())
+                : restClient.get(req.getCompleteUrl(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders());
     	setLastResponse(resp);
     	return resp;
     }
@@ -36,7 +44,9 @@ public class MethodsService {
     }
     
     public static <T> Response post(Request req, Class<T> classModel, RestClient restClient) {
-        Response resp = restClient.post(req.getCompleteUrl(), classModel, req.getBody(), req.getUrlParameters(), req.getHeaders());
+        Response resp = req.getUri() != null
+                ? restClient.post(req.getUri(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders())
+                : restClient.post(req.getCompleteUrl(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders());
         setLastResponse(resp);
         return resp;
     }
@@ -55,7 +65,9 @@ public class MethodsService {
     }
 
     public static <T> Response put(Request req, Class<T> classModel, RestClient restClient) {
-        Response resp = restClient.put(req.getCompleteUrl(), classModel, req.getBody().toString(), req.getUrlParameters(), req.getHeaders());
+        Response resp = req.getUri() != null
+                ? restClient.put(req.getUri(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders())
+                : restClient.put(req.getCompleteUrl(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders());
         setLastResponse(resp);
         return resp;
     }
@@ -75,7 +87,9 @@ public class MethodsService {
     }
 
     public static <T> Response patch(Request req, Class<T> classModel, RestClient restClient) {
-        Response resp = restClient.patch(req.getCompleteUrl(), classModel, req.getBody().toString(), req.getUrlParameters(), req.getHeaders());
+        Response resp = req.getUri() != null
+                ? restClient.patch(req.getUri(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders())
+                : restClient.patch(req.getCompleteUrl(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders());
         setLastResponse(resp);
         return resp;
     }
@@ -94,7 +108,9 @@ public class MethodsService {
     }
 
     public static <T> Response delete(Request req, Class<T> classModel, RestClient restClient) {
-        Response resp = restClient.delete(req.getCompleteUrl(), classModel, req.getBody().toString(), req.getUrlParameters(), req.getHeaders());
+        Response resp = req.getUri() != null
+                ? restClient.delete(req.getUri(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders())
+                : restClient.delete(req.getCompleteUrl(), classModel, req.getEncodedBody(), req.getUrlParameters(), req.getHeaders());
         setLastResponse(resp);
         return resp;
     }
@@ -108,21 +124,77 @@ public class MethodsService {
         return delete(req, classModel);
     }
 
+    /**
+     * POST of the file as the request body, streamed from disk.
+     */
+    public static <T> Response upload(Request req, Path file, Class<T> classModel) {
+        return upload(req, HttpMethod.POST, file, classModel);
+    }
+
+    public static <T> Response upload(Request req, HttpMethod method, Path file, Class<T> classModel) {
+        Response resp = getRestClient().upload(req.getCompleteUrl(), method, file, classModel, req.getUrlParameters(), req.getHeaders());
+        setLastResponse(resp);
+        return resp;
+    }
+
+    /**
+     * POST of a multipart/form-data body, its files are streamed from disk.
+     */
+    public static <T> Response upload(Request req, Multipart multipart, Class<T> classModel) {
+        return upload(req, HttpMethod.POST, multipart, classModel);
+    }
+
+    public static <T> Response upload(Request req, HttpMethod method, Multipart multipart, Class<T> classModel) {
+        Response resp = getRestClient().upload(req.getCompleteUrl(), method, multipart, classModel, req.getUrlParameters(), req.getHeaders());
+        setLastResponse(resp);
+        return resp;
+    }
+
+    /**
+     * GET that writes the response body to the target file without keeping it in memory.
+     * The body of the returned response is a DownloadedFile.
+     */
+    public static Response download(Request req, Path target) {
+        return download(req, target, null);
+    }
+
+    /**
+     * Same as {@link #download(Request, Path)}, failing when the digest of the file is not the expected one.
+     */
+    public static Response download(Request req, Path target, FileChecksum checksum) {
+        Response resp = getRestClient().download(req.getCompleteUrl(), target, checksum, req.getUrlParameters(), req.getHeaders());
+        setLastResponse(resp);
+        return resp;
+    }
+
+    /**
+     * Lazy stream over the items of a paged GET endpoint, requesting the following pages as the stream is consumed
+     * and prefetching the next one in background. Items are converted to itemClass, JsonNode keeps them as they are.
+     * Close the stream when it is not consumed to the end.
+     */
+    public static <T> Stream<T> paginate(Request req, Class<T> itemClass, Pagination pagination) {
+        PageIterator<T> iterator = new PageIterator<>(getRestClient(), req, itemClass, pagination);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Same as {@link #paginate(Request, Class, Pagination)} as an Iterator.
+     */
+    public static <T> Iterator<T> iterate(Request req, Class<T> itemClass, Pagination pagination) {
+        return new PageIterator<>(getRestClient(), req, itemClass, pagination);
+    }
+
     protected static Request getRequest(String jsonFileName, Map<String, String> replacementParameters) {
-        String jsonRequest = null;
+        RequestTemplate template = null;
         try {
-            jsonRequest = JsonUtils.getJSONFromFile(jsonFileName);
+            template = RequestTemplate.get(jsonFileName);
         } catch (IOException e) {
             Logger.getLogger(MethodsService.class).error(e.getMessage());
             Assert.fail(e.getMessage());
         }
 
-        if (replacementParameters != null) {
-            for (String key : replacementParameters.keySet()) {
-                jsonRequest = jsonRequest.replace("{{" + key + "}}", replacementParameters.get(key));
-            }
-        }
-        Request request = JsonUtils.deserialize(jsonRequest, Request.class);
+        Request request = template.toRequest(replacementParameters);
         Logger.getLogger(MethodsService.class).info(">>>Request: " + request.toString());
         return request;
     }
@@ -145,6 +217,23 @@ public class MethodsService {
         ValidateUtils.validateFields(actualList, expectedList);
     }
 
+    /**
+     * Generic validation of two lists in any order. Elements are matched by the key fields, or by content when there are none,
+     * and every missing, extra and changed element is reported in a single assertion.
+     *
+     * @param actualList
+     * @param expectedList
+     * @param keys expected field names that identify an element
+     * @throws Exception
+     */
+    public <T> void validateFieldsUnordered(List<T> actualList, List<T> expectedList, String... keys) throws Exception {
+        if (keys.length == 0) {
+            ValidateUtils.validateFieldsUnordered(actualList, expectedList);
+        } else {
+            ValidateUtils.validateFieldsByKey(actualList, expectedList, keys);
+        }
+    }
+
     /**
      * Generic validation. Do assertions for all the expected variables and write file outputs in target folder.
      * Validate two objects
@@ -0,0 +1,167 @@
+package com.crowdar.api.rest;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * multipart/form-data body for MethodsService.upload. Text fields are kept in memory, file parts are streamed
+ * from disk when the request is sent or its content is read again, so the length is known without reading the files.
+ */
+public class Multipart {
+
+    private static final String CRLF = "\r\n";
+
+    private final String boundary = "----lippia" + UUID.randomUUID().toString().replace("-", "");
+    private final List<Part> parts = new ArrayList<>();
+
+    public static Multipart create() {
+        return new Multipart();
+    }
+
+    public Multipart field(String name, String value) {
+        parts.add(new Part(name, null, "text/plain; charset=UTF-8", value.getBytes(StandardCharsets.UTF_8), null));
+        return this;
+    }
+
+    public Multipart file(String name, Path file) {
+        return file(name, file, PathEntity.probeContentType(file));
+    }
+
+    public Multipart file(String name, Path file, String contentType) {
+        parts.add(new Part(name, file.getFileName().toString(), contentType, null, file));
+        return this;
+    }
+
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    HttpEntity toEntity() throws IOException {
+        return new MultipartEntity(this);
+    }
+
+    private byte[] getHeader(Part part, boolean first) {
+        StringBuilder header = new StringBuilder();
+        if (!first) {
+            header.append(CRLF);
+        }
+        header.append("--").append(boundary).append(CRLF)
+                .append("Content-Disposition: form-data; name=\"").append(escape(part.name)).append('"');
+        if (part.fileName != null) {
+            header.append("; filename=\"").append(escape(part.fileName)).append('"');
+        }
+        header.append(CRLF).append("Content-Type: ").append(part.contentType).append(CRLF).append(CRLF);
+        return header.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getEnd() {
+        return (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+
+    private static class Part {
+        private final String name;
+        private final String fileName;
+        private final String contentType;
+        private final byte[] value;
+        private final Path file;
+
+        Part(String name, String fileName, String contentType, byte[] value, Path file) {
+            this.name = name;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.value = value;
+            this.file = file;
+        }
+    }
+
+    private static class MultipartEntity extends AbstractHttpEntity {
+
+        private final Multipart multipart;
+        private final long length;
+
+        MultipartEntity(Multipart multipart) throws IOException {
+            this.multipart = multipart;
+            setContentType(multipart.getContentType());
+            long total = multipart.getEnd().length;
+            boolean first = true;
+            for (Part part : multipart.parts) {
+                total += multipart.getHeader(part, first).length;
+                total += part.file == null ? part.value.length : Files.size(part.file);
+                first = false;
+            }
+            this.length = total;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        /**
+         * @return the same bytes as {@link #writeTo}, for the features that read the entity again such as retries and logging.
+         * The files are opened here and each one is closed once it is read
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+            List<InputStream> streams = new ArrayList<>();
+            try {
+                boolean first = true;
+                for (Part part : multipart.parts) {
+                    streams.add(new ByteArrayInputStream(multipart.getHeader(part, first)));
+                    streams.add(part.file == null ? new ByteArrayInputStream(part.value) : Files.newInputStream(part.file));
+                    first = false;
+                }
+            } catch (IOException e) {
+                for (InputStream stream : streams) {
+                    stream.close();
+                }
+                throw e;
+            }
+            streams.add(new ByteArrayInputStream(multipart.getEnd()));
+            return new SequenceInputStream(Collections.enumeration(streams));
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            boolean first = true;
+            for (Part part : multipart.parts) {
+                outStream.write(multipart.getHeader(part, first));
+                if (part.file == null) {
+                    outStream.write(part.value);
+                } else {
+                    PathEntity.transfer(part.file, outStream);
+                }
+                first = false;
+            }
+            outStream.write(multipart.getEnd());
+            outStream.flush();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
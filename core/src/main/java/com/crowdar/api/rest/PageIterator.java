@@ -0,0 +1,265 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.Constants;
+import com.crowdar.core.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.lippia.api.service.TokenManager;
+import org.testng.Assert;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lazy iterator over the items of a paged list endpoint. The next page is requested in background as soon as
+ * the current one arrives, so at most two pages are held in memory. Each page becomes the last response of the
+ * thread when its items start to be consumed. The token of the thread that creates the iterator is sent with every page,
+ * prefetched pages included, unless the request already has the token header.
+ */
+class PageIterator<T> implements Iterator<T>, Closeable {
+
+    private static final Pattern LINK = Pattern.compile("<([^>]*)>([^<]*)");
+    private static final Pattern NEXT_REL = Pattern.compile("rel\\s*=\\s*\"?([^\"]*\\s)?next(\\s[^\"]*)?\"?", Pattern.CASE_INSENSITIVE);
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "api-page-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RestClient restClient;
+    private final Request request;
+    private final Map<String, String> headers;
+    private final Class<T> itemClass;
+    private final Pagination pagination;
+
+    private PageTarget firstTarget;
+    private CompletableFuture<Page> next;
+    private Iterator<JsonNode> current = Collections.emptyIterator();
+    private int pages;
+    private volatile boolean closed;
+
+    PageIterator(RestClient restClient, Request request, Class<T> itemClass, Pagination pagination) {
+        this.restClient = restClient;
+        this.request = request;
+        this.headers = withAuthorization(request);
+        this.itemClass = itemClass;
+        this.pagination = pagination;
+        this.firstTarget = new PageTarget(null, pagination.getFirst(), null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            Page page;
+            if (firstTarget != null) {
+                page = fetch(firstTarget);
+                firstTarget = null;
+            } else if (next != null) {
+                page = await(next);
+            } else {
+                return false;
+            }
+            pages++;
+            APIManager.setLastResponse(page.response);
+            current = page.items.iterator();
+            PageTarget nextTarget = pages < pagination.getMaxPages() && !closed ? page.next : null;
+            next = nextTarget == null ? null : CompletableFuture.supplyAsync(() -> fetch(nextTarget), PREFETCH);
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JsonNode item = current.next();
+        return itemClass.isInstance(item) ? itemClass.cast(item) : JsonUtils.convert(item, itemClass);
+    }
+
+    /**
+     * Stops requesting pages. A page already being requested is discarded, the first page is not requested when it was not yet.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        firstTarget = null;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+        current = Collections.emptyIterator();
+    }
+
+    private Page fetch(PageTarget target) {
+        Response response;
+        if (target.uri != null) {
+            response = restClient.get(target.uri, JsonNode.class, request.getEncodedBody(), Collections.<String, String>emptyMap(), headers);
+        } else {
+            Map<String, String> urlParameters = new HashMap<>(request.getUrlParameters());
+            if (target.cursor != null) {
+                urlParameters.put(pagination.getPositionParameter(), target.cursor);
+            } else if (pagination.getStyle() == Pagination.Style.OFFSET || pagination.getStyle() == Pagination.Style.PAGE) {
+                urlParameters.put(pagination.getPositionParameter(), String.valueOf(target.position));
+            }
+            if (pagination.getSizeParameter() != null) {
+                urlParameters.put(pagination.getSizeParameter(), String.valueOf(pagination.getPageSize()));
+            }
+            response = request.getUri() != null
+                    ? restClient.get(request.getUri(), JsonNode.class, request.getEncodedBody(), urlParameters, headers)
+                    : restClient.get(request.getCompleteUrl(), JsonNode.class, request.getEncodedBody(), urlParameters, headers);
+        }
+        if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+            Assert.fail("Page " + target + " of " + request.getCompleteUrl() + " failed with status " + response.getStatusCode() + ": " + response.getResponse());
+        }
+        JsonNode body = (JsonNode) response.getResponse();
+        List<JsonNode> items = getItems(body);
+        return new Page(response, items, getNextTarget(target, body, items.size(), response));
+    }
+
+    private List<JsonNode> getItems(JsonNode body) {
+        JsonNode items = getPath(body, pagination.getItemsPath());
+        if (items == null || items.isNull() || items.isMissingNode()) {
+            return Collections.emptyList();
+        }
+        if (!items.isArray()) {
+            Assert.fail("Items of the page of " + request.getCompleteUrl() + " are not an array" + (pagination.getItemsPath() == null ? "" : " at " + pagination.getItemsPath()));
+        }
+        List<JsonNode> list = new ArrayList<>(items.size());
+        items.forEach(list::add);
+        return list;
+    }
+
+    private PageTarget getNextTarget(PageTarget target, JsonNode body, int itemCount, Response response) {
+        switch (pagination.getStyle()) {
+            case OFFSET:
+                return itemCount == 0 || itemCount < pagination.getPageSize() ? null : new PageTarget(null, target.position + itemCount, null);
+            case PAGE:
+                return itemCount == 0 || itemCount < pagination.getPageSize() ? null : new PageTarget(null, target.position + 1, null);
+            case CURSOR:
+                JsonNode cursor = getPath(body, pagination.getNextCursorPath());
+                return itemCount == 0 || cursor == null || cursor.isNull() || cursor.asText().isEmpty() ? null : new PageTarget(null, 0, cursor.asText());
+            case LINK:
+                URI nextLink = getNextLink(response, target.uri != null ? target.uri : URI.create(request.getCompleteUrl()));
+                return nextLink == null ? null : new PageTarget(nextLink, 0, null);
+            default:
+                return null;
+        }
+    }
+
+    private URI getNextLink(Response response, URI current) {
+        List<String> links = response.getHeader() == null ? null : getHeaderValues(response.getHeader(), "Link");
+        if (links == null) {
+            return null;
+        }
+        for (String link : links) {
+            Matcher matcher = LINK.matcher(link);
+            while (matcher.find()) {
+                if (NEXT_REL.matcher(matcher.group(2)).find()) {
+                    return current.resolve(matcher.group(1).trim());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return headers of the request with the token of the current thread, which the prefetch threads do not have
+     */
+    private static Map<String, String> withAuthorization(Request request) {
+        String header = Constants.getApiTokenHeader();
+        for (String key : request.getHeaders().keySet()) {
+            if (key.equalsIgnoreCase(header)) {
+                return request.getHeaders();
+            }
+        }
+        String authorization = TokenManager.getCurrentAuthorization();
+        if (authorization == null) {
+            return request.getHeaders();
+        }
+        Map<String, String> headers = new HashMap<>(request.getHeaders());
+        headers.put(header, authorization);
+        return headers;
+    }
+
+    private static List<String> getHeaderValues(Headers headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.getAll().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static JsonNode getPath(JsonNode node, String path) {
+        if (path == null || path.isEmpty()) {
+            return node;
+        }
+        JsonNode value = node;
+        for (String field : path.split("\\.")) {
+            if (value == null) {
+                return null;
+            }
+            value = value.get(field);
+        }
+        return value;
+    }
+
+    private static Page await(CompletableFuture<Page> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Page {
+        private final Response response;
+        private final List<JsonNode> items;
+        private final PageTarget next;
+
+        Page(Response response, List<JsonNode> items, PageTarget next) {
+            this.response = response;
+            this.items = items;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Next page to request: an absolute url for LINK, a cursor for CURSOR, the offset or page number otherwise.
+     */
+    private static class PageTarget {
+        private final URI uri;
+        private final long position;
+        private final String cursor;
+
+        PageTarget(URI uri, long position, String cursor) {
+            this.uri = uri;
+            this.position = position;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public String toString() {
+            return uri != null ? uri.toString() : cursor != null ? "cursor " + cursor : "at " + position;
+        }
+    }
+}
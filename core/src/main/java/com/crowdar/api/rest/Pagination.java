@@ -0,0 +1,118 @@
+package com.crowdar.api.rest;
+
+/**
+ * How a list endpoint is paged, for MethodsService.paginate.
+ * <ul>
+ * <li>OFFSET: offset and limit url parameters, the offset moves by the items received.</li>
+ * <li>PAGE: page number and page size url parameters.</li>
+ * <li>CURSOR: the next cursor is read from the response and sent in a url parameter.</li>
+ * <li>LINK: the next page is the rel="next" url of the Link header.</li>
+ * </ul>
+ * OFFSET and PAGE stop at the first page with less items than the page size, CURSOR and LINK when there is no next cursor or link.
+ */
+public class Pagination {
+
+    public enum Style {
+        OFFSET, PAGE, CURSOR, LINK
+    }
+
+    private final Style style;
+    private final String positionParameter;
+    private String sizeParameter;
+    private int pageSize;
+    private long first;
+    private String itemsPath;
+    private String nextCursorPath;
+    private int maxPages = Integer.MAX_VALUE;
+
+    private Pagination(Style style, String positionParameter) {
+        this.style = style;
+        this.positionParameter = positionParameter;
+    }
+
+    public static Pagination offset(String offsetParameter, String limitParameter, int pageSize) {
+        return new Pagination(Style.OFFSET, offsetParameter).size(limitParameter, pageSize);
+    }
+
+    /**
+     * Pages are numbered from 1, see {@link #firstPage(long)}.
+     */
+    public static Pagination page(String pageParameter, String sizeParameter, int pageSize) {
+        return new Pagination(Style.PAGE, pageParameter).size(sizeParameter, pageSize).firstPage(1);
+    }
+
+    /**
+     * @param nextCursorPath dotted path of the next cursor in the response, for example meta.next_cursor
+     */
+    public static Pagination cursor(String cursorParameter, String nextCursorPath) {
+        Pagination pagination = new Pagination(Style.CURSOR, cursorParameter);
+        pagination.nextCursorPath = nextCursorPath;
+        return pagination;
+    }
+
+    public static Pagination link() {
+        return new Pagination(Style.LINK, null);
+    }
+
+    /**
+     * Page size sent in every request. Optional for CURSOR and LINK.
+     */
+    public Pagination size(String sizeParameter, int pageSize) {
+        this.sizeParameter = sizeParameter;
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * First offset or page number.
+     */
+    public Pagination firstPage(long first) {
+        this.first = first;
+        return this;
+    }
+
+    /**
+     * @param itemsPath dotted path of the items array in the response, for example data.items. By default the response is the array.
+     */
+    public Pagination items(String itemsPath) {
+        this.itemsPath = itemsPath;
+        return this;
+    }
+
+    public Pagination maxPages(int maxPages) {
+        this.maxPages = maxPages;
+        return this;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    public String getPositionParameter() {
+        return positionParameter;
+    }
+
+    public String getSizeParameter() {
+        return sizeParameter;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public String getItemsPath() {
+        return itemsPath;
+    }
+
+    public String getNextCursorPath() {
+        return nextCursorPath;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+}
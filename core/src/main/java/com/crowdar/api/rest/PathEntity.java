@@ -0,0 +1,78 @@
+package com.crowdar.api.rest;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request body read from a file while it is sent. The file is transferred with FileChannel.transferTo,
+ * so it is never loaded in the heap.
+ */
+class PathEntity extends AbstractHttpEntity {
+
+    private final Path path;
+    private final long length;
+
+    PathEntity(Path path, String contentType) throws IOException {
+        this.path = path;
+        this.length = Files.size(path);
+        setContentType(contentType);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        transfer(path, outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    static void transfer(Path path, OutputStream outStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outStream);
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+        outStream.flush();
+    }
+
+    static String probeContentType(Path path) {
+        try {
+            String contentType = Files.probeContentType(path);
+            if (contentType != null) {
+                return contentType;
+            }
+        } catch (IOException e) {
+            // unknown type
+        }
+        return "application/octet-stream";
+    }
+}
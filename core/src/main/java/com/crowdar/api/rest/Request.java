@@ -1,11 +1,11 @@
 package com.crowdar.api.rest;
 
-import com.crowdar.core.JsonUtils;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.http.HttpHeaders;
 
-import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,8 +18,13 @@ public class Request {
     private String endpoint;
     private Map<String, String> headers;
     private Map<String, String> urlParameters;
+    private EncodedBody encodedBody;
+    private URI uri;
 
     public String getCompleteUrl() {
+        if (uri != null) {
+            return uri.toString();
+        }
         String completeUrl = url;
         if (StringUtils.isEmpty(url)) {
             completeUrl = BASE_URL;
@@ -43,17 +48,50 @@ public class Request {
 
     public void setUrl(String url) {
         this.url = url;
+        this.uri = null;
+    }
+
+    /**
+     * Complete url already parsed, set by the requests built from an EndpointDefinition.
+     * When it is present it is sent instead of url and endpoint.
+     */
+    @JsonIgnore
+    public URI getUri() {
+        return uri;
+    }
+
+    public void setUri(URI uri) {
+        this.uri = uri;
     }
 
     //TODO: hasta el momento solo soporta envio de json y text. CREO que html, xml NO, pero no estoy seguro.
     public Object getBody() {
-        if (body == null) {
-            return "";
-        } else if (JsonUtils.isJSONValid(body)) {
-            return JsonUtils.serialize(body);
-        } else {
-            return body;
+        return getEncodedBody().getValue();
+    }
+
+    /**
+     * Body encoded with its content type. A text body is encoded once and cached until the body or the headers change;
+     * any other body can still be modified after setBody, so it is encoded again on every call, once per send.
+     */
+    @JsonIgnore
+    public EncodedBody getEncodedBody() {
+        if (encodedBody != null) {
+            return encodedBody;
+        }
+        EncodedBody encoded = EncodedBody.encode(body, getContentTypeHeader());
+        if (body == null || body instanceof String) {
+            encodedBody = encoded;
+        }
+        return encoded;
+    }
+
+    private String getContentTypeHeader() {
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
         }
+        return null;
     }
 
     public Map<String, String> getHeaders() {
@@ -65,10 +103,12 @@ public class Request {
 
     public void setHeaders(Map<String, String> headers) {
         this.headers = headers;
+        this.encodedBody = null;
     }
 
     public void addHeader(String key, String value){
         getHeaders().put(key, value);
+        this.encodedBody = null;
     }
 
     public Map<String, String> getUrlParameters() {
@@ -88,6 +128,7 @@ public class Request {
 
     public void setBody(Object body) {
         this.body = body;
+        this.encodedBody = null;
     }
 
     public String getEndpoint() {
@@ -96,6 +137,7 @@ public class Request {
 
     public void setEndpoint(String endpoint) {
         this.endpoint = endpoint;
+        this.uri = null;
     }
 
     public String toString(){
@@ -109,9 +151,9 @@ public class Request {
             builder.append(", ");
             builder.append(getHeaders());
         }
-        if(!getBody().toString().isEmpty()){
+        if(!getEncodedBody().isEmpty()){
             builder.append(", ");
-            builder.append(getBody());
+            builder.append(getEncodedBody());
         }
         return builder.toString();
     }
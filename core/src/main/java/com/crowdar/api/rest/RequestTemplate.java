@@ -0,0 +1,115 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.JsonUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request json file compiled once into literal chunks and {{placeholder}} slots.
+ * Compiled templates are cached per file and recompiled when the file modification time changes.
+ */
+public class RequestTemplate {
+
+    private static final String PLACEHOLDER_OPEN = "{{";
+    private static final String PLACEHOLDER_CLOSE = "}}";
+    private static final Map<Path, RequestTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final FileTime lastModified;
+    private final String source;
+    private final String[] literals;
+    private final String[] placeholders;
+
+    private RequestTemplate(String source, FileTime lastModified, String[] literals, String[] placeholders) {
+        this.source = source;
+        this.lastModified = lastModified;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * @param jsonFileName json file name relative to src/test/resources/jsons, without extension
+     * @return the compiled template, reused while the file is not modified
+     * @throws IOException
+     */
+    public static RequestTemplate get(String jsonFileName) throws IOException {
+        return get(Paths.get(JsonUtils.getJSONFilePath(jsonFileName)));
+    }
+
+    public static RequestTemplate get(Path path) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        RequestTemplate template = CACHE.get(path);
+        if (template == null || !template.lastModified.equals(modified)) {
+            template = compile(JsonUtils.getJSON(path), modified);
+            CACHE.put(path, template);
+        }
+        return template;
+    }
+
+    public static void purge() {
+        CACHE.clear();
+    }
+
+    static RequestTemplate compile(String json, FileTime lastModified) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int open = json.indexOf(PLACEHOLDER_OPEN);
+        while (open >= 0) {
+            int close = json.indexOf(PLACEHOLDER_CLOSE, open + PLACEHOLDER_OPEN.length());
+            if (close < 0) {
+                break;
+            }
+            literals.add(json.substring(literalStart, open));
+            placeholders.add(json.substring(open + PLACEHOLDER_OPEN.length(), close));
+            literalStart = close + PLACEHOLDER_CLOSE.length();
+            open = json.indexOf(PLACEHOLDER_OPEN, literalStart);
+        }
+        literals.add(json.substring(literalStart));
+        return new RequestTemplate(json, lastModified, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    public List<String> getPlaceholders() {
+        List<String> names = new ArrayList<>(placeholders.length);
+        for (String placeholder : placeholders) {
+            names.add(placeholder);
+        }
+        return names;
+    }
+
+    /**
+     * Writes the template in a single pass, filling every slot present in replacementParameters.
+     * Slots without a parameter are kept as {{placeholder}}.
+     *
+     * @param replacementParameters
+     * @return String (json)
+     */
+    public String render(Map<String, String> replacementParameters) {
+        if (placeholders.length == 0 || replacementParameters == null || replacementParameters.isEmpty()) {
+            return source;
+        }
+        StringBuilder builder = new StringBuilder(source.length() + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String value = replacementParameters.get(placeholders[i]);
+            if (value == null) {
+                builder.append(PLACEHOLDER_OPEN).append(placeholders[i]).append(PLACEHOLDER_CLOSE);
+            } else {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+
+    public Request toRequest(Map<String, String> replacementParameters) {
+        return JsonUtils.deserialize(render(replacementParameters), Request.class);
+    }
+}
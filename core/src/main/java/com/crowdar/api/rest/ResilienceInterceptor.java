@@ -0,0 +1,206 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.Constants;
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport level retries for RestClient.
+ * Idempotent calls are retried on the configured status codes and on IO errors, waiting an exponential backoff
+ * with jitter or the Retry-After of the response. Any method is retried when the connection could not be opened,
+ * because the request never reached the server.
+ * Retries are limited by a budget relative to the number of calls, so a failing upstream does not multiply the load,
+ * and each host has a CircuitBreaker that fails fast while the upstream is down.
+ * Must be the last interceptor of the RestTemplate, each retry executes the rest of the chain again.
+ */
+public class ResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.OPTIONS, HttpMethod.TRACE);
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final int MIN_RETRIES_IN_BUDGET = 10;
+
+    private final int maxRetries;
+    private final Set<Integer> retryStatusCodes;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final double retryBudget;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final Map<String, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+    private long calls;
+    private long retries;
+
+    public ResilienceInterceptor() {
+        this(Constants.getApiRetryMax(), Constants.getApiRetryStatusCodes(), Constants.getApiRetryBackoffBaseMillis(),
+                Constants.getApiRetryBackoffMaxMillis(), Constants.getApiRetryBudget(),
+                Constants.getApiCircuitFailureThreshold(), Constants.getApiCircuitOpenMillis());
+    }
+
+    /**
+     * @param maxRetries        retries per call, 0 disables them
+     * @param retryStatusCodes  comma separated status codes that are retried and counted as circuit failures
+     * @param backoffBaseMillis delay before the first retry, doubled on each one
+     * @param backoffMaxMillis  max delay between retries, a longer Retry-After is not waited
+     * @param retryBudget       retries allowed as a ratio of the calls made, on top of a minimum of 10
+     * @param failureThreshold  consecutive failures that open the circuit of a host, 0 disables it
+     * @param openMillis        time the circuit stays open before a trial call
+     */
+    public ResilienceInterceptor(int maxRetries, String retryStatusCodes, long backoffBaseMillis, long backoffMaxMillis,
+                                 double retryBudget, int failureThreshold, long openMillis) {
+        this.maxRetries = maxRetries;
+        this.retryStatusCodes = parseStatusCodes(retryStatusCodes);
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.retryBudget = retryBudget;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public boolean isEnabled() {
+        return maxRetries > 0 || failureThreshold > 0;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        CircuitBreaker circuit = getCircuit(request.getURI());
+        synchronized (this) {
+            calls++;
+        }
+        int attempt = 0;
+        while (true) {
+            if (!circuit.tryAcquire()) {
+                throw new CircuitOpenException(circuit.getHost());
+            }
+            long delay;
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                int statusCode = response.getRawStatusCode();
+                if (!retryStatusCodes.contains(statusCode)) {
+                    circuit.onSuccess();
+                    return response;
+                }
+                circuit.onFailure();
+                delay = getRetryAfterMillis(response.getHeaders());
+                if (delay < 0) {
+                    delay = getBackoffMillis(attempt);
+                }
+                if (delay > backoffMaxMillis || !canRetry(request.getMethod(), attempt, null, circuit)) {
+                    return response;
+                }
+                response.close();
+                Logger.getLogger(this.getClass()).warn(">>>Retrying " + request.getMethod() + " " + request.getURI() + " after status " + statusCode + " in " + delay + " ms");
+            } catch (CircuitOpenException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                circuit.release();
+                throw e;
+            } catch (IOException e) {
+                circuit.onFailure();
+                if (!canRetry(request.getMethod(), attempt, e, circuit)) {
+                    throw e;
+                }
+                delay = getBackoffMillis(attempt);
+                Logger.getLogger(this.getClass()).warn(">>>Retrying " + request.getMethod() + " " + request.getURI() + " after " + e + " in " + delay + " ms");
+            }
+            sleep(delay);
+            attempt++;
+            ResponseMetrics metrics = ResponseMetrics.current();
+            if (metrics != null) {
+                metrics.addRetry();
+            }
+        }
+    }
+
+    public CircuitBreaker getCircuit(URI uri) {
+        String host = uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort());
+        return circuits.computeIfAbsent(host, key -> new CircuitBreaker(key, failureThreshold, openMillis));
+    }
+
+    private boolean canRetry(HttpMethod method, int attempt, IOException error, CircuitBreaker circuit) {
+        if (attempt >= maxRetries || circuit.getState() == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+        if (!IDEMPOTENT_METHODS.contains(method) && !(error instanceof ConnectException)) {
+            return false;
+        }
+        synchronized (this) {
+            if (retries >= MIN_RETRIES_IN_BUDGET + (long) (calls * retryBudget)) {
+                Logger.getLogger(this.getClass()).warn(">>>Retry budget exhausted: " + retries + " retries for " + calls + " calls");
+                return false;
+            }
+            retries++;
+            return true;
+        }
+    }
+
+    /**
+     * @return exponential delay for the attempt, with a random jitter in its upper half
+     */
+    long getBackoffMillis(int attempt) {
+        long delay = backoffBaseMillis << Math.min(attempt, 30);
+        if (delay <= 0 || delay > backoffMaxMillis) {
+            delay = backoffMaxMillis;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * @return millis requested by the Retry-After header, in seconds or as an http date, -1 when absent or invalid
+     */
+    static long getRetryAfterMillis(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(RETRY_AFTER);
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, headers.getFirstDate(RETRY_AFTER) - System.currentTimeMillis());
+            } catch (IllegalArgumentException invalidDate) {
+                return -1;
+            }
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    private static Set<Integer> parseStatusCodes(String statusCodes) {
+        Set<Integer> codes = new HashSet<>();
+        if (statusCodes != null) {
+            for (String code : statusCodes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    codes.add(Integer.valueOf(code.trim()));
+                }
+            }
+        }
+        return codes;
+    }
+}
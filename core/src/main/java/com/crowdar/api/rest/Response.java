@@ -6,13 +6,19 @@ public class Response {
     private String message;
     private Object response;
     private Headers headers;
+    private ResponseMetrics metrics;
 
 
     public Response(int statusCode, String message, Object response, Headers headers) {
+        this(statusCode, message, response, headers, ResponseMetrics.EMPTY);
+    }
+
+    public Response(int statusCode, String message, Object response, Headers headers, ResponseMetrics metrics) {
         this.statusCode = statusCode;
         this.message = message;
         this.response = response;
         this.headers = headers;
+        this.metrics = metrics;
     }
 
     public int getStatusCode() {
@@ -31,4 +37,18 @@ public class Response {
         return this.headers;
     }
 
+    /**
+     * @return timing breakdown of the call that produced this response
+     */
+    public ResponseMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return times the call was retried before this response was received
+     */
+    public int getRetries() {
+        return this.metrics.getRetries();
+    }
+
 }
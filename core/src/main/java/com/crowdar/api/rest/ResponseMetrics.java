@@ -0,0 +1,230 @@
+package com.crowdar.api.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing breakdown of one RestClient exchange. Phases that did not happen (for example dns, connect and tls
+ * when a pooled connection is reused) stay in zero.
+ * The transport hooks built by HttpClientFactory record into the metrics started in the current thread.
+ */
+public class ResponseMetrics {
+
+    public static final ResponseMetrics EMPTY = new ResponseMetrics();
+
+    private static final ThreadLocal<ResponseMetrics> CURRENT = new ThreadLocal<>();
+
+    private long startNanos;
+    private long poolWaitNanos;
+    private long dnsNanos;
+    private long connectNanos;
+    private long tlsNanos;
+    private long sendStartNanos;
+    private long headersReceivedNanos;
+    private long ttfbNanos;
+    private long downloadNanos;
+    private long totalNanos;
+    private long bytesReceived;
+    private long bytesDecoded;
+    private long requestBytes;
+    private long requestBytesSent;
+    private long cacheBytes;
+    private boolean newConnection;
+    private int retries;
+
+    static ResponseMetrics start() {
+        ResponseMetrics metrics = new ResponseMetrics();
+        metrics.startNanos = System.nanoTime();
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    static ResponseMetrics current() {
+        return CURRENT.get();
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void finish() {
+        if (totalNanos == 0) {
+            totalNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    void addPoolWait(long nanos) {
+        poolWaitNanos += nanos;
+    }
+
+    void addDns(long nanos) {
+        dnsNanos += nanos;
+    }
+
+    void addConnect(long nanos) {
+        connectNanos += nanos;
+        newConnection = true;
+    }
+
+    void addTls(long nanos) {
+        tlsNanos += nanos;
+    }
+
+    void addRetry() {
+        retries++;
+    }
+
+    void requestSending() {
+        sendStartNanos = System.nanoTime();
+    }
+
+    void headersReceived() {
+        headersReceivedNanos = System.nanoTime();
+        if (sendStartNanos > 0) {
+            ttfbNanos = headersReceivedNanos - sendStartNanos;
+        }
+    }
+
+    void bodyRead(long bytes) {
+        bytesReceived += bytes;
+    }
+
+    void bodyDecoded(long bytes) {
+        bytesDecoded += bytes;
+    }
+
+    void requestCompressed(long originalBytes, long sentBytes) {
+        requestBytes += originalBytes;
+        requestBytesSent += sentBytes;
+    }
+
+    void servedFromCache(long bytes) {
+        cacheBytes += bytes;
+    }
+
+    void bodyCompleted() {
+        if (headersReceivedNanos > 0 && downloadNanos == 0) {
+            downloadNanos = System.nanoTime() - headersReceivedNanos;
+        }
+    }
+
+    public long getPoolWaitMillis() {
+        return toMillis(poolWaitNanos);
+    }
+
+    public long getDnsMillis() {
+        return toMillis(dnsNanos);
+    }
+
+    public long getConnectMillis() {
+        return toMillis(connectNanos);
+    }
+
+    public long getTlsMillis() {
+        return toMillis(tlsNanos);
+    }
+
+    public long getTimeToFirstByteMillis() {
+        return toMillis(ttfbNanos);
+    }
+
+    public long getDownloadMillis() {
+        return toMillis(downloadNanos);
+    }
+
+    public long getTotalMillis() {
+        return toMillis(totalNanos);
+    }
+
+    public long getPoolWaitNanos() {
+        return poolWaitNanos;
+    }
+
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getTlsNanos() {
+        return tlsNanos;
+    }
+
+    public long getTimeToFirstByteNanos() {
+        return ttfbNanos;
+    }
+
+    public long getDownloadNanos() {
+        return downloadNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return bytes of the response body as they were read from the connection
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return bytes of the response body after gzip/deflate decoding
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    /**
+     * @return bytes not downloaded because the response was compressed
+     */
+    public long getResponseCompressionSavedBytes() {
+        return Math.max(0, bytesDecoded - bytesReceived);
+    }
+
+    /**
+     * @return bytes not uploaded because the request body was sent with gzip
+     */
+    public long getRequestCompressionSavedBytes() {
+        return requestBytes - requestBytesSent;
+    }
+
+    /**
+     * @return bytes of the body answered from the ConditionalCacheInterceptor after a 304
+     */
+    public long getCacheSavedBytes() {
+        return cacheBytes;
+    }
+
+    public boolean isServedFromCache() {
+        return cacheBytes > 0;
+    }
+
+    public long getBytesSaved() {
+        return getResponseCompressionSavedBytes() + getRequestCompressionSavedBytes() + getCacheSavedBytes();
+    }
+
+    public boolean isNewConnection() {
+        return newConnection;
+    }
+
+    /**
+     * @return times the call was retried by the ResilienceInterceptor, the timings add up every attempt
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("total=%dms pool=%dms dns=%dms connect=%dms tls=%dms ttfb=%dms download=%dms bytes=%d saved=%d retries=%d",
+                getTotalMillis(), getPoolWaitMillis(), getDnsMillis(), getConnectMillis(), getTlsMillis(),
+                getTimeToFirstByteMillis(), getDownloadMillis(), getBytesReceived(), getBytesSaved(), getRetries());
+    }
+}
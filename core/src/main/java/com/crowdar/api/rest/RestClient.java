@@ -1,8 +1,10 @@
 package com.crowdar.api.rest;
 
 import com.crowdar.core.JsonUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.log4j.Logger;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
@@ -16,6 +18,7 @@ import org.testng.Assert;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -23,31 +26,43 @@ import java.util.Map;
 
 public class RestClient {
 
-    private HttpHeaders headers;
-    private static RestTemplate restTemplate;
     private static RestClient restClient;
 
+    private final FileTransfer fileTransfer;
+    private RestTemplate restTemplate;
+
     public static RestClient getRestClient() {
         if (restClient == null) {
-            restClient = new RestClient();
+            restClient = new RestClient(HttpClientFactory.create());
         }
         return restClient;
     }
     
     public static RestClient getRestClient(RestTemplate restTemplate) {
         if (restClient == null) {
-            restClient = new RestClient();
-            RestClient.setRestTemplate(restTemplate);
+            restClient = new RestClient(HttpClientFactory.create());
+            restClient.setRestTemplate(restTemplate);
         }
         return restClient;
     }
 
+    /**
+     * Creates a client apart from the shared one, sending its calls through the given http client with the same
+     * converters and interceptors. Callers keep it and reuse it, every client holds its own connection pool.
+     */
+    public static RestClient create(CloseableHttpClient httpClient) {
+        return new RestClient(httpClient);
+    }
+
     public static void purge() {
-    	RestClient.setRestTemplate(null);
+        if (restClient != null) {
+            restClient.setRestTemplate(null);
+        }
     }
     
-    private RestClient() {
-        setRestTemplate(new RestTemplate(new HttpComponentsClientHttpRequestFactory()));
+    private RestClient(CloseableHttpClient httpClient) {
+        fileTransfer = new FileTransfer(httpClient);
+        setRestTemplate(new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient)));
         List<HttpMessageConverter<?>> messageConverters = restTemplate.getMessageConverters();
         MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter = new MappingJackson2HttpMessageConverter();
         mappingJackson2HttpMessageConverter.setSupportedMediaTypes(Arrays.asList(MediaType.ALL));
@@ -56,55 +71,157 @@ public class RestClient {
         messageConverters.add(new StringHttpMessageConverter(Charset.forName("UTF-8")));
     }
 
-    private static RestTemplate getRestTemplate() {
+    private RestTemplate getRestTemplate() {
         return restTemplate;
     }
 
-    private static void setRestTemplate(RestTemplate newRestTemplate) {
+    private void setRestTemplate(RestTemplate newRestTemplate) {
+        if (newRestTemplate != null) {
+            addVcrInterceptor(newRestTemplate);
+            addConditionalCacheInterceptor(newRestTemplate);
+            addResilienceInterceptor(newRestTemplate);
+        }
         restTemplate = newRestTemplate;
     }
 
-    private void setRequestHeaders(Map<String, String> headers) {
-        this.headers = new HttpHeaders();
-        this.headers.setAll(headers);
+    /**
+     * Adds record/replay of the calls when crowdar.api.vcr.mode is RECORD or REPLAY, first so replayed calls skip the
+     * other interceptors.
+     */
+    private static void addVcrInterceptor(RestTemplate template) {
+        for (ClientHttpRequestInterceptor interceptor : template.getInterceptors()) {
+            if (interceptor instanceof VcrInterceptor) {
+                return;
+            }
+        }
+        VcrInterceptor vcrInterceptor = new VcrInterceptor();
+        if (vcrInterceptor.isEnabled()) {
+            template.getInterceptors().add(0, vcrInterceptor);
+        }
+    }
+
+    /**
+     * Adds the conditional GET cache when crowdar.api.cache.enabled is true, after the VcrInterceptor so replayed
+     * calls are not revalidated and before the retry layer so every attempt is a conditional request.
+     */
+    private static void addConditionalCacheInterceptor(RestTemplate template) {
+        for (ClientHttpRequestInterceptor interceptor : template.getInterceptors()) {
+            if (interceptor instanceof ConditionalCacheInterceptor) {
+                return;
+            }
+        }
+        ConditionalCacheInterceptor cacheInterceptor = new ConditionalCacheInterceptor();
+        if (cacheInterceptor.isEnabled()) {
+            template.getInterceptors().add(cacheInterceptor);
+        }
+    }
+
+    /**
+     * Adds the retry and circuit breaker layer when crowdar.api.retry.max or crowdar.api.circuit.failureThreshold
+     * are configured. It is left out otherwise, interceptors make RestTemplate buffer every request body.
+     */
+    private static void addResilienceInterceptor(RestTemplate template) {
+        for (ClientHttpRequestInterceptor interceptor : template.getInterceptors()) {
+            if (interceptor instanceof ResilienceInterceptor) {
+                return;
+            }
+        }
+        ResilienceInterceptor resilienceInterceptor = new ResilienceInterceptor();
+        if (resilienceInterceptor.isEnabled()) {
+            template.getInterceptors().add(resilienceInterceptor);
+        }
     }
 
-    private HttpHeaders getRequestHeaders() {
-        return headers;
+    private HttpHeaders createRequestHeaders(Map<String, String> headers) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setAll(headers);
+        return requestHeaders;
     }
 
     public Response get(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
-        return createHTTPMethod(url, type, body, urlParameters, headers, HttpMethod.GET);
+        return createHTTPMethod(this.getURIWithURLQueryParameters(url, urlParameters), type, body, headers, HttpMethod.GET);
+    }
+
+    public Response get(URI uri, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
+        return createHTTPMethod(this.getURIWithURLQueryParameters(uri, urlParameters), type, body, headers, HttpMethod.GET);
     }
 
     public Response post(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
-        return createHTTPMethod(url, type, body, urlParameters, headers, HttpMethod.POST);
+        return createHTTPMethod(this.getURIWithURLQueryParameters(url, urlParameters), type, body, headers, HttpMethod.POST);
+    }
+
+    public Response post(URI uri, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
+        return createHTTPMethod(this.getURIWithURLQueryParameters(uri, urlParameters), type, body, headers, HttpMethod.POST);
     }
 
     public Response put(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
-        return createHTTPMethod(url, type, body, urlParameters, headers, HttpMethod.PUT);
+        return createHTTPMethod(this.getURIWithURLQueryParameters(url, urlParameters), type, body, headers, HttpMethod.PUT);
+    }
+
+    public Response put(URI uri, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
+        return createHTTPMethod(this.getURIWithURLQueryParameters(uri, urlParameters), type, body, headers, HttpMethod.PUT);
     }
 
     public Response patch(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
-        return createHTTPMethod(url, type, body, urlParameters, headers, HttpMethod.PATCH);
+        return createHTTPMethod(this.getURIWithURLQueryParameters(url, urlParameters), type, body, headers, HttpMethod.PATCH);
+    }
+
+    public Response patch(URI uri, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
+        return createHTTPMethod(this.getURIWithURLQueryParameters(uri, urlParameters), type, body, headers, HttpMethod.PATCH);
     }
 
     public Response delete(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
-        return createHTTPMethod(url, type, body, urlParameters, headers, HttpMethod.DELETE);
+        return createHTTPMethod(this.getURIWithURLQueryParameters(url, urlParameters), type, body, headers, HttpMethod.DELETE);
+    }
+
+    public Response delete(URI uri, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers) {
+        return createHTTPMethod(this.getURIWithURLQueryParameters(uri, urlParameters), type, body, headers, HttpMethod.DELETE);
     }
 
-    private Response createHTTPMethod(String url, Class<?> type, Object body, Map<String, String> urlParameters, Map<String, String> headers, HttpMethod httpMethod) {
-        URI uri = this.getURIWithURLQueryParameters(url, urlParameters);
-        setRequestHeaders(headers);
-        HttpEntity<Object> request = this.createRequest(body, getRequestHeaders());
+    /**
+     * Sends the file as the request body, streamed from disk.
+     */
+    public Response upload(String url, HttpMethod httpMethod, Path file, Class<?> type, Map<String, String> urlParameters, Map<String, String> headers) {
+        return fileTransfer.upload(httpMethod, this.getURIWithURLQueryParameters(url, urlParameters), file, headers, type);
+    }
+
+    /**
+     * Sends a multipart/form-data body, its files are streamed from disk.
+     */
+    public Response upload(String url, HttpMethod httpMethod, Multipart multipart, Class<?> type, Map<String, String> urlParameters, Map<String, String> headers) {
+        return fileTransfer.upload(httpMethod, this.getURIWithURLQueryParameters(url, urlParameters), multipart, headers, type);
+    }
+
+    /**
+     * Writes the response body to the target file as it is received. The response body is a DownloadedFile.
+     *
+     * @param checksum expected digest of the file, can be null
+     */
+    public Response download(String url, Path target, FileChecksum checksum, Map<String, String> urlParameters, Map<String, String> headers) {
+        return fileTransfer.download(this.getURIWithURLQueryParameters(url, urlParameters), target, checksum, headers);
+    }
+
+    private Response createHTTPMethod(URI uri, Class<?> type, Object body, Map<String, String> headers, HttpMethod httpMethod) {
+        HttpEntity<Object> request = this.createRequest(body, createRequestHeaders(headers));
+        ResponseMetrics metrics = ResponseMetrics.start();
+        int statusCode = -1;
         try {
             ResponseEntity response = getRestTemplate().exchange(uri, httpMethod, request, type);
+            metrics.finish();
+            statusCode = response.getStatusCode().value();
             Logger.getLogger(this.getClass()).info(">>>Response: " + response.toString());
-            return this.createResponse(response.getStatusCode().value(), "OK", response.getBody(), createResponseHeaders(response.getHeaders()));
+            Logger.getLogger(this.getClass()).debug(">>>Response metrics: " + metrics);
+            return this.createResponse(statusCode, "OK", response.getBody(), createResponseHeaders(response.getHeaders()), metrics);
         } catch (HttpClientErrorException | HttpServerErrorException e) {
+            metrics.finish();
+            statusCode = e.getStatusCode().value();
             Logger.getLogger(this.getClass()).info(">>>Error Response: " + e.toString());
             Object responseBody = JsonUtils.deserialize(e.getResponseBodyAsString(), type);
-            return this.createResponse(e.getStatusCode().value(), e.getLocalizedMessage(), responseBody, createResponseHeaders(e.getResponseHeaders()));
+            return this.createResponse(statusCode, e.getLocalizedMessage(), responseBody, createResponseHeaders(e.getResponseHeaders()), metrics);
+        } finally {
+            metrics.finish();
+            ResponseMetrics.end();
+            EndpointMetrics.record(httpMethod.name(), uri, statusCode, metrics);
         }
     }
 
@@ -113,6 +230,9 @@ public class RestClient {
     }
 
     private HttpEntity<Object> createRequest(Object body, HttpHeaders headers) {
+        if (body instanceof EncodedBody) {
+            return this.createRequest((EncodedBody) body, headers);
+        }
         if (body.toString().isEmpty()) {
             return new HttpEntity<>(headers);
         } else {
@@ -120,8 +240,21 @@ public class RestClient {
         }
     }
 
-    private Response createResponse(int statusCode, String message, Object response, Headers headers) {
-        return new Response(statusCode, message, response, headers);
+    private HttpEntity<Object> createRequest(EncodedBody body, HttpHeaders headers) {
+        if (body.isEmpty()) {
+            return new HttpEntity<>(headers);
+        }
+        if (body.getBytes() == null) {
+            return new HttpEntity<>(body.getValue(), headers);
+        }
+        if (headers.getContentType() == null) {
+            headers.setContentType(body.getContentType());
+        }
+        return new HttpEntity<Object>(body.getBytes(), headers);
+    }
+
+    private Response createResponse(int statusCode, String message, Object response, Headers headers, ResponseMetrics metrics) {
+        return new Response(statusCode, message, response, headers, metrics);
     }
 
     private Map<String, List<String>> getHeaders(HttpHeaders headers) {
@@ -144,6 +277,16 @@ public class RestClient {
         return builder.build().encode().toUri();
     }
 
+    /**
+     * The already parsed uri is sent as it is when there are no url parameters to add.
+     */
+    private URI getURIWithURLQueryParameters(URI uri, Map<String, String> urlParameters) {
+        if (urlParameters.isEmpty())
+            return uri;
+
+        return this.getURIWithURLQueryParameters(uri.toString(), urlParameters);
+    }
+
     private URI getUriFromUrl(String url) {
         URI uri;
         try {
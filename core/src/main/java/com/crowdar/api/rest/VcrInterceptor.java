@@ -0,0 +1,117 @@
+package com.crowdar.api.rest;
+
+import com.crowdar.core.Constants;
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record/replay of RestClient calls.
+ * RECORD makes the real calls and stores every exchange in the Cassette, REPLAY answers from the cassette
+ * without any network I/O. A replay miss fails the call or, with the NETWORK miss policy, goes to the real backend.
+ * Must be the first interceptor of the RestTemplate, so replayed calls skip the rest of the chain.
+ */
+public class VcrInterceptor implements ClientHttpRequestInterceptor {
+
+    public enum Mode {
+        OFF, RECORD, REPLAY
+    }
+
+    public enum MissPolicy {
+        FAIL, NETWORK
+    }
+
+    private static final List<String> NOT_RECORDED_HEADERS = Arrays.asList(HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING);
+
+    private final Mode mode;
+    private final Cassette.Matching matching;
+    private final MissPolicy missPolicy;
+    private final String cassettePath;
+
+    public VcrInterceptor() {
+        this(Mode.valueOf(Constants.getApiVcrMode().toUpperCase()), Constants.getApiVcrCassette(),
+                Cassette.Matching.valueOf(Constants.getApiVcrMatching().toUpperCase()),
+                MissPolicy.valueOf(Constants.getApiVcrMissPolicy().toUpperCase()));
+    }
+
+    public VcrInterceptor(Mode mode, String cassettePath, Cassette.Matching matching, MissPolicy missPolicy) {
+        this.mode = mode;
+        this.cassettePath = cassettePath;
+        this.matching = matching;
+        this.missPolicy = missPolicy;
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (mode == Mode.REPLAY) {
+            return replay(request, body, execution);
+        }
+        if (mode == Mode.RECORD) {
+            return record(request, body, execution);
+        }
+        return execution.execute(request, body);
+    }
+
+    private ClientHttpResponse replay(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Cassette.Recording recording = getCassette().find(request.getMethod(), request.getURI(), body, matching);
+        if (recording != null) {
+            HttpHeaders headers = new HttpHeaders();
+            if (recording.getHeaders() != null) {
+                headers.putAll(recording.getHeaders());
+            }
+            return new BufferedClientHttpResponse(recording.getStatus(), headers, recording.getBodyBytes());
+        }
+        if (missPolicy == MissPolicy.NETWORK) {
+            Logger.getLogger(this.getClass()).warn(">>>No recording for " + request.getMethod() + " " + request.getURI() + ", calling the backend");
+            return execution.execute(request, body);
+        }
+        throw new IOException("No recording for " + request.getMethod() + " " + request.getURI() + " in cassette " + getCassette().getPath());
+    }
+
+    private ClientHttpResponse record(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        byte[] responseBody;
+        int statusCode;
+        HttpHeaders headers = new HttpHeaders();
+        try (ClientHttpResponse response = execution.execute(request, body)) {
+            statusCode = response.getRawStatusCode();
+            for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+                if (!isNotRecorded(header.getKey())) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+            }
+            InputStream responseStream = response.getBody();
+            responseBody = responseStream == null ? new byte[0] : StreamUtils.copyToByteArray(responseStream);
+        }
+        getCassette().record(new Cassette.Recording(request.getMethod(), request.getURI(), body, statusCode, new LinkedHashMap<>(headers), responseBody));
+        return new BufferedClientHttpResponse(statusCode, headers, responseBody);
+    }
+
+    private boolean isNotRecorded(String header) {
+        for (String notRecorded : NOT_RECORDED_HEADERS) {
+            if (notRecorded.equalsIgnoreCase(header)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Cassette getCassette() {
+        return Cassette.get(cassettePath, mode == Mode.RECORD);
+    }
+}
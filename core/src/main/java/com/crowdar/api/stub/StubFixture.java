@@ -0,0 +1,159 @@
+package com.crowdar.api.stub;
+
+import com.crowdar.api.rest.APIManager;
+import com.crowdar.api.rest.Request;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pair of a request fixture (jsons/request/name.json) and the response fixture with the same name
+ * (jsons/response/name.json). A request matches when it has the method of the fixture, when it sets one, its path matches
+ * the url and endpoint of the fixture and it has every url parameter of the fixture. {{placeholders}} match any value.
+ */
+public class StubFixture {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{[^}]*}}");
+
+    private final String name;
+    private final String method;
+    private final Pattern path;
+    private final int specificity;
+    private final Map<String, String> urlParameters;
+    private final byte[] response;
+
+    /**
+     * @param method http method of the fixture, null or empty to match any method
+     */
+    StubFixture(String name, String method, Request request, byte[] response) {
+        this.name = name;
+        this.method = method == null || method.trim().isEmpty() ? null : method.trim().toUpperCase();
+        String url = request.getUrl() == null || request.getUrl().isEmpty() ? APIManager.BASE_URL : request.getUrl();
+        String fixturePath = getPath(nullToEmpty(url) + nullToEmpty(request.getEndpoint()));
+        this.path = compile(fixturePath);
+        this.specificity = PLACEHOLDER.matcher(fixturePath).replaceAll("").length();
+        this.urlParameters = new HashMap<>(request.getUrlParameters());
+        this.response = response;
+    }
+
+    /**
+     * @param method requested http method
+     * @param uri    requested uri, with its raw path and query
+     */
+    public boolean matches(String method, URI uri) {
+        if (this.method != null && !this.method.equalsIgnoreCase(method)) {
+            return false;
+        }
+        String requestPath = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (!path.matcher(requestPath).matches()) {
+            return false;
+        }
+        if (urlParameters.isEmpty()) {
+            return true;
+        }
+        Map<String, String> query = parseQuery(uri.getRawQuery());
+        for (Map.Entry<String, String> parameter : urlParameters.entrySet()) {
+            String value = query.get(parameter.getKey());
+            if (value == null) {
+                return false;
+            }
+            String expected = parameter.getValue();
+            if (expected != null && !PLACEHOLDER.matcher(expected).find() && !expected.equals(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return method of the fixture, null when it matches any method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return literal characters of the fixture path, fixtures with more literal characters are tried first
+     */
+    public int getSpecificity() {
+        return specificity;
+    }
+
+    public byte[] getResponse() {
+        return response;
+    }
+
+    private static Pattern compile(String fixturePath) {
+        StringBuilder regex = new StringBuilder();
+        Matcher placeholder = PLACEHOLDER.matcher(fixturePath);
+        int literalStart = 0;
+        while (placeholder.find()) {
+            regex.append(Pattern.quote(fixturePath.substring(literalStart, placeholder.start()))).append("[^/]*");
+            literalStart = placeholder.end();
+        }
+        regex.append(Pattern.quote(fixturePath.substring(literalStart))).append("/?");
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @return path of the fixture url, without scheme, host and query. A leading placeholder is taken as the base url
+     */
+    private static String getPath(String url) {
+        String path = url;
+        int scheme = path.indexOf("://");
+        Matcher leadingPlaceholder = PLACEHOLDER.matcher(path);
+        if (leadingPlaceholder.lookingAt()) {
+            path = path.substring(leadingPlaceholder.end());
+        } else if (scheme >= 0) {
+            int pathStart = path.indexOf('/', scheme + 3);
+            path = pathStart < 0 ? "/" : path.substring(pathStart);
+        }
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String key = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            query.put(decode(key), decode(value));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,209 @@
+package com.crowdar.api.stub;
+
+import com.crowdar.api.rest.Request;
+import com.crowdar.api.rest.RequestTemplate;
+import com.crowdar.core.Constants;
+import com.crowdar.core.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process http server answering with the response fixtures of src/test/resources/jsons/response
+ * for the requests described by the request fixture with the same name in src/test/resources/jsons/request.
+ * Requests are handled by a pool of crowdar.api.stub.threads threads. The injected latency is scheduled instead of slept,
+ * so slow responses do not hold a thread. Unmatched requests get a 404.
+ */
+public class StubServer {
+
+    private static final String METHOD_ATTRIBUTE = "method";
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final byte[] NOT_FOUND = "{\"error\":\"no stub fixture matches the request\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static StubServer sharedServer;
+
+    private final List<StubFixture> fixtures;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final AtomicLong requests = new AtomicLong();
+    private final ScheduledThreadPoolExecutor executor;
+    private final HttpServer server;
+
+    /**
+     * @param jsonsFolder         folder with the request and response fixture folders
+     * @param port                port to listen, 0 for any free port
+     * @param threads             threads that handle the requests
+     * @param latencyMillis       delay added to every response
+     * @param latencyJitterMillis max random delay added on top of latencyMillis
+     */
+    public StubServer(Path jsonsFolder, int port, int threads, long latencyMillis, long latencyJitterMillis) throws IOException {
+        this.fixtures = loadFixtures(jsonsFolder);
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stub-server-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts the server shared by the scenarios, configured with the crowdar.api.stub properties.
+     * Later calls return the running server.
+     *
+     * @throws IllegalStateException when crowdar.api.stub.port is not a fixed port, base.api.url is read once and can not follow a free port
+     */
+    public static synchronized StubServer startShared() throws IOException {
+        if (sharedServer == null) {
+            int port = Constants.getApiStubPort();
+            if (port <= 0) {
+                throw new IllegalStateException("crowdar.api.stub.port must be a fixed port, base.api.url has to point to http://localhost:<port>");
+            }
+            Path jsonsFolder = Paths.get(System.getProperty("user.dir"), "src", "test", "resources", "jsons");
+            StubServer server = new StubServer(jsonsFolder, port, Constants.getApiStubThreads(),
+                    Constants.getApiStubLatencyMillis(), Constants.getApiStubLatencyJitterMillis());
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            sharedServer = server;
+        }
+        return sharedServer;
+    }
+
+    public static synchronized StubServer getShared() {
+        return sharedServer;
+    }
+
+    public static synchronized void stopShared() {
+        if (sharedServer != null) {
+            sharedServer.stop();
+            sharedServer = null;
+        }
+    }
+
+    public void start() {
+        server.start();
+        Logger.getLogger(StubServer.class).info(">>>Stub server listening on " + getUrl() + " with " + fixtures.size() + " fixtures");
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public List<StubFixture> getFixtures() {
+        return Collections.unmodifiableList(fixtures);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) != -1) {
+                // the request body is drained so the connection can be reused
+            }
+        }
+        StubFixture fixture = find(exchange);
+        long delay = latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            executor.schedule(() -> respond(exchange, fixture), delay, TimeUnit.MILLISECONDS);
+        } else {
+            respond(exchange, fixture);
+        }
+    }
+
+    private StubFixture find(HttpExchange exchange) {
+        for (StubFixture fixture : fixtures) {
+            if (fixture.matches(exchange.getRequestMethod(), exchange.getRequestURI())) {
+                return fixture;
+            }
+        }
+        return null;
+    }
+
+    private void respond(HttpExchange exchange, StubFixture fixture) {
+        try {
+            byte[] response = fixture == null ? NOT_FOUND : fixture.getResponse();
+            exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            exchange.sendResponseHeaders(fixture == null ? 404 : 200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (IOException e) {
+            Logger.getLogger(StubServer.class).warn(">>>Stub response for " + exchange.getRequestURI() + " failed: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<StubFixture> loadFixtures(Path jsonsFolder) throws IOException {
+        Path requestFolder = jsonsFolder.resolve("request");
+        Path responseFolder = jsonsFolder.resolve("response");
+        List<StubFixture> fixtures = new ArrayList<>();
+        if (!Files.isDirectory(requestFolder)) {
+            Logger.getLogger(StubServer.class).warn(">>>Stub server without fixtures, " + requestFolder + " does not exist");
+            return fixtures;
+        }
+        List<Path> requestFiles;
+        try (Stream<Path> files = Files.walk(requestFolder)) {
+            requestFiles = files.filter(file -> file.toString().endsWith(".json")).collect(Collectors.toList());
+        }
+        for (Path requestFile : requestFiles) {
+            String name = requestFolder.relativize(requestFile).toString().replace(File.separatorChar, '/');
+            Path responseFile = responseFolder.resolve(requestFolder.relativize(requestFile).toString());
+            if (!Files.exists(responseFile)) {
+                continue;
+            }
+            JsonNode fixture = JsonUtils.deserialize(RequestTemplate.get(requestFile).render(Collections.<String, String>emptyMap()), JsonNode.class);
+            if (fixture == null || !fixture.isObject()) {
+                Logger.getLogger(StubServer.class).warn(">>>Stub fixture " + name + " skipped, the request can not be read");
+                continue;
+            }
+            JsonNode method = ((ObjectNode) fixture).remove(METHOD_ATTRIBUTE);
+            Request request = JsonUtils.convert(fixture, Request.class);
+            fixtures.add(new StubFixture(name.substring(0, name.length() - ".json".length()), method == null ? null : method.asText(),
+                    request, Files.readAllBytes(responseFile)));
+        }
+        fixtures.sort(Comparator.comparingInt(StubFixture::getSpecificity).reversed()
+                .thenComparing(fixture -> fixture.getMethod() == null));
+        return fixtures;
+    }
+}
@@ -0,0 +1,29 @@
+package com.crowdar.bdd;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import com.crowdar.api.rest.EndpointMetrics;
+import com.crowdar.core.Constants;
+import com.crowdar.database.ConnectionPool;
+import com.crowdar.database.QueryMetrics;
+
+/**
+ * Writes the execution reports collected during the suite when it finishes.
+ * It is registered by the lippia runners, other runners can add it as a testng listener.
+ */
+public class SuiteReportListener implements ISuiteListener {
+
+    @Override
+    public void onStart(ISuite suite) {
+        QueryMetrics.setSlowQueryLog(Constants.getDbSlowQueryThresholdMillis(), Constants.getDbSlowQueryLogSize());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        EndpointMetrics.report();
+        QueryMetrics.report();
+        ConnectionPool.report();
+        ConnectionPool.closeAll();
+    }
+}
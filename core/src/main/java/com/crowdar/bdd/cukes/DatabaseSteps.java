@@ -0,0 +1,42 @@
+package com.crowdar.bdd.cukes;
+
+import com.crowdar.database.DatabaseManager;
+import com.crowdar.database.QueryWait;
+import com.crowdar.database.QueryWaitResult;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Then;
+import org.testng.Assert;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Steps waiting for rows written by the system under test, found with the glue com/crowdar/bdd/cukes.
+ */
+public class DatabaseSteps {
+
+    @Then("la query \"(.*)\" en la base ([^ ]*)(?: con los parametros ([^ ]*))? devuelve resultados antes de (\\d+) ms")
+    @And("query \"(.*)\" on database '([^']*)'(?: with the parameters '([^']*)')? returns rows within (\\d+) ms")
+    public void waitForRows(String query, String database, String inputParameters, long timeoutMillis) throws SQLException {
+        verify(QueryWait.on(database, query).parameters(getParameters(inputParameters)).timeout(timeoutMillis).await());
+    }
+
+    @Then("la query \"(.*)\" en la base ([^ ]*)(?: con los parametros ([^ ]*))? devuelve el valor (.*) antes de (\\d+) ms")
+    @And("query \"(.*)\" on database '([^']*)'(?: with the parameters '([^']*)')? returns the value '([^']*)' within (\\d+) ms")
+    public void waitForValue(String query, String database, String inputParameters, String value, long timeoutMillis) throws SQLException {
+        verify(QueryWait.on(database, query).parameters(getParameters(inputParameters)).untilValue(value).timeout(timeoutMillis).await());
+    }
+
+    /**
+     * The matching rows become the last result of the thread, for the database extractors.
+     */
+    private void verify(QueryWaitResult result) {
+        DatabaseManager.setLastResponse(result.getRows());
+        Assert.assertTrue(result.isMatched(), result.toString());
+    }
+
+    private Map<String, String> getParameters(String inputParameters) {
+        return inputParameters == null ? Collections.<String, String>emptyMap() : DatabaseManager.parseSemicolonSeparatedVars(inputParameters);
+    }
+}
@@ -3,12 +3,16 @@ package com.crowdar.bdd.cukes;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
+import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
 import cucumber.api.testng.CucumberFeatureWrapper;
 import cucumber.api.testng.PickleEventWrapper;
 import cucumber.api.testng.TestNGCucumberRunner;
 
+import com.crowdar.bdd.SuiteReportListener;
+
+@Listeners(SuiteReportListener.class)
 public class TestNGParallelRunner {
     private TestNGCucumberRunner testNGCucumberRunner;
 
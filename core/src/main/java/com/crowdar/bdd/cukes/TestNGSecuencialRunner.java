@@ -2,10 +2,14 @@ package com.crowdar.bdd.cukes;
 
 
 import org.openqa.selenium.WebDriver;
+import org.testng.annotations.Listeners;
+
+import com.crowdar.bdd.SuiteReportListener;
 
 import cucumber.api.testng.AbstractTestNGCucumberTests;
 
 
+@Listeners(SuiteReportListener.class)
 public class TestNGSecuencialRunner extends AbstractTestNGCucumberTests {
     protected WebDriver driver;
     protected String BASE_URL = "http://crowdar.co.uk/";
@@ -11,6 +11,8 @@ import io.cucumber.java.After;
 import io.cucumber.java.AfterStep;
 import io.cucumber.java.Before;
 import io.cucumber.java.BeforeStep;
+import io.lippia.api.extractor.xml.XmlDocuments;
+import io.lippia.api.service.TokenManager;
 import org.apache.log4j.Logger;
 
 public class BasicHook {
@@ -26,6 +28,8 @@ public class BasicHook {
 		DriverManager.dismissCurrentDriver();
 		Injector.cleanThreadCache();
 		ActionManager.clean();
+		TokenManager.clean();
+		XmlDocuments.clean();
 	}
 
 
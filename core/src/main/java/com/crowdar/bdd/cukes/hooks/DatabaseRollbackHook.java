@@ -0,0 +1,29 @@
+package com.crowdar.bdd.cukes.hooks;
+
+import java.sql.SQLException;
+
+import com.crowdar.database.ScenarioTransaction;
+
+import io.cucumber.core.api.Scenario;
+import io.cucumber.java.After;
+import io.cucumber.java.Before;
+
+public class DatabaseRollbackHook {
+
+	/**
+	 * Every DatabaseUtils call of the scenario uses the same connection, inside a transaction.
+	 */
+	@Before("@DatabaseRollback")
+	public void beforeScenario(Scenario scenario) {
+		ScenarioTransaction.begin();
+	}
+
+	/**
+	 * Undoes what the scenario wrote in the databases, instead of deleting its fixtures.
+	 */
+	@After("@DatabaseRollback")
+	public void afterScenario(Scenario scenario) throws SQLException {
+		ScenarioTransaction.rollback();
+	}
+
+}
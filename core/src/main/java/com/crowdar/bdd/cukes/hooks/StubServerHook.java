@@ -0,0 +1,21 @@
+package com.crowdar.bdd.cukes.hooks;
+
+import java.io.IOException;
+
+import com.crowdar.api.stub.StubServer;
+
+import io.cucumber.core.api.Scenario;
+import io.cucumber.java.Before;
+
+public class StubServerHook {
+
+	/**
+	 * Starts the stub server answering with the jsons fixtures, once for the whole execution.
+	 * base.api.url has to point to the configured crowdar.api.stub.port.
+	 */
+	@Before("@StubServer")
+	public void beforeScenario(Scenario scenario) throws IOException {
+		StubServer.startShared();
+	}
+
+}
@@ -11,6 +11,46 @@ public class Constants {
     private static final long WAIT_FOR_APP_START = 70;
     private static final long WAIT_FOR_FILE_DOWNLOAD = 10;
 
+    private static final int API_POOL_MAX_PER_ROUTE = 5;
+    private static final int API_POOL_MAX_TOTAL = 10;
+    private static final int API_RETRY_MAX = 0;
+    private static final String API_RETRY_STATUS_CODES = "502,503,504";
+    private static final long API_RETRY_BACKOFF_BASE_MILLIS = 200;
+    private static final long API_RETRY_BACKOFF_MAX_MILLIS = 5000;
+    private static final double API_RETRY_BUDGET = 0.2;
+    private static final int API_CIRCUIT_FAILURE_THRESHOLD = 0;
+    private static final long API_CIRCUIT_OPEN_MILLIS = 30000;
+    private static final String API_VCR_MODE = "OFF";
+    private static final String API_VCR_CASSETTE = "src/test/resources/cassettes/api.cassette";
+    private static final String API_VCR_MATCHING = "STRICT";
+    private static final String API_VCR_MISS_POLICY = "FAIL";
+    private static final int API_STUB_PORT = 8089;
+    private static final int API_STUB_THREADS = 10;
+    private static final long API_STUB_LATENCY_MILLIS = 0;
+    private static final long API_STUB_LATENCY_JITTER_MILLIS = 0;
+    private static final long API_TOKEN_TTL_SECONDS = 300;
+    private static final long API_TOKEN_REFRESH_BEFORE_SECONDS = 30;
+    private static final String API_TOKEN_HEADER = "Authorization";
+    private static final String API_TOKEN_PREFIX = "Bearer";
+    private static final boolean API_COMPRESSION_RESPONSE = true;
+    private static final int API_COMPRESSION_REQUEST_THRESHOLD = 0;
+    private static final boolean API_CACHE_ENABLED = false;
+    private static final int API_CACHE_MAX_ENTRIES = 256;
+    private static final int API_XML_STREAM_THRESHOLD = 262144;
+    private static final int API_VALIDATION_PARALLEL_THRESHOLD = 10000;
+    private static final int DB_POOL_MIN_SIZE = 0;
+    private static final int DB_POOL_MAX_SIZE = 10;
+    private static final long DB_POOL_MAX_WAIT_MILLIS = 30000;
+    private static final long DB_POOL_LEAK_DETECTION_MILLIS = 0;
+    private static final int DB_STATEMENT_CACHE_SIZE = 32;
+    private static final int DB_FETCH_SIZE = 500;
+    private static final int DB_BULK_BATCH_SIZE = 1000;
+    private static final long DB_WAIT_TIMEOUT_MILLIS = 30000;
+    private static final long DB_WAIT_POLL_INTERVAL_MILLIS = 100;
+    private static final long DB_WAIT_MAX_POLL_INTERVAL_MILLIS = 2000;
+    private static final long DB_SLOW_QUERY_THRESHOLD_MILLIS = 1000;
+    private static final int DB_SLOW_QUERY_LOG_SIZE = 50;
+
     private static final String SIMPLE_DATE_FORMAT = "MM/dd/yyyy";
     private static final String COMPLETE_DATE_PATTERN = "MM/dd/yyyy hh:mm aa";
 
@@ -64,4 +104,199 @@ public class Constants {
         return (override != null && !override.isEmpty()) ? override : COMPLETE_DATE_PATTERN;
     }
 
+    public static int getApiPoolMaxPerRoute() {
+        String override = PropertyManager.getProperty("crowdar.api.pool.maxPerRoute");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_POOL_MAX_PER_ROUTE;
+    }
+
+    public static int getApiPoolMaxTotal() {
+        String override = PropertyManager.getProperty("crowdar.api.pool.maxTotal");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_POOL_MAX_TOTAL;
+    }
+
+    public static int getApiRetryMax() {
+        String override = PropertyManager.getProperty("crowdar.api.retry.max");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_RETRY_MAX;
+    }
+
+    public static String getApiRetryStatusCodes() {
+        String override = PropertyManager.getProperty("crowdar.api.retry.statusCodes");
+        return (override != null && !override.isEmpty()) ? override : API_RETRY_STATUS_CODES;
+    }
+
+    public static long getApiRetryBackoffBaseMillis() {
+        String override = PropertyManager.getProperty("crowdar.api.retry.backoff.base");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_RETRY_BACKOFF_BASE_MILLIS;
+    }
+
+    public static long getApiRetryBackoffMaxMillis() {
+        String override = PropertyManager.getProperty("crowdar.api.retry.backoff.max");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_RETRY_BACKOFF_MAX_MILLIS;
+    }
+
+    public static double getApiRetryBudget() {
+        String override = PropertyManager.getProperty("crowdar.api.retry.budget");
+        return (override != null && !override.isEmpty()) ? Double.valueOf(override) : API_RETRY_BUDGET;
+    }
+
+    public static int getApiCircuitFailureThreshold() {
+        String override = PropertyManager.getProperty("crowdar.api.circuit.failureThreshold");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_CIRCUIT_FAILURE_THRESHOLD;
+    }
+
+    public static long getApiCircuitOpenMillis() {
+        String override = PropertyManager.getProperty("crowdar.api.circuit.openMillis");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_CIRCUIT_OPEN_MILLIS;
+    }
+
+    public static String getApiVcrMode() {
+        String override = PropertyManager.getProperty("crowdar.api.vcr.mode");
+        return (override != null && !override.isEmpty()) ? override : API_VCR_MODE;
+    }
+
+    public static String getApiVcrCassette() {
+        String override = PropertyManager.getProperty("crowdar.api.vcr.cassette");
+        return (override != null && !override.isEmpty()) ? override : API_VCR_CASSETTE;
+    }
+
+    public static String getApiVcrMatching() {
+        String override = PropertyManager.getProperty("crowdar.api.vcr.matching");
+        return (override != null && !override.isEmpty()) ? override : API_VCR_MATCHING;
+    }
+
+    public static String getApiVcrMissPolicy() {
+        String override = PropertyManager.getProperty("crowdar.api.vcr.missPolicy");
+        return (override != null && !override.isEmpty()) ? override : API_VCR_MISS_POLICY;
+    }
+
+    public static int getApiStubPort() {
+        String override = PropertyManager.getProperty("crowdar.api.stub.port");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_STUB_PORT;
+    }
+
+    public static int getApiStubThreads() {
+        String override = PropertyManager.getProperty("crowdar.api.stub.threads");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_STUB_THREADS;
+    }
+
+    public static long getApiStubLatencyMillis() {
+        String override = PropertyManager.getProperty("crowdar.api.stub.latency");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_STUB_LATENCY_MILLIS;
+    }
+
+    public static long getApiStubLatencyJitterMillis() {
+        String override = PropertyManager.getProperty("crowdar.api.stub.latency.jitter");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_STUB_LATENCY_JITTER_MILLIS;
+    }
+
+    public static long getApiTokenTtlSeconds() {
+        String override = PropertyManager.getProperty("crowdar.api.token.ttl");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_TOKEN_TTL_SECONDS;
+    }
+
+    public static long getApiTokenRefreshBeforeSeconds() {
+        String override = PropertyManager.getProperty("crowdar.api.token.refreshBefore");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : API_TOKEN_REFRESH_BEFORE_SECONDS;
+    }
+
+    public static String getApiTokenHeader() {
+        String override = PropertyManager.getProperty("crowdar.api.token.header");
+        return (override != null && !override.isEmpty()) ? override : API_TOKEN_HEADER;
+    }
+
+    public static String getApiTokenPrefix() {
+        String override = PropertyManager.getProperty("crowdar.api.token.prefix");
+        return override != null ? override.trim() : API_TOKEN_PREFIX;
+    }
+
+    public static boolean isApiCompressionResponse() {
+        String override = PropertyManager.getProperty("crowdar.api.compression.response");
+        return (override != null && !override.isEmpty()) ? Boolean.valueOf(override) : API_COMPRESSION_RESPONSE;
+    }
+
+    public static int getApiCompressionRequestThreshold() {
+        String override = PropertyManager.getProperty("crowdar.api.compression.requestThreshold");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_COMPRESSION_REQUEST_THRESHOLD;
+    }
+
+    public static boolean isApiCacheEnabled() {
+        String override = PropertyManager.getProperty("crowdar.api.cache.enabled");
+        return (override != null && !override.isEmpty()) ? Boolean.valueOf(override) : API_CACHE_ENABLED;
+    }
+
+    public static int getApiCacheMaxEntries() {
+        String override = PropertyManager.getProperty("crowdar.api.cache.maxEntries");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_CACHE_MAX_ENTRIES;
+    }
+
+    public static int getApiXmlStreamThreshold() {
+        String override = PropertyManager.getProperty("crowdar.api.xml.streamThreshold");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_XML_STREAM_THRESHOLD;
+    }
+
+    public static int getApiValidationParallelThreshold() {
+        String override = PropertyManager.getProperty("crowdar.api.validation.parallelThreshold");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : API_VALIDATION_PARALLEL_THRESHOLD;
+    }
+
+    public static int getDbPoolMinSize() {
+        String override = PropertyManager.getProperty("db.pool.minSize");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_POOL_MIN_SIZE;
+    }
+
+    public static int getDbPoolMaxSize() {
+        String override = PropertyManager.getProperty("db.pool.maxSize");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_POOL_MAX_SIZE;
+    }
+
+    public static long getDbPoolMaxWaitMillis() {
+        String override = PropertyManager.getProperty("db.pool.maxWait");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_POOL_MAX_WAIT_MILLIS;
+    }
+
+    public static long getDbPoolLeakDetectionMillis() {
+        String override = PropertyManager.getProperty("db.pool.leakDetection");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_POOL_LEAK_DETECTION_MILLIS;
+    }
+
+    public static int getDbStatementCacheSize() {
+        String override = PropertyManager.getProperty("db.statementCache.size");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_STATEMENT_CACHE_SIZE;
+    }
+
+    public static int getDbFetchSize() {
+        String override = PropertyManager.getProperty("db.fetchSize");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_FETCH_SIZE;
+    }
+
+    public static int getDbBulkBatchSize() {
+        String override = PropertyManager.getProperty("db.bulk.batchSize");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_BULK_BATCH_SIZE;
+    }
+
+    public static long getDbWaitTimeoutMillis() {
+        String override = PropertyManager.getProperty("db.wait.timeout");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_WAIT_TIMEOUT_MILLIS;
+    }
+
+    public static long getDbWaitPollIntervalMillis() {
+        String override = PropertyManager.getProperty("db.wait.pollInterval");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_WAIT_POLL_INTERVAL_MILLIS;
+    }
+
+    public static long getDbWaitMaxPollIntervalMillis() {
+        String override = PropertyManager.getProperty("db.wait.maxPollInterval");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_WAIT_MAX_POLL_INTERVAL_MILLIS;
+    }
+
+    public static long getDbSlowQueryThresholdMillis() {
+        String override = PropertyManager.getProperty("db.slowQuery.threshold");
+        return (override != null && !override.isEmpty()) ? Long.valueOf(override) : DB_SLOW_QUERY_THRESHOLD_MILLIS;
+    }
+
+    public static int getDbSlowQueryLogSize() {
+        String override = PropertyManager.getProperty("db.slowQuery.logSize");
+        return (override != null && !override.isEmpty()) ? Integer.valueOf(override) : DB_SLOW_QUERY_LOG_SIZE;
+    }
+
 }
@@ -39,6 +39,13 @@ public class JsonUtils {
         return null;
     }
 
+    /**
+     * Converts an already parsed json tree (or any bean) to the type, without writing it to text.
+     */
+    public static <T> T convert(Object json, Class<T> type) {
+        return getMapper().convertValue(json, type);
+    }
+
     public static String serialize(Object json) {
         String jsonResult = null;
         try {
@@ -49,6 +56,16 @@ public class JsonUtils {
         return jsonResult;
     }
 
+    public static byte[] serializeAsBytes(Object json) {
+        byte[] jsonResult = null;
+        try {
+            jsonResult = getMapper().writeValueAsBytes(json);
+        } catch (IOException e) {
+            Logger.getLogger(JsonUtils.class).error(e.getMessage());
+        }
+        return jsonResult;
+    }
+
     public static boolean isJSONValid(Object jsonObject) {
         String jsonString = serialize(jsonObject);
         return isJSONValid(jsonString);
@@ -77,8 +94,18 @@ public class JsonUtils {
      * @return String (json)
      */
     public static String getJSONFromFile(String fileName) throws IOException {
-        String path = System.getProperty("user.dir").concat(File.separator).concat("src").concat(File.separator).concat("test").concat(File.separator).concat("resources").concat(File.separator).concat("jsons").concat(File.separator).concat(fileName).concat(".json");
-        return getJSONFromPath(path);
+        return getJSONFromPath(getJSONFilePath(fileName));
+    }
+
+    /**
+     * Given a Json file name relative to src/test/resources/jsons (without extension),
+     * this method returns its absolute location
+     *
+     * @param fileName
+     * @return String (path)
+     */
+    public static String getJSONFilePath(String fileName) {
+        return System.getProperty("user.dir").concat(File.separator).concat("src").concat(File.separator).concat("test").concat(File.separator).concat("resources").concat(File.separator).concat("jsons").concat(File.separator).concat(fileName).concat(".json");
     }
 
     public static String getJSONFromPath(String path) throws IOException {
@@ -104,10 +131,10 @@ public class JsonUtils {
      * @return String (json)
      */
     public static String getJSON(Path file) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        FileInputStream fis = new FileInputStream(file.toFile());
-        JsonNode rootNode = mapper.readTree(fis);
-        return rootNode.toString();
+        try (FileInputStream fis = new FileInputStream(file.toFile())) {
+            JsonNode rootNode = getMapper().readTree(fis);
+            return rootNode.toString();
+        }
     }
 
     public static String prettyJsonToCompact(String prettyJson) {
@@ -0,0 +1,46 @@
+package com.crowdar.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows inserted by a {@link BulkLoader} and how long it took.
+ */
+public class BulkLoadResult {
+
+    private final String table;
+    private final long rows;
+    private final int batches;
+    private final long nanos;
+
+    BulkLoadResult(String table, long rows, int batches, long nanos) {
+        this.table = table;
+        this.rows = rows;
+        this.batches = batches;
+        this.nanos = nanos;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public double getRowsPerSecond() {
+        return nanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d rows into %s in %d batches, %d ms (%.0f rows/s)", rows, table, batches, getMillis(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,486 @@
+package com.crowdar.database;
+
+import com.crowdar.core.Constants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Inserts many rows into one table with jdbc batches inside a single transaction, so a failed load leaves the table as it was.
+ * Rows come from maps or are streamed from a csv file (first line with the column names) or a json file (array of objects),
+ * so fixtures of any size are loaded without reading them whole.
+ * <pre>
+ * BulkLoader.into("shop", "products").fromCsv(Paths.get("fixtures/products.csv")).execute();
+ * </pre>
+ * Loads into independent tables can run in parallel, each on its own connection, with {@link #executeAll}.
+ */
+public class BulkLoader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DataSource dataSource;
+    private final String database;
+    private final String table;
+    private List<String> columns;
+    private int batchSize;
+    private SourceFactory source;
+
+    private BulkLoader(DataSource dataSource, String database, String table) {
+        this.dataSource = dataSource;
+        this.database = database;
+        this.table = table;
+    }
+
+    /**
+     * @param database name of the database, its connections are taken from its {@link ConnectionPool}
+     */
+    public static BulkLoader into(String database, String table) {
+        return new BulkLoader(ConnectionPool.get(database), database, table);
+    }
+
+    public static BulkLoader into(DataSource dataSource, String table) {
+        String database = dataSource instanceof ConnectionPool ? ((ConnectionPool) dataSource).getName() : dataSource.toString();
+        return new BulkLoader(dataSource, database, table);
+    }
+
+    /**
+     * Columns to insert; by default the keys of the first row or the header of the file.
+     */
+    public BulkLoader columns(String... columns) {
+        this.columns = Arrays.asList(columns);
+        return this;
+    }
+
+    /**
+     * Rows sent in each executeBatch. Default: db.bulk.batchSize.
+     */
+    public BulkLoader batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public BulkLoader rows(Iterable<? extends Map<String, ?>> rows) {
+        this.source = () -> new MapSource(rows.iterator());
+        return this;
+    }
+
+    /**
+     * Comma separated values in UTF-8, with the column names in the first line. Empty unquoted values are inserted as null.
+     */
+    public BulkLoader fromCsv(Path file) {
+        return fromCsv(file, ',');
+    }
+
+    public BulkLoader fromCsv(Path file, char separator) {
+        this.source = () -> new CsvSource(Files.newBufferedReader(file, StandardCharsets.UTF_8), separator);
+        return this;
+    }
+
+    /**
+     * Json array of objects, one per row. Nested objects and arrays are inserted as their json text.
+     */
+    public BulkLoader fromJson(Path file) {
+        this.source = () -> new JsonSource(MAPPER.getFactory().createParser(file.toFile()));
+        return this;
+    }
+
+    /**
+     * @throws SQLException when a batch fails, after rolling back the rows already sent
+     */
+    public BulkLoadResult execute() throws SQLException {
+        if (source == null) {
+            throw new IllegalStateException("No rows to load into " + table);
+        }
+        int size = batchSize > 0 ? batchSize : Constants.getDbBulkBatchSize();
+        long start = System.nanoTime();
+        long rows = 0;
+        long bytes = 0;
+        int batches = 0;
+        try (RowSource rowSource = source.open();
+             Connection connection = dataSource.getConnection()) {
+            List<String> insertColumns = columns != null ? columns : rowSource.getColumns();
+            if (insertColumns == null || insertColumns.isEmpty()) {
+                return new BulkLoadResult(table, 0, 0, System.nanoTime() - start);
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            String insert = getInsert(insertColumns);
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                int[] types = getTypes(connection, insertColumns);
+                while (rowSource.hasNext()) {
+                    Object[] values = rowSource.next(insertColumns);
+                    for (int i = 0; i < values.length; i++) {
+                        bind(statement, i + 1, values[i], types[i]);
+                        bytes += QueryMetrics.estimateBytes(values[i]);
+                    }
+                    statement.addBatch();
+                    if (++rows % size == 0) {
+                        executeBatch(statement, insert, size, bytes);
+                        bytes = 0;
+                        batches++;
+                    }
+                }
+                if (rows % size != 0) {
+                    executeBatch(statement, insert, rows % size, bytes);
+                    batches++;
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read the rows to load into " + table + ": " + e.getMessage(), e);
+        }
+        BulkLoadResult result = new BulkLoadResult(table, rows, batches, System.nanoTime() - start);
+        Logger.getLogger(BulkLoader.class).info(">>> " + result);
+        return result;
+    }
+
+    private void executeBatch(PreparedStatement statement, String insert, long rows, long bytes) throws SQLException {
+        QueryMetrics.Execution execution = QueryMetrics.start(database, insert);
+        try {
+            statement.executeBatch();
+            execution.finish(rows, bytes);
+        } catch (SQLException | RuntimeException e) {
+            execution.failed();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the loads in parallel, each on its own connection. Only for independent tables, as the loads do not wait
+     * for each other and their transactions commit separately.
+     *
+     * @return the results in the order of the loaders
+     */
+    public static List<BulkLoadResult> executeAll(int threads, BulkLoader... loaders) throws SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, loaders.length)));
+        try {
+            List<Future<BulkLoadResult>> futures = new ArrayList<>();
+            for (BulkLoader loader : loaders) {
+                futures.add(executor.submit(loader::execute));
+            }
+            List<BulkLoadResult> results = new ArrayList<>();
+            for (Future<BulkLoadResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String getInsert(List<String> insertColumns) {
+        StringBuilder insert = new StringBuilder("insert into ").append(table).append(" (").append(String.join(", ", insertColumns)).append(") values (");
+        for (int i = 0; i < insertColumns.size(); i++) {
+            insert.append(i == 0 ? "?" : ", ?");
+        }
+        return insert.append(')').toString();
+    }
+
+    /**
+     * @return the jdbc type of each column, Types.OTHER when the driver does not describe them
+     */
+    private int[] getTypes(Connection connection, List<String> insertColumns) {
+        int[] types = new int[insertColumns.size()];
+        Arrays.fill(types, Types.OTHER);
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select " + String.join(", ", insertColumns) + " from " + table + " where 1 = 0")) {
+            ResultSetMetaData metaData = resultSet == null ? null : resultSet.getMetaData();
+            if (metaData != null && metaData.getColumnCount() == types.length) {
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = metaData.getColumnType(i + 1);
+                }
+            }
+        } catch (SQLException e) {
+            Logger.getLogger(BulkLoader.class).debug("Column types of " + table + " not available: " + e.getMessage());
+        }
+        return types;
+    }
+
+    /**
+     * Text values, as read from files, are converted by the driver to the type of the column.
+     */
+    private static void bind(PreparedStatement statement, int index, Object value, int type) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, type == Types.OTHER ? Types.NULL : type);
+        } else if (value instanceof String && type != Types.OTHER && type != Types.VARCHAR && type != Types.CHAR) {
+            statement.setObject(index, value, type);
+        } else {
+            SqlTemplate.setParameter(statement, index, value);
+        }
+    }
+
+    private interface SourceFactory {
+        RowSource open() throws IOException;
+    }
+
+    private interface RowSource extends Closeable {
+        List<String> getColumns() throws IOException;
+
+        boolean hasNext() throws IOException;
+
+        Object[] next(List<String> columns) throws IOException;
+    }
+
+    private static class MapSource implements RowSource {
+        private final Iterator<? extends Map<String, ?>> rows;
+        private Map<String, ?> first;
+
+        MapSource(Iterator<? extends Map<String, ?>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<String> getColumns() {
+            if (first == null && rows.hasNext()) {
+                first = rows.next();
+            }
+            return first == null ? null : new ArrayList<>(first.keySet());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first != null || rows.hasNext();
+        }
+
+        @Override
+        public Object[] next(List<String> columns) {
+            Map<String, ?> row = first != null ? first : rows.next();
+            first = null;
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(columns.get(i));
+            }
+            return values;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CsvSource implements RowSource {
+        private final BufferedReader reader;
+        private final char separator;
+        private List<String> header;
+        private List<String> next;
+
+        CsvSource(BufferedReader reader, char separator) {
+            this.reader = reader;
+            this.separator = separator;
+        }
+
+        @Override
+        public List<String> getColumns() throws IOException {
+            if (header == null) {
+                header = readRecord();
+                if (header != null) {
+                    for (int i = 0; i < header.size(); i++) {
+                        header.set(i, header.get(i) == null ? "" : header.get(i).trim());
+                    }
+                }
+            }
+            return header;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            getColumns();
+            while (next == null) {
+                next = readRecord();
+                if (next == null) {
+                    return false;
+                }
+                if (next.size() == 1 && next.get(0) == null) {
+                    next = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Object[] next(List<String> columns) throws IOException {
+            hasNext();
+            List<String> record = next;
+            next = null;
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                int index = header.indexOf(columns.get(i));
+                if (index < 0) {
+                    throw new IOException("Column " + columns.get(i) + " is not in the csv header " + header);
+                }
+                values[i] = index < record.size() ? record.get(index) : null;
+            }
+            return values;
+        }
+
+        /**
+         * @return the fields of the next record, null for an empty unquoted field, or null at the end of the file
+         */
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (c >= 0) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == separator) {
+                    fields.add(toValue(field, wasQuoted));
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(toValue(field, wasQuoted));
+            return fields;
+        }
+
+        private static String toValue(StringBuilder field, boolean quoted) {
+            return field.length() == 0 && !quoted ? null : field.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static class JsonSource implements RowSource {
+        private final JsonParser parser;
+        private JsonNode next;
+        private boolean started;
+
+        JsonSource(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public List<String> getColumns() throws IOException {
+            if (!hasNext()) {
+                return null;
+            }
+            List<String> names = new ArrayList<>();
+            next.fieldNames().forEachRemaining(names::add);
+            return names;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            if (next != null) {
+                return true;
+            }
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("The json fixture must be an array of objects");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("The json fixture must be an array of objects, found " + token);
+            }
+            next = parser.readValueAsTree();
+            return true;
+        }
+
+        @Override
+        public Object[] next(List<String> columns) throws IOException {
+            hasNext();
+            JsonNode row = next;
+            next = null;
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                JsonNode value = row.get(columns.get(i));
+                if (value == null || value.isNull()) {
+                    values[i] = null;
+                } else if (value.isTextual()) {
+                    values[i] = value.textValue();
+                } else if (value.isNumber()) {
+                    values[i] = value.numberValue();
+                } else if (value.isBoolean()) {
+                    values[i] = value.booleanValue();
+                } else {
+                    values[i] = value.toString();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.crowdar.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Query result stored by column. Column labels are kept once, columns whose values are all Integer, Long, Short,
+ * Double or Boolean are kept in primitive arrays and the rest in one Object array per column, instead of a map per row.
+ * It is a read only List of row maps, so it can be kept as {@link DatabaseManager#setLastResponse}; the row maps are views
+ * over the columns and the values keep the type the driver returned. {@link #toRows()} copies it to modifiable maps.
+ */
+public final class ColumnarResult extends AbstractList<Map<String, Object>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Columns columns;
+    private final ColumnData[] data;
+    private final int size;
+
+    private ColumnarResult(Columns columns, ColumnData[] data, int size) {
+        this.columns = columns;
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Reads every row of the result set, naming the columns by their column name as DatabaseUtils always did.
+     */
+    public static ColumnarResult read(ResultSet resultSet) throws SQLException {
+        return read(resultSet, false);
+    }
+
+    public static ColumnarResult read(ResultSet resultSet, boolean labels) throws SQLException {
+        Columns columns = Columns.of(resultSet.getMetaData(), labels);
+        ColumnData[] data = new ColumnData[columns.size()];
+        int capacity = INITIAL_CAPACITY;
+        for (int column = 0; column < data.length; column++) {
+            data[column] = new EmptyColumn(capacity);
+        }
+        int rows = 0;
+        while (resultSet.next()) {
+            if (rows == capacity) {
+                capacity *= 2;
+                for (int column = 0; column < data.length; column++) {
+                    data[column] = data[column].grow(capacity);
+                }
+            }
+            for (int column = 0; column < data.length; column++) {
+                data[column] = data[column].set(rows, resultSet.getObject(column + 1));
+            }
+            rows++;
+        }
+        for (int column = 0; column < data.length; column++) {
+            data[column] = data[column].grow(rows);
+        }
+        return new ColumnarResult(columns, data, rows);
+    }
+
+    public Columns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return a modifiable copy with a HashMap per row, as the rows used to be returned
+     */
+    public List<Map<String, Object>> toRows() {
+        int[] distinct = columns.getDistinctIndexes();
+        List<Map<String, Object>> rows = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            Map<String, Object> map = new HashMap<>(distinct.length * 4 / 3 + 1);
+            for (int column : distinct) {
+                map.put(columns.getLabel(column), data[column].get(row));
+            }
+            rows.add(map);
+        }
+        return rows;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int row) {
+        checkRow(row);
+        return new RowMap(row);
+    }
+
+    public Object get(int row, int column) {
+        checkRow(row);
+        return data[column].get(row);
+    }
+
+    public Object get(int row, String column) {
+        return get(row, columns.indexOf(column));
+    }
+
+    /**
+     * @return the value as an int without boxing it when the column is stored as ints
+     * @throws NullPointerException when the value is null
+     */
+    public int getInt(int row, int column) {
+        checkRow(row);
+        if (data[column] instanceof IntColumn) {
+            return ((IntColumn) data[column]).getInt(row);
+        }
+        return ((Number) data[column].get(row)).intValue();
+    }
+
+    /**
+     * @return approximate size of the values, from the width of the primitive columns and {@link QueryMetrics#estimateBytes} of the rest
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (ColumnData column : data) {
+            bytes += column.estimateBytes(size);
+        }
+        return bytes;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of a result of " + size + " rows");
+        }
+    }
+
+    /**
+     * Values of one column, set in row order. set returns the column itself, or an Object column holding the previous
+     * values when the value does not fit.
+     */
+    private abstract static class ColumnData {
+        final BitSet nulls = new BitSet();
+        int capacity;
+
+        ColumnData(int capacity) {
+            this.capacity = capacity;
+        }
+
+        abstract Object get(int row);
+
+        abstract boolean accepts(Object value);
+
+        abstract void store(int row, Object value);
+
+        abstract void resize(int capacity);
+
+        abstract long estimateBytes(int size);
+
+        ColumnData set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return this;
+            }
+            if (!accepts(value)) {
+                Object[] values = new Object[capacity];
+                for (int previous = 0; previous < row; previous++) {
+                    values[previous] = get(previous);
+                }
+                return new ObjectColumn(values).set(row, value);
+            }
+            store(row, value);
+            return this;
+        }
+
+        ColumnData grow(int capacity) {
+            resize(capacity);
+            this.capacity = capacity;
+            return this;
+        }
+    }
+
+    /**
+     * Column with only nulls so far, replaced by the column that fits its first value.
+     */
+    private static final class EmptyColumn extends ColumnData {
+
+        EmptyColumn(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            return null;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return false;
+        }
+
+        @Override
+        void store(int row, Object value) {
+        }
+
+        @Override
+        void resize(int capacity) {
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 0;
+        }
+
+        @Override
+        ColumnData set(int row, Object value) {
+            if (value == null) {
+                return this;
+            }
+            ColumnData column;
+            if (value instanceof Integer) {
+                column = new IntColumn(capacity);
+            } else if (value instanceof Long) {
+                column = new LongColumn(capacity);
+            } else if (value instanceof Short) {
+                column = new ShortColumn(capacity);
+            } else if (value instanceof Double) {
+                column = new DoubleColumn(capacity);
+            } else if (value instanceof Boolean) {
+                column = new BooleanColumn(capacity);
+            } else {
+                column = new ObjectColumn(new Object[capacity]);
+            }
+            column.nulls.set(0, row);
+            return column.set(row, value);
+        }
+    }
+
+    private static final class IntColumn extends ColumnData {
+        private int[] values;
+
+        IntColumn(int capacity) {
+            super(capacity);
+            this.values = new int[capacity];
+        }
+
+        int getInt(int row) {
+            if (nulls.get(row)) {
+                throw new NullPointerException("Null value at row " + row);
+            }
+            return values[row];
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 4L * (size - nulls.cardinality());
+        }
+    }
+
+    private static final class LongColumn extends ColumnData {
+        private long[] values;
+
+        LongColumn(int capacity) {
+            super(capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 8L * (size - nulls.cardinality());
+        }
+    }
+
+    private static final class ShortColumn extends ColumnData {
+        private short[] values;
+
+        ShortColumn(int capacity) {
+            super(capacity);
+            this.values = new short[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Short;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values[row] = (Short) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 2L * (size - nulls.cardinality());
+        }
+    }
+
+    private static final class DoubleColumn extends ColumnData {
+        private double[] values;
+
+        DoubleColumn(int capacity) {
+            super(capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 8L * (size - nulls.cardinality());
+        }
+    }
+
+    private static final class BooleanColumn extends ColumnData {
+        private final BitSet values = new BitSet();
+
+        BooleanColumn(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values.get(row);
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        void resize(int capacity) {
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return 1L * (size - nulls.cardinality());
+        }
+    }
+
+    private static final class ObjectColumn extends ColumnData {
+        private Object[] values;
+
+        ObjectColumn(Object[] values) {
+            super(values.length);
+            this.values = values;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            long bytes = 0;
+            for (int row = 0; row < size; row++) {
+                bytes += QueryMetrics.estimateBytes(values[row]);
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Read only view of one row as a map of column label to value.
+     */
+    private final class RowMap extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowMap(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String) || !columns.contains((String) key)) {
+                return null;
+            }
+            return data[columns.indexOf((String) key)].get(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && columns.contains((String) key);
+        }
+
+        @Override
+        public int size() {
+            return columns.getDistinctIndexes().length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            final int[] distinct = columns.getDistinctIndexes();
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < distinct.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = distinct[next++];
+                            return new SimpleImmutableEntry<>(columns.getLabel(current), data[current].get(row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return distinct.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.crowdar.database;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column labels and jdbc types of a result, read once from the metadata and shared by all its rows.
+ * Lookups by label are case insensitive, as most databases change the case of unquoted names. When several columns
+ * have the same label the last one wins, as it did when each row was put in a HashMap.
+ */
+public final class Columns {
+
+    private final String[] labels;
+    private final int[] types;
+    private final Map<String, Integer> indexes;
+    private final int[] distinct;
+
+    Columns(String[] labels, int[] types) {
+        this.labels = labels;
+        this.types = types;
+        this.indexes = new HashMap<>(labels.length * 2);
+        for (int i = 0; i < labels.length; i++) {
+            indexes.put(labels[i].toLowerCase(Locale.ROOT), i);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            indexes.put(labels[i], i);
+        }
+        int count = 0;
+        int[] distinct = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            if (indexes.get(labels[i]) == i) {
+                distinct[count++] = i;
+            }
+        }
+        this.distinct = count == labels.length ? distinct : Arrays.copyOf(distinct, count);
+    }
+
+    static Columns of(ResultSetMetaData metaData) throws SQLException {
+        return of(metaData, true);
+    }
+
+    /**
+     * @param labels true to name the columns by their label (the alias of the query), false by the column name
+     */
+    static Columns of(ResultSetMetaData metaData, boolean labels) throws SQLException {
+        int count = metaData.getColumnCount();
+        String[] names = new String[count];
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            String label = labels ? metaData.getColumnLabel(i + 1) : null;
+            names[i] = (label == null || label.isEmpty() ? metaData.getColumnName(i + 1) : label).intern();
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        return new Columns(names, types);
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    /**
+     * @return the 0 based index of the column
+     * @throws IllegalArgumentException when there is no column with that label
+     */
+    public int indexOf(String label) {
+        Integer index = indexes.get(label);
+        if (index == null) {
+            index = indexes.get(label.toLowerCase(Locale.ROOT));
+        }
+        if (index == null) {
+            throw new IllegalArgumentException("No column " + label + " in " + Arrays.toString(labels));
+        }
+        return index;
+    }
+
+    public boolean contains(String label) {
+        return indexes.containsKey(label) || indexes.containsKey(label.toLowerCase(Locale.ROOT));
+    }
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @return the java.sql.Types of the column
+     */
+    public int getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * @return the index of each distinct label, skipping the columns hidden by a later one with the same label
+     */
+    int[] getDistinctIndexes() {
+        return distinct;
+    }
+
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(labels);
+    }
+}
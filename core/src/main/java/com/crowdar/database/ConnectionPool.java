@@ -0,0 +1,399 @@
+package com.crowdar.database;
+
+import com.crowdar.core.Constants;
+import com.crowdar.core.PropertyManager;
+import com.crowdar.util.LatencyHistogram;
+import org.apache.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of jdbc connections to one database, created per database name from the db.connection.* and db.pool.* properties.
+ * Connections are handed out as proxies whose close returns the physical connection to the pool, rolling back what was
+ * left uncommitted. A connection idle for more than a second is validated before being handed out again.
+ * prepareStatement(sql) reuses the statements already prepared on the physical connection, up to db.statementCache.size.
+ * When db.pool.leakDetection is set, connections held longer are logged with the stack trace that took them.
+ * While a {@link ScenarioTransaction} is active the thread always gets the same connection, whose work is rolled back
+ * at the end of the scenario.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final long VALIDATION_IDLE_MILLIS = 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final String REPORT_HEADER = String.format("%-30s %7s %7s %7s %9s %9s %9s %9s %9s %9s %9s",
+            "DATABASE", "OPEN", "ACTIVE", "IDLE", "LEASES", "WAIT_AVG", "WAIT_MAX", "LEASE_AVG", "LEASE_MAX", "STMT_HIT", "STMT_MISS");
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final long maxWaitMillis;
+    private final long leakDetectionMillis;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private final LatencyHistogram leaseTime = new LatencyHistogram();
+    private volatile boolean filled;
+    private volatile boolean closed;
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String name, String url, String user, String password, int minSize, int maxSize, long maxWaitMillis, long leakDetectionMillis,
+                          int statementCacheSize) {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = Math.min(minSize, maxSize);
+        this.maxWaitMillis = maxWaitMillis;
+        this.leakDetectionMillis = leakDetectionMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * @return the pool of the database, created the first time it is requested
+     */
+    public static ConnectionPool get(String database) {
+        return POOLS.computeIfAbsent(database, name -> new ConnectionPool(name,
+                PropertyManager.getProperty("db.connection.string") + name,
+                PropertyManager.getProperty("db.connection.user"),
+                PropertyManager.getProperty("db.connection.pass"),
+                Constants.getDbPoolMinSize(), Constants.getDbPoolMaxSize(), Constants.getDbPoolMaxWaitMillis(), Constants.getDbPoolLeakDetectionMillis(),
+                Constants.getDbStatementCacheSize()));
+    }
+
+    public static Map<String, ConnectionPool> getAll() {
+        return new TreeMap<>(POOLS);
+    }
+
+    /**
+     * Closes the idle connections of every pool; connections still leased are closed when they are returned.
+     */
+    public static void closeAll() {
+        for (ConnectionPool pool : POOLS.values()) {
+            pool.close();
+        }
+        POOLS.clear();
+    }
+
+    /**
+     * Logs one line per database with the open, active and idle connections, the leases and the wait and lease times.
+     */
+    public static void report() {
+        if (POOLS.isEmpty()) {
+            return;
+        }
+        StringBuilder report = new StringBuilder(">>> Database connection pools").append(System.lineSeparator()).append(REPORT_HEADER);
+        for (ConnectionPool pool : getAll().values()) {
+            report.append(System.lineSeparator()).append(String.format("%-30s %7d %7d %7d %9d %9.1f %9d %9.1f %9d %9d %9d",
+                    pool.name, pool.getOpenConnections(), pool.getActiveConnections(), pool.getIdleConnections(), pool.getLeases(),
+                    pool.connectionWait.getMeanMillis(), pool.connectionWait.getMaxMillis(), pool.leaseTime.getMeanMillis(), pool.leaseTime.getMaxMillis(),
+                    pool.getStatementCacheHits(), pool.getStatementCacheMisses()));
+        }
+        Logger.getLogger(ConnectionPool.class).info(report.toString());
+    }
+
+    /**
+     * Waits up to db.pool.maxWait for a free connection.
+     * Inside a {@link ScenarioTransaction} the connection of the scenario is returned instead.
+     *
+     * @throws SQLTransientConnectionException when every connection is still leased after the wait
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        ScenarioTransaction transaction = ScenarioTransaction.current();
+        return transaction != null ? transaction.getConnection(this) : lease();
+    }
+
+    /**
+     * @return a connection of the pool, ignoring the scenario transaction of the thread
+     */
+    Connection lease() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool of " + name + " is closed");
+        }
+        long start = System.nanoTime();
+        detectLeaks();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No connection to " + name + " available after " + maxWaitMillis + " ms, "
+                        + leases.size() + " in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to " + name, e);
+        }
+        try {
+            PooledConnection connection = take();
+            if (!filled) {
+                fill();
+            }
+            connectionWait.record(System.nanoTime() - start);
+            leased.incrementAndGet();
+            Lease lease = new Lease(connection);
+            leases.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connection pool of " + name + " uses the configured user");
+    }
+
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection connection : idle) {
+            connection.close();
+            open.decrementAndGet();
+        }
+        idle.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return physical connections open, leased or idle
+     */
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    public int getActiveConnections() {
+        return leases.size();
+    }
+
+    public synchronized int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return connections handed out since the pool was created
+     */
+    public long getLeases() {
+        return leased.get();
+    }
+
+    /**
+     * @return prepareStatement calls answered with a statement already prepared on the connection
+     */
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    public LatencyHistogram getConnectionWait() {
+        return connectionWait;
+    }
+
+    public LatencyHistogram getLeaseTime() {
+        return leaseTime;
+    }
+
+    private PooledConnection take() throws SQLException {
+        while (true) {
+            PooledConnection connection;
+            synchronized (this) {
+                connection = idle.pollFirst();
+            }
+            if (connection == null) {
+                return openConnection();
+            }
+            if (!connection.isIdleLongerThan(VALIDATION_IDLE_MILLIS) || connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return connection;
+            }
+            Logger.getLogger(ConnectionPool.class).warn(">>> Discarding broken connection to " + name);
+            connection.close();
+            open.decrementAndGet();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        PooledConnection connection = new PooledConnection(DriverManager.getConnection(url, user, password), statementCacheSize,
+                statementHits, statementMisses);
+        open.incrementAndGet();
+        return connection;
+    }
+
+    private void fill() {
+        filled = true;
+        try {
+            while (open.get() < minSize) {
+                PooledConnection connection = openConnection();
+                synchronized (this) {
+                    idle.addLast(connection);
+                }
+            }
+        } catch (SQLException e) {
+            Logger.getLogger(ConnectionPool.class).warn(">>> Could not open the minimum connections to " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void release(Lease lease) {
+        leases.remove(lease);
+        leaseTime.record(System.nanoTime() - lease.start);
+        PooledConnection connection = lease.connection;
+        try {
+            connection.reset();
+            synchronized (this) {
+                if (!closed) {
+                    idle.addFirst(connection);
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            Logger.getLogger(ConnectionPool.class).warn(">>> Discarding connection to " + name + " that could not be reset: " + e.getMessage());
+        } finally {
+            permits.release();
+        }
+        connection.close();
+        open.decrementAndGet();
+    }
+
+    private void detectLeaks() {
+        if (leakDetectionMillis <= 0) {
+            return;
+        }
+        long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(leakDetectionMillis);
+        for (Lease lease : leases) {
+            if (!lease.reported && lease.start < limit) {
+                lease.reported = true;
+                Logger.getLogger(ConnectionPool.class).warn(">>> Connection to " + name + " leased by " + lease.thread + " for more than "
+                        + leakDetectionMillis + " ms without being closed", lease.origin);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException(getClass().getName() + " does not wrap " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool " + name + " [open=" + getOpenConnections() + ", active=" + getActiveConnections() + "]";
+    }
+
+    /**
+     * Connection handed out by the pool; calls go to the physical connection until it is closed.
+     */
+    private class Lease implements InvocationHandler {
+        private final PooledConnection connection;
+        private final Connection proxy;
+        private final long start = System.nanoTime();
+        private final String thread = Thread.currentThread().getName();
+        private final Exception origin = leakDetectionMillis > 0 ? new Exception("Connection leased here") : null;
+        private volatile boolean reported;
+        private volatile boolean returned;
+
+        Lease(PooledConnection connection) {
+            this.connection = connection;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned) {
+                            return null;
+                        }
+                        returned = true;
+                    }
+                    release(this);
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled connection to " + name;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection to " + name + " was already returned to the pool");
+            }
+            if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                return connection.prepareStatement((String) args[0]);
+            }
+            try {
+                return method.invoke(connection.getPhysical(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.github.jknack.handlebars.TagType;
 import com.github.jknack.handlebars.Template;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +14,10 @@ public class DatabaseManager {
 
     private static final ThreadLocal<List<Map<String, Object>>> LAST_RESULT = new ThreadLocal<>();
 
+    /**
+     * @param lastResult rows read for the database extractors; a {@link ColumnarResult}, as read by
+     *                   {@link com.crowdar.util.DatabaseUtils#executeColumnarQuery}, is read without a map per row
+     */
     public static void setLastResponse(List<Map<String, Object>> lastResult) {
     	LAST_RESULT.set(lastResult);
     }
@@ -40,4 +45,20 @@ public class DatabaseManager {
     	
         return query;
     }
+
+    /**
+     * @param varsString key=value pairs separated by ;
+     * @return the values by key, to bind them as parameters of a {@link SqlTemplate} instead of replacing them in the sql
+     */
+    public static Map<String, String> parseSemicolonSeparatedVars(String varsString) {
+        Map<String, String> vars = new LinkedHashMap<>();
+        for (String varString : varsString.split(";")) {
+            if (varString.trim().isEmpty()) {
+                continue;
+            }
+            String[] var = varString.split("=", 2);
+            vars.put(var[0].trim(), var.length > 1 ? var[1] : "");
+        }
+        return vars;
+    }
 }
@@ -0,0 +1,194 @@
+package com.crowdar.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Physical connection kept by a {@link ConnectionPool} between leases, with its cache of prepared statements.
+ * A cached statement is handed out as a proxy whose close clears its parameters, restores the max rows, fetch size,
+ * query timeout and fetch direction it was prepared with, and keeps it for the next prepareStatement of the same sql,
+ * so the database does not parse and plan it again. Max rows is restored first, as drivers (h2) reject a fetch size
+ * above the max rows.
+ */
+class PooledConnection {
+
+    private final Connection physical;
+    private final Map<String, CachedStatement> statements;
+    private final AtomicLong statementHits;
+    private final AtomicLong statementMisses;
+    private long lastReleased = System.currentTimeMillis();
+
+    PooledConnection(Connection physical, final int statementCacheSize, AtomicLong statementHits, AtomicLong statementMisses) {
+        this.physical = physical;
+        this.statementHits = statementHits;
+        this.statementMisses = statementMisses;
+        this.statements = statementCacheSize <= 0 ? null : new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    /**
+     * @return the cached statement of the sql, or a new one when the cache is disabled or the cached one is still open
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (statements == null) {
+            return physical.prepareStatement(sql);
+        }
+        CachedStatement cached = statements.get(sql);
+        if (cached == null) {
+            statementMisses.incrementAndGet();
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+        } else if (cached.inUse) {
+            statementMisses.incrementAndGet();
+            return physical.prepareStatement(sql);
+        } else {
+            statementHits.incrementAndGet();
+        }
+        return cached.lease();
+    }
+
+    boolean isIdleLongerThan(long millis) {
+        return System.currentTimeMillis() - lastReleased > millis;
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return !physical.isClosed() && physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rolls back what the lease left uncommitted so the next lease starts clean.
+     */
+    void reset() throws SQLException {
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+        lastReleased = System.currentTimeMillis();
+    }
+
+    void close() {
+        if (statements != null) {
+            for (CachedStatement statement : new ArrayList<>(statements.values())) {
+                statement.evict();
+            }
+            statements.clear();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            // the connection is discarded anyway
+        }
+    }
+
+    private static class CachedStatement {
+        private static final List<String> KEPT_OPEN = Arrays.asList("close", "isClosed");
+
+        private final PreparedStatement statement;
+        private final int fetchSize;
+        private final int maxRows;
+        private final int queryTimeout;
+        private final int fetchDirection;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchDirection = statement.getFetchDirection();
+        }
+
+        PreparedStatement lease() {
+            inUse = true;
+            final boolean[] closed = {false};
+            return (PreparedStatement) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (KEPT_OPEN.contains(name)) {
+                            if ("isClosed".equals(name)) {
+                                return closed[0];
+                            }
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                release();
+                            }
+                            return null;
+                        }
+                        if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        }
+                        if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        }
+                        if (closed[0]) {
+                            throw new SQLException("Statement already closed");
+                        }
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private void release() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                statement.close();
+            } else {
+                statement.clearParameters();
+                statement.clearWarnings();
+                if (statement.getMaxRows() != maxRows) {
+                    statement.setMaxRows(maxRows);
+                }
+                if (statement.getFetchSize() != fetchSize) {
+                    statement.setFetchSize(fetchSize);
+                }
+                if (statement.getQueryTimeout() != queryTimeout) {
+                    statement.setQueryTimeout(queryTimeout);
+                }
+                if (statement.getFetchDirection() != fetchDirection) {
+                    statement.setFetchDirection(fetchDirection);
+                }
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // the statement is discarded anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.crowdar.database;
+
+import com.crowdar.core.Constants;
+import com.crowdar.util.LatencyHistogram;
+import org.apache.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates the queries run through DatabaseUtils, {@link RowCursor}, {@link QueryWait} and {@link BulkLoader} per database
+ * and query template, and reports them at suite end sorted by the total time spent, followed by the slowest executions.
+ * Queries without {{key}} placeholders are grouped with their quoted and numeric literals as ?, so
+ * where id = 1 and where id = 2 share the same template.
+ * The slow query log is set through {@link #setSlowQueryLog}, which SuiteReportListener does with db.slowQuery.threshold
+ * and db.slowQuery.logSize when the suite starts; without it, those properties are read on the first recorded query.
+ */
+public class QueryMetrics {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.?])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int REPORT_QUERY_LENGTH = 80;
+    private static final String REPORT_HEADER = String.format("%-20s %-80s %7s %7s %9s %9s %9s %9s %9s %10s %12s",
+            "DATABASE", "QUERY", "EXECS", "ERRORS", "TOTAL_MS", "AVG_MS", "P95_MS", "MAX_MS", "WAIT_AVG", "ROWS", "BYTES");
+
+    private static final Map<String, Map<String, QueryMetrics>> DATABASES = new ConcurrentHashMap<>();
+    private static final PriorityQueue<SlowQuery> SLOW_QUERIES = new PriorityQueue<>(Comparator.comparingLong(SlowQuery::getNanos));
+    private static volatile long slowQueryThresholdMillis;
+    private static volatile int slowQueryLogSize;
+    private static volatile boolean slowQueryLogSet;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private long errors;
+    private long rows;
+    private long bytes;
+
+    /**
+     * Starts timing a query; the time until {@link Execution#connected} is the connection wait, the rest the query time.
+     *
+     * @param query the template or sql as written by the caller
+     */
+    public static Execution start(String database, String query) {
+        return new Execution(database, query);
+    }
+
+    /**
+     * @return the metrics of each query template of the database, sorted by template
+     */
+    public static Map<String, QueryMetrics> get(String database) {
+        Map<String, QueryMetrics> queries = DATABASES.get(database);
+        return queries == null ? new TreeMap<>() : new TreeMap<>(queries);
+    }
+
+    public static Map<String, Map<String, QueryMetrics>> getAll() {
+        Map<String, Map<String, QueryMetrics>> all = new TreeMap<>();
+        for (String database : DATABASES.keySet()) {
+            all.put(database, get(database));
+        }
+        return all;
+    }
+
+    /**
+     * @return the slowest executions above the slow query threshold, the slowest first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        List<SlowQuery> slowQueries;
+        synchronized (SLOW_QUERIES) {
+            slowQueries = new ArrayList<>(SLOW_QUERIES);
+        }
+        slowQueries.sort(Comparator.comparingLong(SlowQuery::getNanos).reversed());
+        return slowQueries;
+    }
+
+    /**
+     * @param thresholdMillis executions that take at least this long are logged and kept, 0 disables the slow query log
+     * @param size slowest executions kept for the report
+     */
+    public static void setSlowQueryLog(long thresholdMillis, int size) {
+        slowQueryThresholdMillis = thresholdMillis;
+        slowQueryLogSize = size;
+        slowQueryLogSet = true;
+    }
+
+    private static void loadSlowQueryLog() {
+        synchronized (SLOW_QUERIES) {
+            if (slowQueryLogSet) {
+                return;
+            }
+            try {
+                setSlowQueryLog(Constants.getDbSlowQueryThresholdMillis(), Constants.getDbSlowQueryLogSize());
+            } catch (RuntimeException e) {
+                Logger.getLogger(QueryMetrics.class).warn("Slow query log disabled, db.slowQuery properties could not be read: " + e);
+                setSlowQueryLog(0, 0);
+            }
+        }
+    }
+
+    public static void purge() {
+        DATABASES.clear();
+        synchronized (SLOW_QUERIES) {
+            SLOW_QUERIES.clear();
+        }
+    }
+
+    /**
+     * Logs one line per query template with the executions, errors, latency, average connection wait, rows and estimated bytes,
+     * the templates that took longer in total first, followed by the slow query log.
+     */
+    public static void report() {
+        if (DATABASES.isEmpty()) {
+            return;
+        }
+        List<String[]> keys = new ArrayList<>();
+        for (Map.Entry<String, Map<String, QueryMetrics>> database : getAll().entrySet()) {
+            for (String template : database.getValue().keySet()) {
+                keys.add(new String[]{database.getKey(), template});
+            }
+        }
+        keys.sort(Comparator.comparingLong((String[] key) -> DATABASES.get(key[0]).get(key[1]).latency.getTotalMillis()).reversed());
+        StringBuilder report = new StringBuilder(">>> Database queries per template").append(System.lineSeparator()).append(REPORT_HEADER);
+        for (String[] key : keys) {
+            report.append(System.lineSeparator()).append(DATABASES.get(key[0]).get(key[1]).toReportLine(key[0], key[1]));
+        }
+        List<SlowQuery> slowQueries = getSlowQueries();
+        if (!slowQueries.isEmpty()) {
+            report.append(System.lineSeparator()).append(String.format("Slow queries above %d ms:", slowQueryThresholdMillis));
+            for (SlowQuery slowQuery : slowQueries) {
+                report.append(System.lineSeparator()).append(slowQuery);
+            }
+        }
+        Logger.getLogger(QueryMetrics.class).info(report.toString());
+    }
+
+    /**
+     * @return the query with its whitespace collapsed and, when it has no {{key}} placeholders, its literals as ?
+     */
+    static String getTemplateKey(String query) {
+        String key = WHITESPACE.matcher(query.trim()).replaceAll(" ");
+        if (key.contains("{{")) {
+            return key;
+        }
+        key = STRING_LITERAL.matcher(key).replaceAll("?");
+        return NUMERIC_LITERAL.matcher(key).replaceAll("?");
+    }
+
+    /**
+     * @return approximate size of the value as read from the database: characters of text, bytes of binaries and the
+     * width of numbers and dates
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Date || value instanceof Temporal) {
+            return 8;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Byte || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).unscaledValue().bitLength() / 8 + 1;
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() / 8 + 1;
+        }
+        return value.toString().length();
+    }
+
+    static void record(String database, String query, long nanos, long connectionWaitNanos, long rows, long bytes, boolean failed) {
+        String template = getTemplateKey(query);
+        QueryMetrics metrics = DATABASES.computeIfAbsent(database, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(template, key -> new QueryMetrics());
+        metrics.add(nanos, connectionWaitNanos, rows, bytes, failed);
+        if (!slowQueryLogSet) {
+            loadSlowQueryLog();
+        }
+        long threshold = slowQueryThresholdMillis;
+        if (threshold > 0 && nanos >= TimeUnit.MILLISECONDS.toNanos(threshold)) {
+            SlowQuery slowQuery = new SlowQuery(database, query.trim(), nanos, rows, failed);
+            Logger.getLogger(QueryMetrics.class).warn(">>> " + slowQuery);
+            synchronized (SLOW_QUERIES) {
+                SLOW_QUERIES.add(slowQuery);
+                if (SLOW_QUERIES.size() > slowQueryLogSize) {
+                    SLOW_QUERIES.poll();
+                }
+            }
+        }
+    }
+
+    private synchronized void add(long nanos, long connectionWaitNanos, long rows, long bytes, boolean failed) {
+        latency.record(nanos);
+        if (connectionWaitNanos >= 0) {
+            connectionWait.record(connectionWaitNanos);
+        }
+        if (failed) {
+            errors++;
+        }
+        this.rows += rows;
+        this.bytes += bytes;
+    }
+
+    /**
+     * @return time spent running the query, without the connection wait
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getConnectionWait() {
+        return connectionWait;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private synchronized String toReportLine(String database, String template) {
+        String query = template.length() > REPORT_QUERY_LENGTH ? template.substring(0, REPORT_QUERY_LENGTH - 3) + "..." : template;
+        return String.format("%-20s %-80s %7d %7d %9d %9.1f %9d %9d %9.1f %10d %12d", database, query, latency.getCount(), errors,
+                latency.getTotalMillis(), latency.getMeanMillis(), latency.getPercentileMillis(95), latency.getMaxMillis(),
+                connectionWait.getMeanMillis(), rows, bytes);
+    }
+
+    /**
+     * Timing of one query execution, recorded once when it finishes or fails.
+     */
+    public static final class Execution {
+        private final String database;
+        private final String query;
+        private final long start = System.nanoTime();
+        private long connectionWaitNanos = -1;
+        private boolean recorded;
+
+        private Execution(String database, String query) {
+            this.database = database;
+            this.query = query;
+        }
+
+        /**
+         * Marks the end of the connection wait.
+         *
+         * @return the connection, to be used in the try-with-resources that takes it
+         */
+        public Connection connected(Connection connection) {
+            connectionWaitNanos = System.nanoTime() - start;
+            return connection;
+        }
+
+        /**
+         * @return the rows, after recording their count and estimated size
+         */
+        public ColumnarResult finish(ColumnarResult rows) {
+            finish(rows.size(), rows.estimateBytes());
+            return rows;
+        }
+
+        public void finish(long rows, long bytes) {
+            record(rows, bytes, false);
+        }
+
+        public void failed() {
+            record(0, 0, true);
+        }
+
+        private void record(long rows, long bytes, boolean failed) {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            long nanos = System.nanoTime() - start - Math.max(connectionWaitNanos, 0);
+            QueryMetrics.record(database, query, nanos, connectionWaitNanos, rows, bytes, failed);
+        }
+    }
+
+    /**
+     * Execution that took longer than the slow query threshold.
+     */
+    public static final class SlowQuery {
+        private final String database;
+        private final String query;
+        private final long nanos;
+        private final long rows;
+        private final boolean failed;
+        private final String thread = Thread.currentThread().getName();
+
+        SlowQuery(String database, String query, long nanos, long rows, boolean failed) {
+            this.database = database;
+            this.query = query;
+            this.nanos = nanos;
+            this.rows = rows;
+            this.failed = failed;
+        }
+
+        public String getDatabase() {
+            return database;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Slow query on %s took %d ms%s, %d rows, in %s: %s", database, getMillis(), failed ? " and failed" : "", rows,
+                    thread, query);
+        }
+    }
+}
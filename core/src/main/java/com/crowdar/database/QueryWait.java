@@ -0,0 +1,239 @@
+package com.crowdar.database;
+
+import com.crowdar.core.Constants;
+import org.apache.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a query until its rows match a condition or the timeout expires, for data written asynchronously by the system under test.
+ * The query is prepared once on a single pooled connection and executed again after pauses that double from
+ * db.wait.pollInterval up to db.wait.maxPollInterval, never past the deadline.
+ * The connection is leased from the pool even inside a {@link ScenarioTransaction}: the wait sees what other transactions
+ * committed, not the uncommitted fixtures of the scenario, and does not hold the scenario connection while it waits.
+ * <pre>
+ * QueryWaitResult result = QueryWait.on("shop", "select status from orders where id = {{id}}")
+ *         .parameters(Collections.singletonMap("id", 10)).untilValue("PAID").timeout(5000).await();
+ * </pre>
+ * With {@link #notifiedBy(String)} on a postgresql database the pauses are spent listening to the channel, so a
+ * NOTIFY from the backend runs the query at once instead of at the next poll.
+ */
+public class QueryWait {
+
+    private static final Pattern CHANNEL = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final DataSource dataSource;
+    private final String database;
+    private final SqlTemplate template;
+    private Map<String, ?> parameters = Collections.emptyMap();
+    private Predicate<List<Map<String, Object>>> condition = rows -> !rows.isEmpty();
+    private String expectation = "any row";
+    private long timeoutMillis = -1;
+    private long pollIntervalMillis = -1;
+    private long maxPollIntervalMillis = -1;
+    private String channel;
+
+    private QueryWait(DataSource dataSource, String database, String queryTemplate) {
+        this.dataSource = dataSource;
+        this.database = database;
+        this.template = SqlTemplate.compile(queryTemplate);
+    }
+
+    /**
+     * @param database name of the database, the connection is taken from its {@link ConnectionPool}
+     * @param queryTemplate sql with {{key}} placeholders, see {@link SqlTemplate}
+     */
+    public static QueryWait on(String database, String queryTemplate) {
+        return new QueryWait(ConnectionPool.get(database), database, queryTemplate);
+    }
+
+    public static QueryWait on(DataSource dataSource, String queryTemplate) {
+        String database = dataSource instanceof ConnectionPool ? ((ConnectionPool) dataSource).getName() : dataSource.toString();
+        return new QueryWait(dataSource, database, queryTemplate);
+    }
+
+    public QueryWait parameters(Map<String, ?> parameters) {
+        this.parameters = parameters;
+        return this;
+    }
+
+    /**
+     * @param expectation description of the condition for the logs and the failure message
+     */
+    public QueryWait until(Predicate<List<Map<String, Object>>> condition, String expectation) {
+        this.condition = condition;
+        this.expectation = expectation;
+        return this;
+    }
+
+    /**
+     * Waits until the first column of the first row, as text, is the expected value.
+     */
+    public QueryWait untilValue(Object expected) {
+        String text = String.valueOf(expected);
+        return until(rows -> !rows.isEmpty() && Objects.equals(text, String.valueOf(rows.get(0).values().iterator().next())), "value " + text);
+    }
+
+    public QueryWait timeout(long millis) {
+        this.timeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param initialMillis pause after the first attempt, doubled after each one
+     * @param maxMillis longest pause between attempts
+     */
+    public QueryWait pollInterval(long initialMillis, long maxMillis) {
+        this.pollIntervalMillis = initialMillis;
+        this.maxPollIntervalMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * Listens to the postgresql channel during the pauses. Ignored by other drivers.
+     */
+    public QueryWait notifiedBy(String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name " + channel);
+        }
+        this.channel = channel;
+        return this;
+    }
+
+    /**
+     * @return the last rows read, whether they matched and how long it waited; it does not fail when the timeout expires
+     */
+    public QueryWaitResult await() throws SQLException {
+        long timeout = timeoutMillis >= 0 ? timeoutMillis : Constants.getDbWaitTimeoutMillis();
+        long maxInterval = Math.max(1, maxPollIntervalMillis >= 0 ? maxPollIntervalMillis : Constants.getDbWaitMaxPollIntervalMillis());
+        long interval = Math.max(1, Math.min(maxInterval, pollIntervalMillis >= 0 ? pollIntervalMillis : Constants.getDbWaitPollIntervalMillis()));
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        int attempts = 0;
+        int notifications = 0;
+        ColumnarResult rows;
+        boolean matched;
+        QueryMetrics.Execution execution = QueryMetrics.start(database, template.getTemplate());
+        try (Connection connection = execution.connected(getConnection());
+             PreparedStatement statement = template.prepare(connection, parameters);
+             Listener listener = channel == null ? null : Listener.open(connection, channel)) {
+            while (true) {
+                if (attempts++ > 0) {
+                    execution = QueryMetrics.start(database, template.getTemplate());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    rows = execution.finish(ColumnarResult.read(resultSet));
+                }
+                matched = condition.test(rows);
+                long remaining = deadline - System.nanoTime();
+                if (matched || remaining <= 0) {
+                    break;
+                }
+                long pause = Math.min(interval, TimeUnit.NANOSECONDS.toMillis(remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+                if (listener != null && listener.await(pause)) {
+                    notifications++;
+                } else if (listener == null) {
+                    sleep(pause);
+                }
+                interval = Math.min(interval * 2, maxInterval);
+            }
+        } catch (SQLException | RuntimeException e) {
+            execution.failed();
+            throw e;
+        }
+        QueryWaitResult result = new QueryWaitResult(database, template.getTemplate(), expectation, matched, rows, attempts, notifications,
+                System.nanoTime() - start);
+        Logger.getLogger(QueryWait.class).info(">>> " + result);
+        return result;
+    }
+
+    /**
+     * @return a connection of its own, outside the scenario transaction when the data source is a pool
+     */
+    private Connection getConnection() throws SQLException {
+        return dataSource instanceof ConnectionPool ? ((ConnectionPool) dataSource).lease() : dataSource.getConnection();
+    }
+
+    private void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for " + expectation + " on " + database, e);
+        }
+    }
+
+    /**
+     * LISTEN on a postgresql connection, reached by reflection so the driver is not needed to compile.
+     */
+    private static class Listener implements AutoCloseable {
+        private final Connection connection;
+        private final String channel;
+        private final Object pgConnection;
+        private final Method getNotifications;
+
+        private Listener(Connection connection, String channel, Object pgConnection, Method getNotifications) {
+            this.connection = connection;
+            this.channel = channel;
+            this.pgConnection = pgConnection;
+            this.getNotifications = getNotifications;
+        }
+
+        /**
+         * @return null when the driver is not postgresql or does not wait for notifications
+         */
+        static Listener open(Connection connection, String channel) throws SQLException {
+            Method getNotifications;
+            Class<?> type;
+            try {
+                type = Class.forName("org.postgresql.PGConnection");
+                getNotifications = type.getMethod("getNotifications", int.class);
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                return null;
+            }
+            if (!connection.isWrapperFor(type)) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + channel);
+            }
+            return new Listener(connection, channel, connection.unwrap(type), getNotifications);
+        }
+
+        /**
+         * @return true when a notification arrived before the timeout
+         */
+        boolean await(long millis) throws SQLException {
+            try {
+                Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, (int) Math.min(millis, Integer.MAX_VALUE));
+                return notifications != null && notifications.length > 0;
+            } catch (IllegalAccessException e) {
+                throw new SQLException("Can not wait for notifications on " + channel, e);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                        : new SQLException("Can not wait for notifications on " + channel, e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("UNLISTEN " + channel);
+            }
+        }
+    }
+}
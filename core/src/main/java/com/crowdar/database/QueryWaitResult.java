@@ -0,0 +1,63 @@
+package com.crowdar.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link QueryWait}: the last rows read and how long it took to get them.
+ */
+public class QueryWaitResult {
+
+    private final String database;
+    private final String query;
+    private final String expectation;
+    private final boolean matched;
+    private final ColumnarResult rows;
+    private final int attempts;
+    private final int notifications;
+    private final long nanos;
+
+    QueryWaitResult(String database, String query, String expectation, boolean matched, ColumnarResult rows, int attempts,
+                    int notifications, long nanos) {
+        this.database = database;
+        this.query = query;
+        this.expectation = expectation;
+        this.matched = matched;
+        this.rows = rows;
+        this.attempts = attempts;
+        this.notifications = notifications;
+        this.nanos = nanos;
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    /**
+     * @return the rows of the last execution, the matching ones when {@link #isMatched()}; kept by column, so the database
+     * extractors read them without a map per row
+     */
+    public ColumnarResult getRows() {
+        return rows;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return notifications that triggered an attempt before its pause ended
+     */
+    public int getNotifications() {
+        return notifications;
+    }
+
+    public long getWaitedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s on %s after %d ms and %d attempts%s: %s", matched ? "Got" : "Timed out waiting for", expectation, database,
+                getWaitedMillis(), attempts, notifications > 0 ? " (" + notifications + " notified)" : "", matched ? query : query + " returned " + rows);
+    }
+}
@@ -0,0 +1,92 @@
+package com.crowdar.database;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values of one row of a query, read by column label or 0 based index.
+ */
+public final class Row {
+
+    private final Columns columns;
+    private final Object[] values;
+    private final long number;
+
+    Row(Columns columns, Object[] values, long number) {
+        this.columns = columns;
+        this.values = values;
+        this.number = number;
+    }
+
+    public Columns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the 0 based position of the row in the result
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    public Object get(int index) {
+        return values[index];
+    }
+
+    public Object get(String column) {
+        return values[columns.indexOf(column)];
+    }
+
+    public String getString(String column) {
+        Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    public Integer getInt(String column) {
+        Number value = getNumber(column);
+        return value == null ? null : value.intValue();
+    }
+
+    public Long getLong(String column) {
+        Number value = getNumber(column);
+        return value == null ? null : value.longValue();
+    }
+
+    public Double getDouble(String column) {
+        Number value = getNumber(column);
+        return value == null ? null : value.doubleValue();
+    }
+
+    public BigDecimal getBigDecimal(String column) {
+        Object value = get(column);
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    private Number getNumber(String column) {
+        Object value = get(column);
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    /**
+     * @return the values by column label, in the order of the columns
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>(values.length * 4 / 3 + 1);
+        for (int i = 0; i < values.length; i++) {
+            map.put(columns.getLabel(i), values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
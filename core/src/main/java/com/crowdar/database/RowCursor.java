@@ -0,0 +1,179 @@
+package com.crowdar.database;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Forward only cursor over the rows of a query. Rows are fetched from the database fetchSize at a time and only the
+ * current one is kept, so a table of any size is read in constant memory. Closing the cursor closes the result set and
+ * statement and returns the connection; it is closed too once the last row is read. A statement cached by a
+ * {@link ConnectionPool} gets its fetch size back when it is returned to the cache.
+ * While the cursor is open autocommit is disabled, as some drivers (postgresql) only fetch by pages inside a transaction.
+ * A cursor opened on a DataSource is recorded in {@link QueryMetrics} when it is closed, with the rows read until then.
+ */
+public class RowCursor implements Iterator<Row>, AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final Columns columns;
+    private final boolean restoreAutoCommit;
+    private final QueryMetrics.Execution execution;
+    private Row next;
+    private long rows;
+    private long bytes;
+    private boolean closed;
+
+    private RowCursor(Connection connection, PreparedStatement statement, ResultSet resultSet, boolean restoreAutoCommit,
+                      QueryMetrics.Execution execution) throws SQLException {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.restoreAutoCommit = restoreAutoCommit;
+        this.execution = execution;
+        this.columns = Columns.of(resultSet.getMetaData());
+    }
+
+    /**
+     * Runs the query on the connection, which is closed with the cursor.
+     */
+    public static RowCursor open(Connection connection, String queryTemplate, Map<String, ?> parameters, int fetchSize) throws SQLException {
+        return open(connection, queryTemplate, parameters, fetchSize, null);
+    }
+
+    /**
+     * Runs the query on a connection of the data source, returned when the cursor is closed.
+     */
+    public static RowCursor open(DataSource dataSource, String queryTemplate, Map<String, ?> parameters, int fetchSize) throws SQLException {
+        String database = dataSource instanceof ConnectionPool ? ((ConnectionPool) dataSource).getName() : dataSource.toString();
+        QueryMetrics.Execution execution = QueryMetrics.start(database, queryTemplate);
+        try {
+            return open(execution.connected(dataSource.getConnection()), queryTemplate, parameters, fetchSize, execution);
+        } catch (SQLException | RuntimeException e) {
+            execution.failed();
+            throw e;
+        }
+    }
+
+    private static RowCursor open(Connection connection, String queryTemplate, Map<String, ?> parameters, int fetchSize,
+                                  QueryMetrics.Execution execution) throws SQLException {
+        PreparedStatement statement = null;
+        boolean autoCommit = false;
+        try {
+            autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            statement = SqlTemplate.compile(queryTemplate).prepare(connection, parameters);
+            statement.setFetchSize(fetchSize);
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.setFetchSize(fetchSize);
+            return new RowCursor(connection, statement, resultSet, autoCommit, execution);
+        } catch (SQLException | RuntimeException e) {
+            if (statement != null) {
+                statement.close();
+            }
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+            connection.close();
+            throw e;
+        }
+    }
+
+    public Columns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return rows read so far
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!resultSet.next()) {
+                close();
+                return false;
+            }
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = resultSet.getObject(i + 1);
+                bytes += QueryMetrics.estimateBytes(values[i]);
+            }
+            next = new Row(columns, values, rows++);
+            return true;
+        } catch (SQLException e) {
+            if (execution != null) {
+                execution.failed();
+            }
+            closeQuietly();
+            throw new IllegalStateException("Could not read row " + rows + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * @return the remaining rows, closing the cursor when the stream is closed or fully consumed
+     */
+    public Stream<Row> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::closeQuietly);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        next = null;
+        if (execution != null) {
+            execution.finish(rows, bytes);
+        }
+        try (Connection connection = this.connection;
+             PreparedStatement statement = this.statement;
+             ResultSet resultSet = this.resultSet) {
+            if (restoreAutoCommit) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not close the cursor: " + e.getMessage(), e);
+        }
+    }
+}
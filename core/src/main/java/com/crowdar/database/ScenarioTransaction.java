@@ -0,0 +1,269 @@
+package com.crowdar.database;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Transaction that spans a whole scenario and is rolled back at its end, so the fixtures it inserted disappear
+ * without cleanup queries and scenarios running in parallel never see each other's data.
+ * While it is active, every connection the thread takes from a {@link ConnectionPool} (so every {@link DatabaseUtils}
+ * call, cursor and bulk load) is the same connection of the scenario, with autocommit disabled.
+ * Code that manages its own transaction keeps working: setAutoCommit(false) opens a savepoint, commit releases it and
+ * rollback goes back to it, so only the work of the scenario is undone. Outside those, each statement runs in a savepoint
+ * of its own, as it would in autocommit mode, so a failed statement is undone alone and does not leave the scenario
+ * transaction aborted (postgresql) for the statements after it.
+ * Connections taken by other threads, as the ones of {@link BulkLoader#executeAll}, and the connection of a
+ * {@link QueryWait} are not part of the transaction.
+ */
+public final class ScenarioTransaction {
+
+    private static final ThreadLocal<ScenarioTransaction> CURRENT = new ThreadLocal<>();
+
+    private final Map<ConnectionPool, Connection> connections = new LinkedHashMap<>();
+
+    private ScenarioTransaction() {
+    }
+
+    /**
+     * Starts the transaction of the current thread. The connections are taken the first time each database is used.
+     *
+     * @throws IllegalStateException when the thread already has one
+     */
+    public static void begin() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A scenario transaction is already active on " + Thread.currentThread().getName());
+        }
+        CURRENT.set(new ScenarioTransaction());
+    }
+
+    /**
+     * Rolls back everything done on the thread since {@link #begin()} and returns the connections to their pools.
+     * Does nothing when there is no active transaction.
+     */
+    public static void rollback() throws SQLException {
+        ScenarioTransaction transaction = CURRENT.get();
+        if (transaction == null) {
+            return;
+        }
+        CURRENT.remove();
+        SQLException failure = null;
+        for (Map.Entry<ConnectionPool, Connection> entry : transaction.connections.entrySet()) {
+            try (Connection connection = entry.getValue()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                Logger.getLogger(ScenarioTransaction.class).warn(">>> Could not roll back the scenario transaction on "
+                        + entry.getKey().getName() + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.setNextException(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static ScenarioTransaction current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the connection of the scenario to the database of the pool, whose close keeps it open
+     */
+    Connection getConnection(ConnectionPool pool) throws SQLException {
+        Connection connection = connections.get(pool);
+        if (connection == null) {
+            connection = pool.lease();
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            connections.put(pool, connection);
+        }
+        return new Participant(connection, pool.getName()).proxy;
+    }
+
+    /**
+     * Connection handed out inside the scenario. It behaves as an autocommit connection whose transactions are
+     * savepoints of the scenario transaction.
+     */
+    private static class Participant implements InvocationHandler {
+        private final Connection connection;
+        private final String database;
+        private final Connection proxy;
+        private boolean autoCommit = true;
+        private Savepoint savepoint;
+        private boolean closed;
+
+        Participant(Connection connection, String database) {
+            this.connection = connection;
+            this.database = database;
+            this.proxy = (Connection) Proxy.newProxyInstance(ScenarioTransaction.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (!autoCommit && savepoint != null) {
+                            rollbackToSavepoint();
+                            releaseSavepoint();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Scenario connection to " + database;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection to " + database + " was already closed");
+            }
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    boolean enabled = (Boolean) args[0];
+                    if (enabled != autoCommit) {
+                        if (enabled) {
+                            releaseSavepoint();
+                        } else {
+                            savepoint = setSavepoint();
+                        }
+                        autoCommit = enabled;
+                    }
+                    return null;
+                case "commit":
+                    if (args == null && !autoCommit) {
+                        releaseSavepoint();
+                        savepoint = setSavepoint();
+                    }
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        if (!autoCommit) {
+                            rollbackToSavepoint();
+                        }
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object result = call(connection, method, args);
+            if (result instanceof Statement) {
+                return Proxy.newProxyInstance(ScenarioTransaction.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                        new StatementHandler((Statement) result));
+            }
+            return result;
+        }
+
+        /**
+         * Runs each execution of the statement in a savepoint while the connection is in autocommit mode, rolling back
+         * to it when the execution fails.
+         */
+        private class StatementHandler implements InvocationHandler {
+            private final Statement statement;
+
+            StatementHandler(Statement statement) {
+                this.statement = statement;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("getConnection".equals(method.getName())) {
+                    return Participant.this.proxy;
+                }
+                if (!autoCommit || !method.getName().startsWith("execute")) {
+                    return call(statement, method, args);
+                }
+                Savepoint statementSavepoint = setSavepoint();
+                if (statementSavepoint == null) {
+                    return call(statement, method, args);
+                }
+                Object result;
+                try {
+                    result = call(statement, method, args);
+                } catch (SQLException e) {
+                    try {
+                        connection.rollback(statementSavepoint);
+                    } catch (SQLException rollback) {
+                        e.addSuppressed(rollback);
+                    }
+                    throw e;
+                }
+                release(statementSavepoint);
+                return result;
+            }
+        }
+
+        private static Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Savepoint setSavepoint() throws SQLException {
+            try {
+                return connection.setSavepoint();
+            } catch (SQLFeatureNotSupportedException e) {
+                return null;
+            }
+        }
+
+        private void rollbackToSavepoint() throws SQLException {
+            if (savepoint == null) {
+                throw new SQLException("The driver of " + database + " has no savepoints, the work of the scenario can only be rolled back as a whole");
+            }
+            connection.rollback(savepoint);
+        }
+
+        private void releaseSavepoint() throws SQLException {
+            if (savepoint != null) {
+                release(savepoint);
+                savepoint = null;
+            }
+        }
+
+        /**
+         * Drivers without releaseSavepoint (oracle) keep the savepoint until the scenario ends.
+         */
+        private void release(Savepoint savepoint) throws SQLException {
+            try {
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLFeatureNotSupportedException e) {
+                // released by the final rollback
+            }
+        }
+    }
+}
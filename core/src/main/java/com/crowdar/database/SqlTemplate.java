@@ -0,0 +1,298 @@
+package com.crowdar.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Sql with {{key}} placeholders turned once into a jdbc statement with ? parameters.
+ * A placeholder that is a whole quoted literal, as in name = '{{name}}', becomes a single parameter bound as text, so the
+ * queries written for {@link DatabaseManager#replaceVars} keep working. An unquoted placeholder in a value position, as in
+ * age &gt; {{age}}, is bound with the type the database would have read from the replaced text: numbers, true, false and null
+ * are not bound as text. Values are bound, never concatenated, so the statement text is the same for every execution and the
+ * connection can reuse it.
+ * <p>
+ * A placeholder outside a value position, as a table in from {{table}} or a column in order by {{column}}, cannot be a
+ * parameter and is still replaced in the sql text, so every value gets a statement of its own.
+ */
+public final class SqlTemplate {
+
+    private static final Map<String, SqlTemplate> COMPILED = new ConcurrentHashMap<>();
+    private static final Set<String> CLAUSES = new HashSet<>(Arrays.asList("select", "from", "join", "into", "update", "where", "on",
+            "having", "values", "set", "order", "group", "limit", "offset"));
+    /** Clauses where a placeholder after ( or , is a value, as in in ({{a}}, {{b}}). */
+    private static final Set<String> VALUE_CLAUSES = new HashSet<>(Arrays.asList("where", "on", "having", "values", "set"));
+    private static final Set<String> VALUE_KEYWORDS = new HashSet<>(Arrays.asList("like", "between", "limit", "offset", "when",
+            "then", "else"));
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,18}");
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+
+    private final String template;
+    private final String sql;
+    private final List<String> parameterNames;
+    /** Whether each parameter replaces a whole quoted literal, and so is bound as text. */
+    private final boolean[] literals;
+    /** Sql split around the placeholders replaced in the text, empty when there are none. */
+    private final List<String> fragments;
+    private final List<String> textNames;
+
+    private SqlTemplate(String template) {
+        this.template = template;
+        List<String> names = new ArrayList<>();
+        List<Boolean> quotedNames = new ArrayList<>();
+        List<String> fragments = new ArrayList<>();
+        List<String> textNames = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(template.length());
+        StringBuilder fragment = new StringBuilder(template.length());
+        int i = 0;
+        boolean quoted = false;
+        char previous = 0;
+        String word = null;
+        String clause = null;
+        boolean between = false;
+        boolean betweenAnd = false;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '\'' && !quoted && template.startsWith("{{", i + 1)) {
+                int end = template.indexOf("}}'", i + 3);
+                if (end > 0 && template.indexOf('\'', i + 1) == end + 2) {
+                    names.add(template.substring(i + 3, end).trim());
+                    quotedNames.add(true);
+                    sql.append('?');
+                    fragment.append('?');
+                    previous = '?';
+                    i = end + 3;
+                    continue;
+                }
+            }
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (template.startsWith("{{", i)) {
+                int end = template.indexOf("}}", i + 2);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed {{ in sql " + template);
+                }
+                if (quoted) {
+                    throw new IllegalArgumentException("Placeholder " + template.substring(i, end + 2)
+                            + " is part of a quoted literal, bind the whole value instead: " + template);
+                }
+                String name = template.substring(i + 2, end).trim();
+                boolean next = end + 2 < template.length() && template.charAt(end + 2) == '.';
+                if (!next && isValuePosition(previous, word, clause, betweenAnd)) {
+                    names.add(name);
+                    quotedNames.add(false);
+                    sql.append('?');
+                    fragment.append('?');
+                } else {
+                    sql.append(template, i, end + 2);
+                    fragments.add(fragment.toString());
+                    fragment.setLength(0);
+                    textNames.add(name);
+                }
+                previous = '?';
+                betweenAnd = false;
+                i = end + 2;
+                continue;
+            } else if (!quoted && (Character.isLetterOrDigit(c) || c == '_')) {
+                int end = i + 1;
+                while (end < template.length() && (Character.isLetterOrDigit(template.charAt(end)) || template.charAt(end) == '_')) {
+                    end++;
+                }
+                word = template.substring(i, end).toLowerCase();
+                if (CLAUSES.contains(word)) {
+                    clause = word;
+                }
+                betweenAnd = between && "and".equals(word);
+                between = "between".equals(word) || between && !betweenAnd;
+                sql.append(template, i, end);
+                fragment.append(template, i, end);
+                previous = 'a';
+                i = end;
+                continue;
+            }
+            if (!quoted && !Character.isWhitespace(c) && c != '\'') {
+                previous = c;
+            }
+            sql.append(c);
+            fragment.append(c);
+            i++;
+        }
+        if (!textNames.isEmpty()) {
+            fragments.add(fragment.toString());
+        }
+        this.sql = sql.toString();
+        this.parameterNames = Collections.unmodifiableList(names);
+        this.literals = new boolean[quotedNames.size()];
+        for (int j = 0; j < literals.length; j++) {
+            literals[j] = quotedNames.get(j);
+        }
+        this.fragments = Collections.unmodifiableList(fragments);
+        this.textNames = Collections.unmodifiableList(textNames);
+    }
+
+    /**
+     * @param previous   last character before the placeholder outside literals, a for a word and ? for another placeholder
+     * @param word       last word before the placeholder, in lower case
+     * @param clause     last clause keyword before the placeholder
+     * @param betweenAnd whether the word is the and of a between
+     */
+    private static boolean isValuePosition(char previous, String word, String clause, boolean betweenAnd) {
+        if ("=<>!+-*/%|".indexOf(previous) >= 0) {
+            return true;
+        }
+        if (previous == '(' || previous == ',') {
+            return VALUE_CLAUSES.contains(clause);
+        }
+        return previous == 'a' && (VALUE_KEYWORDS.contains(word) || betweenAnd);
+    }
+
+    /**
+     * @return the compiled template, parsed only the first time it is used
+     * @throws IllegalArgumentException when a placeholder is not closed or is inside a longer quoted literal
+     */
+    public static SqlTemplate compile(String template) {
+        SqlTemplate compiled = COMPILED.get(template);
+        if (compiled == null) {
+            compiled = new SqlTemplate(template);
+            COMPILED.put(template, compiled);
+        }
+        return compiled;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the sql sent to the database, with a ? for each bound placeholder and the ones replaced in the text still
+     * as {{key}}
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the sql sent to the database for the parameters, with the placeholders outside a value position replaced
+     * @throws IllegalArgumentException when a placeholder replaced in the text has no value
+     */
+    public String getSql(Map<String, ?> parameters) {
+        if (textNames.isEmpty()) {
+            return sql;
+        }
+        StringBuilder text = new StringBuilder(sql.length());
+        for (int i = 0; i < textNames.size(); i++) {
+            text.append(fragments.get(i)).append(getValue(parameters, textNames.get(i)));
+        }
+        return text.append(fragments.get(textNames.size())).toString();
+    }
+
+    /**
+     * @return the placeholder names in the order of the ? parameters, repeated when a placeholder is used twice
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * @return the placeholder names replaced in the sql text instead of bound, in the order they appear
+     */
+    public List<String> getTextNames() {
+        return textNames;
+    }
+
+    /**
+     * Prepares the statement on the connection, reusing it when the connection comes from a {@link ConnectionPool},
+     * and binds the parameters. The caller closes the statement.
+     *
+     * @throws IllegalArgumentException when a placeholder has no value
+     */
+    public PreparedStatement prepare(Connection connection, Map<String, ?> parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(getSql(parameters));
+        try {
+            bind(statement, parameters);
+            return statement;
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    public void bind(PreparedStatement statement, Map<String, ?> parameters) throws SQLException {
+        for (int i = 0; i < parameterNames.size(); i++) {
+            Object value = getValue(parameters, parameterNames.get(i));
+            setParameter(statement, i + 1, literals[i] || !(value instanceof String) ? value : parseLiteral((String) value));
+        }
+    }
+
+    private Object getValue(Map<String, ?> parameters, String name) {
+        if (!parameters.containsKey(name)) {
+            throw new IllegalArgumentException("No value for {{" + name + "}} in sql " + template);
+        }
+        return parameters.get(name);
+    }
+
+    /**
+     * @return the value the database reads from the text when it is written unquoted in the sql: a Long or a BigDecimal for
+     * numbers, a Boolean for true and false, null for null and the text without its quotes when it is quoted
+     */
+    static Object parseLiteral(String text) {
+        String trimmed = text.trim();
+        if (INTEGER.matcher(trimmed).matches()) {
+            return Long.valueOf(trimmed.startsWith("+") ? trimmed.substring(1) : trimmed);
+        } else if (DECIMAL.matcher(trimmed).matches()) {
+            return new BigDecimal(trimmed);
+        } else if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+            return Boolean.valueOf(trimmed);
+        } else if ("null".equalsIgnoreCase(trimmed)) {
+            return null;
+        } else if (trimmed.length() > 1 && trimmed.charAt(0) == '\'' && trimmed.charAt(trimmed.length() - 1) == '\'') {
+            return trimmed.substring(1, trimmed.length() - 1).replace("''", "'");
+        }
+        return text;
+    }
+
+    /**
+     * Binds java.time values as their jdbc types, so drivers without jdbc 4.2 support accept them.
+     */
+    static void setParameter(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof LocalDate) {
+            statement.setDate(index, java.sql.Date.valueOf((LocalDate) value));
+        } else if (value instanceof LocalDateTime) {
+            statement.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+        } else if (value instanceof LocalTime) {
+            statement.setTime(index, java.sql.Time.valueOf((LocalTime) value));
+        } else if (value instanceof Instant) {
+            statement.setTimestamp(index, Timestamp.from((Instant) value));
+        } else if (value instanceof java.util.Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)
+                && !(value instanceof Timestamp)) {
+            statement.setTimestamp(index, new Timestamp(((java.util.Date) value).getTime()));
+        } else if (value instanceof Enum) {
+            statement.setString(index, ((Enum<?>) value).name());
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
@@ -1,7 +1,7 @@
 package com.crowdar.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -10,87 +10,189 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
-import com.crowdar.core.PropertyManager;
+import com.crowdar.core.Constants;
+import com.crowdar.database.ColumnarResult;
+import com.crowdar.database.ConnectionPool;
+import com.crowdar.database.QueryMetrics;
+import com.crowdar.database.Row;
+import com.crowdar.database.RowCursor;
+import com.crowdar.database.SqlTemplate;
 
+/**
+ * Every query is timed and counted in {@link QueryMetrics}, reported per query template at suite end.
+ */
 public class DatabaseUtils {
 
-	private static Connection getConnection(String database) throws SQLException {
-		return DriverManager.getConnection(	
-											PropertyManager.getProperty("db.connection.string") + database, 
-											PropertyManager.getProperty("db.connection.user"),
-											PropertyManager.getProperty("db.connection.pass") 
-									       );
+	/**
+	 * @return a connection of the pool of the database, closing it returns it to the pool
+	 */
+	public static Connection getConnection(String database) throws SQLException {
+		return ConnectionPool.get(database).getConnection();
 	}
 	
+	/**
+	 * @return a modifiable map per row, keyed by column name
+	 */
 	public static List<Map<String, Object>> executeQuery(String databaseName, String queryString) throws SQLException {
-		List<Map<String, Object>> records = null;
-		ResultSet rs = null;
-		try {
-			try (Statement st = getConnection(databaseName).createStatement()) {
-				rs = st.executeQuery(queryString);
-				if(rs!=null) {
-					ResultSetMetaData md = rs.getMetaData();
-					int columns = md.getColumnCount();
-					// list to have all rows
-					records = new ArrayList<>(columns);
-					// load data for each column / record
-					while (rs.next()) {
-						HashMap<String, Object> row = new HashMap<>(columns);
-						// add column/value for a record
-				        for (int i = 1; i <= columns; ++i) {
-				        	row.put(md.getColumnName(i), rs.getObject(i));
-				        }
-				        records.add(row);
-					}
-				}
-			}
-		} catch (SQLException e) {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryString);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery(queryString)) {
+			return readRows(rs, execution);
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
+			throw e;
+		}
+	}
+
+	/**
+	 * Same as {@link #executeQuery(String, String)}, kept by column in a read only result that takes less memory for
+	 * large results. Rows kept as {@link com.crowdar.database.DatabaseManager#setLastResponse} should be read with it, so
+	 * the database extractors find their columns without a map per row.
+	 */
+	public static ColumnarResult executeColumnarQuery(String databaseName, String queryString) throws SQLException {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryString);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery(queryString)) {
+			return execution.finish(ColumnarResult.read(rs));
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs the query with its {{key}} placeholders bound as parameters of a prepared statement.
+	 * @see SqlTemplate
+	 */
+	public static List<Map<String, Object>> executeQuery(String databaseName, String queryTemplate, Map<String, ?> parameters) throws SQLException {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryTemplate);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				PreparedStatement st = SqlTemplate.compile(queryTemplate).prepare(connection, parameters);
+				ResultSet rs = st.executeQuery()) {
+			return readRows(rs, execution);
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
 			throw e;
-		}finally {
-			try {
-				getConnection(databaseName).close();
-			} catch (SQLException e) {
-				throw e;
+		}
+	}
+
+	/**
+	 * Same as {@link #executeQuery(String, String, Map)}, kept by column in a read only result.
+	 */
+	public static ColumnarResult executeColumnarQuery(String databaseName, String queryTemplate, Map<String, ?> parameters) throws SQLException {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryTemplate);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				PreparedStatement st = SqlTemplate.compile(queryTemplate).prepare(connection, parameters);
+				ResultSet rs = st.executeQuery()) {
+			return execution.finish(ColumnarResult.read(rs));
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a HashMap per row, filled straight from the result set
+	 */
+	private static List<Map<String, Object>> readRows(ResultSet rs, QueryMetrics.Execution execution) throws SQLException {
+		ResultSetMetaData md = rs.getMetaData();
+		int columns = md.getColumnCount();
+		String[] names = new String[columns];
+		for (int i = 0; i < columns; i++) {
+			names[i] = md.getColumnName(i + 1);
+		}
+		List<Map<String, Object>> records = new ArrayList<>();
+		long bytes = 0;
+		while (rs.next()) {
+			HashMap<String, Object> row = new HashMap<>(columns * 4 / 3 + 1);
+			for (int i = 0; i < columns; i++) {
+				Object value = rs.getObject(i + 1);
+				bytes += QueryMetrics.estimateBytes(value);
+				row.put(names[i], value);
 			}
+			records.add(row);
 		}
-		
+		execution.finish(records.size(), bytes);
 		return records;
 	}
 
+	/**
+	 * Reads the rows of the query as they are fetched, db.fetchSize at a time, instead of loading them all.
+	 * The cursor must be closed, it holds a connection of the pool until then.
+	 */
+	public static RowCursor cursor(String databaseName, String queryTemplate, Map<String, ?> parameters) throws SQLException {
+		return cursor(databaseName, queryTemplate, parameters, Constants.getDbFetchSize());
+	}
+
+	public static RowCursor cursor(String databaseName, String queryTemplate, Map<String, ?> parameters, int fetchSize) throws SQLException {
+		return RowCursor.open(ConnectionPool.get(databaseName), queryTemplate, parameters, fetchSize);
+	}
+
+	/**
+	 * @return the rows of the query as a lazy stream, to be used in a try-with-resources so the connection is returned
+	 */
+	public static Stream<Row> stream(String databaseName, String queryTemplate, Map<String, ?> parameters) throws SQLException {
+		return cursor(databaseName, queryTemplate, parameters).stream();
+	}
+
 	public static String uniqueResult(String databaseName, String queryString) throws SQLException {
-		ResultSet rs = null;
-		try {
-			try (Statement st = getConnection(databaseName).createStatement()) {
-				rs = st.executeQuery(queryString);
-				rs.next();
-				return rs.getObject(1).toString();
-			}
-		} catch (SQLException e) {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryString);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery(queryString)) {
+			rs.next();
+			Object value = rs.getObject(1);
+			execution.finish(1, QueryMetrics.estimateBytes(value));
+			return value.toString();
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
+			throw e;
+		}
+	}
+
+	public static String uniqueResult(String databaseName, String queryTemplate, Map<String, ?> parameters) throws SQLException {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, queryTemplate);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				PreparedStatement st = SqlTemplate.compile(queryTemplate).prepare(connection, parameters);
+				ResultSet rs = st.executeQuery()) {
+			rs.next();
+			Object value = rs.getObject(1);
+			execution.finish(1, QueryMetrics.estimateBytes(value));
+			return value.toString();
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
 			throw e;
-		}finally {
-			try {
-				getConnection(databaseName).close();
-			} catch (SQLException e) {
-				throw e;
-			}
 		}
 	}
 	
 	
 	public static boolean executeUpdate(String databaseName, String ddlString) throws SQLException {
-		int recAffected = 0;
-		try (Statement st = getConnection(databaseName).createStatement()) {
-			recAffected = st.executeUpdate(ddlString);
-		} catch (SQLException e) {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, ddlString);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				Statement st = connection.createStatement()) {
+			int updated = st.executeUpdate(ddlString);
+			execution.finish(updated, 0);
+			return updated > 0;
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
+			throw e;
+		}
+	}
+
+	public static boolean executeUpdate(String databaseName, String ddlTemplate, Map<String, ?> parameters) throws SQLException {
+		QueryMetrics.Execution execution = QueryMetrics.start(databaseName, ddlTemplate);
+		try (Connection connection = execution.connected(getConnection(databaseName));
+				PreparedStatement st = SqlTemplate.compile(ddlTemplate).prepare(connection, parameters)) {
+			int updated = st.executeUpdate();
+			execution.finish(updated, 0);
+			return updated > 0;
+		} catch (SQLException | RuntimeException e) {
+			execution.failed();
 			throw e;
-		}finally {
-			try {
-				getConnection(databaseName).close();
-			} catch (SQLException e) {
-				throw e;
-			}
 		}
-		return recAffected>0;	
 	}
 }
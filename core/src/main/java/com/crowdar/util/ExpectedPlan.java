@@ -0,0 +1,191 @@
+package com.crowdar.util;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Properties of an expected class as {@link MapUtils#convertObjectToMap} would put them in a map, read from the instance
+ * instead, so {@link ValidateUtils} does not build a map per expected element. The names, order and omitted nulls come
+ * from the same jackson bean serializer. A class whose serializer does more than write its properties (custom
+ * serializers, formats, inclusion other than non null, type ids, any getters) has no plan and is still converted.
+ */
+final class ExpectedPlan {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final Set<JsonInclude.Include> SUPPORTED_INCLUSIONS = EnumSet.of(JsonInclude.Include.ALWAYS,
+            JsonInclude.Include.NON_NULL, JsonInclude.Include.USE_DEFAULTS);
+
+    private static final ClassValue<ExpectedPlan> PLANS = new ClassValue<ExpectedPlan>() {
+        @Override
+        protected ExpectedPlan computeValue(Class<?> type) {
+            return new ExpectedPlan(resolve(type));
+        }
+    };
+
+    private final List<Property> properties;
+
+    private ExpectedPlan(List<Property> properties) {
+        this.properties = properties;
+    }
+
+    static ExpectedPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * @return false when instances of the class must be converted to a map to be validated
+     */
+    boolean isSupported() {
+        return properties != null;
+    }
+
+    List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the properties of the class, or null when it has no plan
+     */
+    private static List<Property> resolve(Class<?> type) {
+        ObjectMapper mapper = MapUtils.getMapper();
+        SerializationConfig config = mapper.getSerializationConfig();
+        JsonSerializer<Object> serializer;
+        try {
+            serializer = mapper.getSerializerProviderInstance().findTypedValueSerializer(type, true, null);
+        } catch (JsonMappingException e) {
+            return null;
+        }
+        if (serializer.getClass() != BeanSerializer.class || serializer.usesObjectId()) {
+            return null;
+        }
+        JavaType javaType = config.constructType(type);
+        BeanDescription description = config.introspect(javaType);
+        if (description.findAnyGetter() != null) {
+            return null;
+        }
+        JsonInclude.Value defaultInclusion = config.getDefaultPropertyInclusion(type);
+        for (BeanPropertyDefinition definition : description.findProperties()) {
+            JsonInclude.Value inclusion = defaultInclusion.withOverrides(definition.findInclusion());
+            if (!SUPPORTED_INCLUSIONS.contains(inclusion.getValueInclusion()) || !SUPPORTED_INCLUSIONS.contains(inclusion.getContentInclusion())) {
+                return null;
+            }
+        }
+        List<Property> properties = new ArrayList<>();
+        for (Iterator<PropertyWriter> writers = serializer.properties(); writers.hasNext(); ) {
+            PropertyWriter writer = writers.next();
+            if (writer.getClass() != BeanPropertyWriter.class || writer.getAnnotation(JsonSerialize.class) != null
+                    || writer.getAnnotation(JsonFormat.class) != null || writer.getAnnotation(JsonRawValue.class) != null) {
+                return null;
+            }
+            MethodHandle getter = findGetter(writer.getMember());
+            if (getter == null) {
+                return null;
+            }
+            properties.add(new Property(writer.getName(), getter, ((BeanPropertyWriter) writer).willSuppressNulls()));
+        }
+        return Collections.unmodifiableList(properties);
+    }
+
+    private static MethodHandle findGetter(AnnotatedMember member) {
+        try {
+            if (member instanceof AnnotatedMethod) {
+                Method method = ((AnnotatedMethod) member).getAnnotated();
+                setAccessible(method);
+                return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            } else if (member instanceof AnnotatedField) {
+                Field field = ((AnnotatedField) member).getAnnotated();
+                setAccessible(field);
+                return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            }
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static void setAccessible(AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+        } catch (SecurityException e) {
+            // the lookup tells whether it can be read anyway
+        }
+    }
+
+    /**
+     * Values converted to a map keep their class only when they are strings, booleans, integers, longs or doubles;
+     * the rest are converted on their own, as the map conversion would.
+     */
+    static Object convertValue(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Integer || value instanceof Long
+                || value instanceof Double) {
+            return value;
+        }
+        return MapUtils.convertValue(value);
+    }
+
+    /**
+     * One entry of the map the expected instance would be converted to.
+     */
+    static final class Property {
+        private final String name;
+        private final MethodHandle getter;
+        private final boolean omitsNull;
+
+        private Property(String name, MethodHandle getter, boolean omitsNull) {
+            this.name = name;
+            this.getter = getter;
+            this.omitsNull = omitsNull;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return whether the map has no entry for the property when its value is null
+         */
+        boolean omitsNull() {
+            return omitsNull;
+        }
+
+        /**
+         * @throws InvocationTargetException wrapping what the getter throws
+         */
+        Object get(Object instance) throws InvocationTargetException {
+            try {
+                return getter.invokeExact(instance);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.crowdar.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Differences between an actual and an expected list whose elements are matched regardless of their order, in linear time.
+ * With key fields, elements are matched by the values of those fields through a hash map, so an element whose other fields differ
+ * is reported as changed. Without them, elements are matched by a hash of their simple fields, nested objects included, and
+ * confirmed field by field, so a differing element is reported as missing and extra. Elements that only differ in their nested
+ * lists share a hash and are confirmed one by one. The expected elements are assumed to have the fields of the first one.
+ * Nested lists are matched by content in the same way, without sorting them.
+ * Fields are read and compared as {@link ValidateUtils#validateFields(Object, Object)} does: the expected element converted to a
+ * map, the actual one through its getters. Lists with at least parallelThreshold elements are converted and compared on the
+ * fork/join common pool.
+ */
+public final class ListDiff {
+
+    private static final int MAX_REPORTED = 50;
+
+    private final int actualSize;
+    private final int expectedSize;
+    private final List<Element> missing;
+    private final List<Element> extra;
+    private final List<ChangedElement> changed;
+
+    private ListDiff(int actualSize, int expectedSize, List<Element> missing, List<Element> extra, List<ChangedElement> changed) {
+        this.actualSize = actualSize;
+        this.expectedSize = expectedSize;
+        this.missing = missing;
+        this.extra = extra;
+        this.changed = changed;
+    }
+
+    /**
+     * @param keys expected field names that identify an element, as in the expected json; none to match by content
+     */
+    public static <T> ListDiff of(List<T> actualList, List<T> expectedList, int parallelThreshold, String... keys) throws InvocationTargetException {
+        boolean parallel = Math.max(actualList.size(), expectedList.size()) >= parallelThreshold;
+        List<Map<String, Object>> expectedMaps = map(expectedList.size(), parallel, i -> MapUtils.convertObjectToMap(expectedList.get(i)));
+        return keys.length > 0 ? byKey(actualList, expectedMaps, parallel, keys) : byContent(actualList, expectedMaps, parallel);
+    }
+
+    private static <T> ListDiff byKey(List<T> actualList, List<Map<String, Object>> expectedMaps, boolean parallel, String[] keys)
+            throws InvocationTargetException {
+        List<Object> actualKeys = map(actualList.size(), parallel, i -> getActualKey(actualList.get(i), keys));
+        List<Object> expectedKeys = map(expectedMaps.size(), parallel, i -> getExpectedKey(expectedMaps.get(i), keys));
+        Map<Object, Integer> actualByKey = new HashMap<>(actualList.size() * 4 / 3 + 1);
+        List<Element> extra = new ArrayList<>();
+        for (int i = 0; i < actualList.size(); i++) {
+            if (actualByKey.putIfAbsent(actualKeys.get(i), i) != null) {
+                extra.add(new Element(actualKeys.get(i), i, actualList.get(i)));
+            }
+        }
+        List<Element> missing = new ArrayList<>();
+        int[] matches = new int[expectedMaps.size()];
+        for (int i = 0; i < expectedMaps.size(); i++) {
+            Integer actualIndex = actualByKey.remove(expectedKeys.get(i));
+            matches[i] = actualIndex == null ? -1 : actualIndex;
+            if (actualIndex == null) {
+                missing.add(new Element(expectedKeys.get(i), i, expectedMaps.get(i)));
+            }
+        }
+        for (Map.Entry<Object, Integer> unmatched : actualByKey.entrySet()) {
+            extra.add(new Element(unmatched.getKey(), unmatched.getValue(), actualList.get(unmatched.getValue())));
+        }
+        List<List<FieldDiff>> fieldDiffs = map(expectedMaps.size(), parallel,
+                i -> matches[i] < 0 ? Collections.<FieldDiff>emptyList() : compare(expectedMaps.get(i), actualList.get(matches[i])));
+        List<ChangedElement> changed = new ArrayList<>();
+        for (int i = 0; i < expectedMaps.size(); i++) {
+            if (!fieldDiffs.get(i).isEmpty()) {
+                changed.add(new ChangedElement(expectedKeys.get(i), i, matches[i], fieldDiffs.get(i)));
+            }
+        }
+        extra.sort((first, second) -> Integer.compare(first.index, second.index));
+        return new ListDiff(actualList.size(), expectedMaps.size(), missing, extra, changed);
+    }
+
+    private static <T> ListDiff byContent(List<T> actualList, List<Map<String, Object>> expectedMaps, boolean parallel)
+            throws InvocationTargetException {
+        HashShape shape = expectedMaps.isEmpty() ? new HashShape(Collections.<String, Object>emptyMap()) : new HashShape(expectedMaps.get(0));
+        List<Integer> actualHashes = map(actualList.size(), parallel, i -> getActualHash(actualList.get(i), shape));
+        Map<Integer, Deque<Integer>> actualByHash = new HashMap<>(actualList.size() * 4 / 3 + 1);
+        for (int i = 0; i < actualList.size(); i++) {
+            actualByHash.computeIfAbsent(actualHashes.get(i), hash -> new ArrayDeque<>()).addLast(i);
+        }
+        List<Element> missing = new ArrayList<>();
+        for (int i = 0; i < expectedMaps.size(); i++) {
+            Map<String, Object> expectedMap = expectedMaps.get(i);
+            Deque<Integer> candidates = actualByHash.get(getExpectedHash(expectedMap, shape));
+            if (!removeMatch(candidates, expectedMap, actualList)) {
+                missing.add(new Element(null, i, expectedMap));
+            }
+        }
+        List<Element> extra = new ArrayList<>();
+        for (Deque<Integer> unmatched : actualByHash.values()) {
+            for (Integer index : unmatched) {
+                extra.add(new Element(null, index, actualList.get(index)));
+            }
+        }
+        extra.sort((first, second) -> Integer.compare(first.index, second.index));
+        return new ListDiff(actualList.size(), expectedMaps.size(), missing, extra, Collections.<ChangedElement>emptyList());
+    }
+
+    private static <T> boolean removeMatch(Deque<Integer> candidates, Map<String, Object> expectedMap, List<T> actualList)
+            throws InvocationTargetException {
+        if (candidates == null) {
+            return false;
+        }
+        Iterator<Integer> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            if (compare(expectedMap, actualList.get(iterator.next())).isEmpty()) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the differences between the expected map and the actual object, with the path of each field
+     */
+    static List<FieldDiff> compare(Map<String, Object> expectedMap, Object actual) throws InvocationTargetException {
+        List<FieldDiff> diffs = new ArrayList<>();
+        compare(expectedMap, actual, "", diffs);
+        return diffs;
+    }
+
+    private static void compare(Map<String, Object> expectedMap, Object actual, String path, List<FieldDiff> diffs) throws InvocationTargetException {
+        ValidationPlan plan = ValidationPlan.of(actual.getClass());
+        for (Map.Entry<String, Object> entry : expectedMap.entrySet()) {
+            ValidationPlan.Field field = plan.getField(entry.getKey());
+            String fieldPath = path.isEmpty() ? entry.getKey() : path + "." + entry.getKey();
+            Object expectedValue = entry.getValue();
+            if (!field.exists()) {
+                diffs.add(new FieldDiff(fieldPath, expectedValue, null, field.getNotFoundMessage()));
+                continue;
+            }
+            Object actualValue = field.get(actual);
+            if (ValidateUtils.isListModelClass(actualValue)) {
+                compareLists((List<Object>) actualValue, expectedValue, fieldPath, diffs);
+            } else if (ValidateUtils.isModelClass(actualValue)) {
+                Map<String, Object> nestedMap = expectedValue instanceof Map ? (Map<String, Object>) expectedValue : MapUtils.convertObjectToMap(expectedValue);
+                if (nestedMap == null) {
+                    diffs.add(new FieldDiff(fieldPath, null, actualValue, field.getInvalidKeyMessage()));
+                } else {
+                    compare(nestedMap, actualValue, fieldPath, diffs);
+                }
+            } else if (expectedValue != null && actualValue != null && actualValue.getClass() != expectedValue.getClass()
+                    && !(actualValue instanceof List && expectedValue instanceof List)) {
+                diffs.add(new FieldDiff(fieldPath, expectedValue, actualValue, field.getInvalidFormatMessage()));
+            } else if (!Objects.equals(actualValue, expectedValue)) {
+                diffs.add(new FieldDiff(fieldPath, expectedValue, actualValue, field.getInvalidKeyMessage()));
+            }
+        }
+    }
+
+    /**
+     * Nested lists are matched by content regardless of their order; each unmatched element is reported with its index in its list.
+     */
+    private static void compareLists(List<Object> actualList, Object expectedValue, String path, List<FieldDiff> diffs) throws InvocationTargetException {
+        if (!(expectedValue instanceof List) || ((List<?>) expectedValue).size() != actualList.size()) {
+            diffs.add(new FieldDiff(path, expectedValue, actualList, "Size of the lists is not the same."));
+            return;
+        }
+        List<Map<String, Object>> expectedMaps = new ArrayList<>(actualList.size());
+        for (Object expected : (List<?>) expectedValue) {
+            expectedMaps.add(expected instanceof Map ? (Map<String, Object>) expected : MapUtils.convertObjectToMap(expected));
+        }
+        ListDiff nested = byContent(actualList, expectedMaps, false);
+        for (Element element : nested.missing) {
+            diffs.add(new FieldDiff(path + "[" + element.index + "]", element.value, null, "Expected element of the list was not found."));
+        }
+        for (Element element : nested.extra) {
+            diffs.add(new FieldDiff(path + "[" + element.index + "]", null, element.value, "Actual element of the list was not expected."));
+        }
+    }
+
+    private static Object getActualKey(Object actual, String[] keys) throws InvocationTargetException {
+        ValidationPlan plan = ValidationPlan.of(actual.getClass());
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ValidationPlan.Field field = plan.getField(keys[i]);
+            if (!field.exists()) {
+                throw new IllegalArgumentException(field.getNotFoundMessage());
+            }
+            values[i] = normalizeKey(field.get(actual));
+        }
+        return keys.length == 1 ? values[0] : Arrays.asList(values);
+    }
+
+    private static Object getExpectedKey(Map<String, Object> expectedMap, String[] keys) {
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = normalizeKey(expectedMap.get(keys[i]));
+        }
+        return keys.length == 1 ? values[0] : Arrays.asList(values);
+    }
+
+    /**
+     * Integral numbers are compared as longs, so an Integer id of the expected matches a Long id of the actual.
+     */
+    private static Object normalizeKey(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            return ((BigInteger) value).longValue();
+        }
+        return value;
+    }
+
+    /**
+     * Equal elements hash the same: simple values by their own hash, nested objects by the hash of their fields and lists by
+     * their size, on both sides.
+     */
+    private static int getActualHash(Object actual, HashShape shape) throws InvocationTargetException {
+        ValidationPlan plan = ValidationPlan.of(actual.getClass());
+        int hash = 1;
+        for (Map.Entry<String, HashShape> key : shape.keys.entrySet()) {
+            ValidationPlan.Field field = plan.getField(key.getKey());
+            Object value = field.exists() ? field.get(actual) : null;
+            int valueHash;
+            if (value instanceof List) {
+                valueHash = ((List<?>) value).size();
+            } else if (value instanceof Map) {
+                valueHash = key.getValue() == null ? 0 : getExpectedHash((Map<String, Object>) value, key.getValue());
+            } else if (ValidateUtils.isModelClass(value)) {
+                valueHash = key.getValue() == null ? 0 : getActualHash(value, key.getValue());
+            } else {
+                valueHash = Objects.hashCode(value);
+            }
+            hash = 31 * hash + valueHash;
+        }
+        return hash;
+    }
+
+    private static int getExpectedHash(Map<String, Object> expectedMap, HashShape shape) {
+        int hash = 1;
+        for (Map.Entry<String, HashShape> key : shape.keys.entrySet()) {
+            Object value = expectedMap.get(key.getKey());
+            int valueHash;
+            if (value instanceof List) {
+                valueHash = ((List<?>) value).size();
+            } else if (value instanceof Map) {
+                valueHash = key.getValue() == null ? 0 : getExpectedHash((Map<String, Object>) value, key.getValue());
+            } else if (ValidateUtils.isModelClass(value)) {
+                valueHash = 0;
+            } else {
+                valueHash = Objects.hashCode(value);
+            }
+            hash = 31 * hash + valueHash;
+        }
+        return hash;
+    }
+
+    private static <R> List<R> map(int size, boolean parallel, IndexFunction<R> function) throws InvocationTargetException {
+        Object[] results = new Object[size];
+        IntStream indexes = parallel ? IntStream.range(0, size).parallel() : IntStream.range(0, size);
+        try {
+            indexes.forEach(i -> {
+                try {
+                    results[i] = function.apply(i);
+                } catch (InvocationTargetException e) {
+                    throw new WrappedException(e);
+                }
+            });
+        } catch (WrappedException e) {
+            throw e.getCause();
+        }
+        return (List<R>) Arrays.asList(results);
+    }
+
+    public boolean isEmpty() {
+        return missing.isEmpty() && extra.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @return expected elements without an actual one, as converted maps
+     */
+    public List<Element> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return actual elements without an expected one
+     */
+    public List<Element> getExtra() {
+        return extra;
+    }
+
+    public List<ChangedElement> getChanged() {
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return String.format("The %d actual elements match the %d expected.", actualSize, expectedSize);
+        }
+        StringBuilder report = new StringBuilder(String.format("%d actual and %d expected elements: %d missing, %d extra, %d changed.",
+                actualSize, expectedSize, missing.size(), extra.size(), changed.size()));
+        int reported = 0;
+        for (Element element : missing) {
+            if (reported++ >= MAX_REPORTED) {
+                break;
+            }
+            report.append(System.lineSeparator()).append("Missing ").append(element);
+        }
+        for (Element element : extra) {
+            if (reported++ >= MAX_REPORTED) {
+                break;
+            }
+            report.append(System.lineSeparator()).append("Extra ").append(element);
+        }
+        for (ChangedElement element : changed) {
+            if (reported++ >= MAX_REPORTED) {
+                break;
+            }
+            report.append(System.lineSeparator()).append("Changed ").append(element);
+        }
+        int total = missing.size() + extra.size() + changed.size();
+        if (total > MAX_REPORTED) {
+            report.append(System.lineSeparator()).append("... and ").append(total - MAX_REPORTED).append(" more.");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Fields hashed to match elements by content, read from the first expected element: each key with the fields of its nested
+     * object, or null when the value is not an object.
+     */
+    private static final class HashShape {
+        private final Map<String, HashShape> keys = new LinkedHashMap<>();
+
+        HashShape(Map<String, Object> expectedMap) {
+            for (Map.Entry<String, Object> entry : expectedMap.entrySet()) {
+                keys.put(entry.getKey(), entry.getValue() instanceof Map ? new HashShape((Map<String, Object>) entry.getValue()) : null);
+            }
+        }
+    }
+
+    private interface IndexFunction<R> {
+        R apply(int index) throws InvocationTargetException;
+    }
+
+    private static final class WrappedException extends RuntimeException {
+        WrappedException(InvocationTargetException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized InvocationTargetException getCause() {
+            return (InvocationTargetException) super.getCause();
+        }
+    }
+
+    /**
+     * Element of one of the lists, with its key when matched by key and its position in its list.
+     */
+    public static final class Element {
+        private final Object key;
+        private final int index;
+        private final Object value;
+
+        Element(Object key, int index, Object value) {
+            this.key = key;
+            this.index = index;
+            this.value = value;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return (key != null ? "key " + key + " at " : "at ") + index + ": " + value;
+        }
+    }
+
+    /**
+     * Expected and actual elements with the same key whose fields differ.
+     */
+    public static final class ChangedElement {
+        private final Object key;
+        private final int expectedIndex;
+        private final int actualIndex;
+        private final List<FieldDiff> fields;
+
+        ChangedElement(Object key, int expectedIndex, int actualIndex, List<FieldDiff> fields) {
+            this.key = key;
+            this.expectedIndex = expectedIndex;
+            this.actualIndex = actualIndex;
+            this.fields = fields;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public int getExpectedIndex() {
+            return expectedIndex;
+        }
+
+        public int getActualIndex() {
+            return actualIndex;
+        }
+
+        public List<FieldDiff> getFields() {
+            return fields;
+        }
+
+        @Override
+        public String toString() {
+            return "key " + key + " (expected at " + expectedIndex + ", actual at " + actualIndex + "): " + fields;
+        }
+    }
+
+    /**
+     * Field of an element, by its path from the element, whose value differs.
+     */
+    public static final class FieldDiff {
+        private final String path;
+        private final Object expected;
+        private final Object actual;
+        private final String message;
+
+        FieldDiff(String path, Object expected, Object actual, String message) {
+            this.path = path;
+            this.expected = expected;
+            this.actual = actual;
+            this.message = message;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Object getExpected() {
+            return expected;
+        }
+
+        public Object getActual() {
+            return actual;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return path + " expected [" + expected + "] but found [" + actual + "]";
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.util.TreeMap;
 
 public class MapUtils {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static TreeMap<String, Object> sortMap(Object object) {
         return sortMap(convertObjectToMap(object));
     }
@@ -22,8 +24,18 @@ public class MapUtils {
     }
 
     public static Map<String, Object> convertObjectToMap(Object object) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(object, Map.class);
+        return MAPPER.convertValue(object, Map.class);
+    }
+
+    /**
+     * @return the value as it is kept in a map converted by {@link #convertObjectToMap}
+     */
+    static Object convertValue(Object value) {
+        return MAPPER.convertValue(value, Object.class);
+    }
+
+    static ObjectMapper getMapper() {
+        return MAPPER;
     }
 
     public static Map<String, String> splitIntoMap(String inputParameters, String splitter, String keyValueSeparator) {
@@ -1,147 +1,147 @@
 package com.crowdar.util;
 
-import org.apache.commons.lang.WordUtils;
-import org.apache.log4j.Logger;
+import com.crowdar.core.Constants;
 import org.testng.Assert;
 
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class ValidateUtils {
-    private static final String GETTER_NAME = "get";
-    private static final String SORT_NAME_METHOD = "sort";
 
     private static final String ERROR_LIST_SIZES = "Size of the lists is not the same.";
-    private static final String ERROR_INVALID_KEY = "%s field is invalid. Class: %s";
-    private static final String ERROR_INVALID_FORMAT = "%s format is invalid. Class: %s";
-    private static final String ERROR_METHOD_NOT_FOUND = "Method %s was not found in: %s";
-
-    private static String methodName;
-
-    private static String getMethodName() {
-        return methodName;
-    }
-
-    private static void setMethodName(String methodName) {
-        ValidateUtils.methodName = methodName;
-    }
 
+    /**
+     * Sorts both lists with the static sort(List) method of their class and validates the elements by position, failing on
+     * the first field that differs. Nested lists of models are validated the same way. To match the elements regardless of
+     * their order use {@link #validateFieldsByKey} or {@link #validateFieldsUnordered}.
+     */
     public static <T> void validateFields(List<T> actualList, List<T> expectedList) throws Exception {
         Class expectedClass = expectedList.iterator().next().getClass();
         Class actualClass = actualList.iterator().next().getClass();
-        sort(expectedList, expectedClass);
-        sort(actualList, actualClass);
+        ValidationPlan.of(expectedClass).sort(expectedList);
+        ValidationPlan.of(actualClass).sort(actualList);
         FileUtils.writeListOutputs(actualList, expectedList);
         Assert.assertEquals(actualList.size(), expectedList.size(), ERROR_LIST_SIZES);
         validateListFields(actualList, expectedList);
     }
 
-    private static <T> void sort(List<T> expectedList, Class expectedClass) throws IllegalAccessException, InvocationTargetException {
-        try {
-            expectedClass.getMethod(SORT_NAME_METHOD, List.class).invoke("", expectedList);
-        } catch (NoSuchMethodException e) {
-            Logger.getLogger(ValidateUtils.class).warn(">>> 'sort' method was not found in ".concat(expectedClass.toGenericString()).concat(". Proceeding without sorting the list."));
-        }
-    }
-
-    private static <T> void validateListFields(List<T> actualList, List<T> expectedList) throws Exception {
+    static <T> void validateListFields(List<T> actualList, List<T> expectedList) throws Exception {
         int counter = 0;
         for (Object expected : expectedList) {
-            Map<String, Object> expectedMap = MapUtils.convertObjectToMap(expected);
             Object actual = actualList.get(counter);
-            validateFields(expectedMap, actual);
+            validateObject(expected, actual);
             counter++;
         }
     }
 
-    public static void validateFields(Object expected, Object actual) throws Exception {
-        Iterator<Map.Entry> expectedItr = MapUtils.getIterator(MapUtils.convertObjectToMap(expected));
-        Class actualClass = actual.getClass();
-        while (expectedItr.hasNext()) {
-            Map.Entry<String, Object> entry = expectedItr.next();
-
-            String expectedKey = entry.getKey();
-            Object expectedValue = entry.getValue();
-
-            setMethodName(GETTER_NAME.concat(getBasicKey(expectedKey)));
-            Object actualValue = tryGetMethodValue(actual, actualClass, expectedKey);
-            boolean isModel = isModelClass(actualValue);
-            boolean isListModel = isListModelClass(actualValue);
-            validateFieldsWhileModelList(expectedValue, actualValue, isListModel);
-            validateFieldsWhileModel(expectedValue, actualValue, isModel);
-            if (!isModel && !isListModel) {
-                doAssertions(actualClass, expectedKey, expectedValue, actualValue);
-            }
+    /**
+     * Validates the lists regardless of their order, matching each expected element with the actual one that has the same
+     * values in the key fields. Fails once with every missing, extra and changed element.
+     *
+     * @param keys expected field names, as in the expected json, that identify an element
+     */
+    public static <T> void validateFieldsByKey(List<T> actualList, List<T> expectedList, String... keys) throws Exception {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("At least one key field is required");
         }
+        assertNoDifferences(ListDiff.of(actualList, expectedList, Constants.getApiValidationParallelThreshold(), keys));
     }
 
-    private static void doAssertions(Class actualClass, String expectedKey, Object expectedValue, Object actualValue) {
-        if (expectedValue != null && actualValue != null) {
-            Assert.assertEquals(actualValue.getClass(), expectedValue.getClass(), String.format(ERROR_INVALID_FORMAT, expectedKey.toUpperCase(), actualClass.getSimpleName()));
-        }
-        Assert.assertEquals(actualValue, expectedValue, String.format(ERROR_INVALID_KEY, expectedKey.toUpperCase(), actualClass.getSimpleName()));
+    /**
+     * Validates the lists regardless of their order, for elements without key fields. Fails once with every missing and extra element.
+     */
+    public static <T> void validateFieldsUnordered(List<T> actualList, List<T> expectedList) throws Exception {
+        assertNoDifferences(ListDiff.of(actualList, expectedList, Constants.getApiValidationParallelThreshold()));
     }
 
-    private static void validateFieldsWhileModel(Object expectedValue, Object actualValue, boolean isModel) throws Exception {
-        while (isModel) {
-            validateFields(expectedValue, actualValue);
-            break;
+    private static void assertNoDifferences(ListDiff diff) {
+        if (!diff.isEmpty()) {
+            Assert.fail(diff.toString());
         }
     }
 
-    private static void validateFieldsWhileModelList(Object expectedValue, Object actualValue, boolean isListModel) throws Exception {
-        while (isListModel) {
-            List<Object> actualList = (List<Object>) actualValue;
-            List<Object> expectedList = (List<Object>) expectedValue;
-            validateFields(actualList, expectedList);
-            break;
+    public static void validateFields(Object expected, Object actual) throws Exception {
+        validateObject(expected, actual);
+    }
+
+    /**
+     * Validates the properties of the expected object as {@link MapUtils#convertObjectToMap} would see them, reading them
+     * through the {@link ExpectedPlan} of its class instead of converting it, unless the class has no plan.
+     */
+    private static void validateObject(Object expected, Object actual) throws Exception {
+        ExpectedPlan expectedPlan = expected == null ? null : ExpectedPlan.of(expected.getClass());
+        if (expectedPlan == null || !expectedPlan.isSupported()) {
+            validateMap(MapUtils.convertObjectToMap(expected), actual);
+            return;
+        }
+        ValidationPlan plan = ValidationPlan.of(actual.getClass());
+        for (ExpectedPlan.Property property : expectedPlan.getProperties()) {
+            Object expectedValue = property.get(expected);
+            if (expectedValue == null && property.omitsNull()) {
+                continue;
+            }
+            ValidationPlan.Field field = plan.getField(property.getName());
+            Object actualValue = getValue(field, actual);
+            boolean nestedPlan = isModelClass(actualValue) && expectedValue != null && ExpectedPlan.of(expectedValue.getClass()).isSupported();
+            validateValue(field, nestedPlan ? expectedValue : ExpectedPlan.convertValue(expectedValue), actualValue);
         }
     }
 
-    private static boolean isModelClass(Object object) {
-        return !(object == null || object instanceof String || object instanceof Integer || object instanceof Double || object instanceof Boolean || object instanceof Map || object instanceof Float || object instanceof BigDecimal || object instanceof List);
-    }
-
-    private static boolean isListModelClass(Object object) {
-        if (object instanceof List) {
-            List<Object> objects = (List<Object>) object;
-            return isModelClass(objects.iterator().next());
+    /**
+     * @param expectedMap expected object already converted by {@link MapUtils#convertObjectToMap}
+     */
+    static void validateMap(Map<String, Object> expectedMap, Object actual) throws Exception {
+        ValidationPlan plan = ValidationPlan.of(actual.getClass());
+        for (Map.Entry<String, Object> entry : expectedMap.entrySet()) {
+            ValidationPlan.Field field = plan.getField(entry.getKey());
+            validateValue(field, entry.getValue(), getValue(field, actual));
         }
-        return false;
     }
 
-    private static Object tryGetMethodValue(Object actual, Class actualClass, String expectedKey) throws IllegalAccessException, InvocationTargetException {
-        try {
-            return getMethodValue(actual, actualClass, getMethodName());
-        } catch (NoSuchMethodException e) {
-            Logger.getLogger(ValidateUtils.class).warn(">>> Method ".concat(getMethodName()).concat(" was not found. Trying with capitalize."));
-            setMethodName(GETTER_NAME.concat(getFullKey(expectedKey)));
-            return tryWithCapitalizeAndReplace(actual, actualClass);
+    private static void validateValue(ValidationPlan.Field field, Object expectedValue, Object actualValue) throws Exception {
+        if (isListModelClass(actualValue)) {
+            validateFields((List<Object>) actualValue, (List<Object>) expectedValue);
+        } else if (isModelClass(actualValue)) {
+            if (expectedValue instanceof Map) {
+                validateMap((Map<String, Object>) expectedValue, actualValue);
+            } else {
+                validateObject(expectedValue, actualValue);
+            }
+        } else {
+            doAssertions(field, expectedValue, actualValue);
         }
     }
 
-    private static Object tryWithCapitalizeAndReplace(Object actual, Class actualClass) throws IllegalAccessException, InvocationTargetException {
-        Object value = null;
-        try {
-            value = getMethodValue(actual, actualClass, getMethodName());
-        } catch (NoSuchMethodException e1) {
-            Assert.assertTrue(false, String.format(ERROR_METHOD_NOT_FOUND, getMethodName(), actualClass.toGenericString()));
+    /**
+     * Lists are compared by size and elements whatever their class, so an empty actual list matches an empty expected one.
+     */
+    private static void doAssertions(ValidationPlan.Field field, Object expectedValue, Object actualValue) {
+        if (expectedValue instanceof List && actualValue instanceof List) {
+            Assert.assertEquals(((List<?>) actualValue).size(), ((List<?>) expectedValue).size(), ERROR_LIST_SIZES + " " + field.getInvalidKeyMessage());
+        } else if (expectedValue != null && actualValue != null) {
+            Assert.assertEquals(actualValue.getClass(), expectedValue.getClass(), field.getInvalidFormatMessage());
         }
-        return value;
+        Assert.assertEquals(actualValue, expectedValue, field.getInvalidKeyMessage());
     }
 
-    private static String getFullKey(String expectedKey) {
-        return WordUtils.capitalizeFully(expectedKey, new char[]{' ', '_', '.'}).replaceAll("\\s", "").replaceAll("_", "").replaceAll("\\.", "");
+    static boolean isModelClass(Object object) {
+        return !(object == null || object instanceof String || object instanceof Integer || object instanceof Double || object instanceof Boolean || object instanceof Map || object instanceof Float || object instanceof BigDecimal || object instanceof List);
     }
 
-    private static String getBasicKey(String expectedKey) {
-        return WordUtils.capitalize(expectedKey).replaceAll("\\s", "");
+    static boolean isListModelClass(Object object) {
+        if (object instanceof List) {
+            List<Object> objects = (List<Object>) object;
+            return !objects.isEmpty() && isModelClass(objects.get(0));
+        }
+        return false;
     }
 
-    private static Object getMethodValue(Object actual, Class actualClass, String methodName) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        return actualClass.getMethod(methodName).invoke(actual);
+    private static Object getValue(ValidationPlan.Field field, Object actual) throws InvocationTargetException {
+        if (!field.exists()) {
+            Assert.assertTrue(false, field.getNotFoundMessage());
+        }
+        return field.get(actual);
     }
 }
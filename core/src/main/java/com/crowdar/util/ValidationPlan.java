@@ -0,0 +1,164 @@
+package com.crowdar.util;
+
+import org.apache.commons.lang.WordUtils;
+import org.apache.log4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Getters and sort method of one class as used by {@link ValidateUtils}, resolved once into method handles.
+ * The getter of an expected key is get + the key capitalized, or else get + the key capitalized by words separated by
+ * ' ', '_' or '.', so first_name is read with getFirstName. Plans are kept per class and are safe to share between threads.
+ */
+final class ValidationPlan {
+
+    private static final String GETTER_NAME = "get";
+    private static final String SORT_NAME_METHOD = "sort";
+    private static final char[] KEY_DELIMITERS = {' ', '_', '.'};
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SORT_TYPE = MethodType.methodType(void.class, List.class);
+
+    private static final String ERROR_INVALID_KEY = "%s field is invalid. Class: %s";
+    private static final String ERROR_INVALID_FORMAT = "%s format is invalid. Class: %s";
+    private static final String ERROR_METHOD_NOT_FOUND = "Method %s was not found in: %s";
+
+    private static final ClassValue<ValidationPlan> PLANS = new ClassValue<ValidationPlan>() {
+        @Override
+        protected ValidationPlan computeValue(Class<?> type) {
+            return new ValidationPlan(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final MethodHandle sort;
+    private final Map<String, Field> fields = new ConcurrentHashMap<>();
+
+    private ValidationPlan(Class<?> type) {
+        this.type = type;
+        this.sort = findSort(type);
+    }
+
+    static ValidationPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Sorts the list with the static sort(List) method of the class, if it has one.
+     */
+    void sort(List<?> list) throws InvocationTargetException {
+        if (sort == null) {
+            return;
+        }
+        try {
+            sort.invokeExact((List) list);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    Field getField(String key) {
+        Field field = fields.get(key);
+        if (field == null) {
+            field = fields.computeIfAbsent(key, this::resolve);
+        }
+        return field;
+    }
+
+    private Field resolve(String key) {
+        String simpleName = type.getSimpleName();
+        String upperKey = key.toUpperCase();
+        String getterName = GETTER_NAME.concat(WordUtils.capitalize(key).replaceAll("\\s", ""));
+        MethodHandle getter = findGetter(getterName);
+        if (getter == null) {
+            Logger.getLogger(ValidateUtils.class).warn(">>> Method ".concat(getterName).concat(" was not found. Trying with capitalize."));
+            getterName = GETTER_NAME.concat(WordUtils.capitalizeFully(key, KEY_DELIMITERS).replaceAll("\\s", "").replaceAll("_", "").replaceAll("\\.", ""));
+            getter = findGetter(getterName);
+        }
+        return new Field(getter, String.format(ERROR_INVALID_KEY, upperKey, simpleName), String.format(ERROR_INVALID_FORMAT, upperKey, simpleName),
+                String.format(ERROR_METHOD_NOT_FOUND, getterName, type.toGenericString()));
+    }
+
+    private MethodHandle findGetter(String name) {
+        try {
+            Method method = type.getMethod(name);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method " + name + " of " + type.getName() + " can not be called", e);
+        }
+    }
+
+    private static MethodHandle findSort(Class<?> type) {
+        Method method;
+        try {
+            method = type.getMethod(SORT_NAME_METHOD, List.class);
+        } catch (NoSuchMethodException e) {
+            Logger.getLogger(ValidateUtils.class).warn(">>> 'sort' method was not found in ".concat(type.toGenericString()).concat(". Proceeding without sorting the list."));
+            return null;
+        }
+        if (!Modifier.isStatic(method.getModifiers())) {
+            Logger.getLogger(ValidateUtils.class).warn(">>> 'sort' method of ".concat(type.toGenericString()).concat(" is not static. Proceeding without sorting the list."));
+            return null;
+        }
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(SORT_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method sort of " + type.getName() + " can not be called", e);
+        }
+    }
+
+    /**
+     * Getter of one expected key with the assertion messages about it.
+     */
+    static final class Field {
+        private final MethodHandle getter;
+        private final String invalidKeyMessage;
+        private final String invalidFormatMessage;
+        private final String notFoundMessage;
+
+        private Field(MethodHandle getter, String invalidKeyMessage, String invalidFormatMessage, String notFoundMessage) {
+            this.getter = getter;
+            this.invalidKeyMessage = invalidKeyMessage;
+            this.invalidFormatMessage = invalidFormatMessage;
+            this.notFoundMessage = notFoundMessage;
+        }
+
+        boolean exists() {
+            return getter != null;
+        }
+
+        /**
+         * @throws InvocationTargetException wrapping what the getter throws
+         */
+        Object get(Object instance) throws InvocationTargetException {
+            try {
+                return getter.invokeExact(instance);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        String getInvalidKeyMessage() {
+            return invalidKeyMessage;
+        }
+
+        String getInvalidFormatMessage() {
+            return invalidFormatMessage;
+        }
+
+        String getNotFoundMessage() {
+            return notFoundMessage;
+        }
+    }
+}
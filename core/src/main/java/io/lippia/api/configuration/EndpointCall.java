@@ -0,0 +1,80 @@
+package io.lippia.api.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Variable parts of one call to an EndpointDefinition: url parameters, extra headers and the body or the values to
+ * replace in the body of the definition. It belongs to a single call and it is not shared between threads.
+ */
+public class EndpointCall {
+
+	private Map<String, String> urlParameters;
+	private Map<String, String> headers;
+	private Map<String, String> bodyReplacements;
+	private String body;
+
+	public static EndpointCall create() {
+		return new EndpointCall();
+	}
+
+	public EndpointCall urlParameter(String key, String value) {
+		if (urlParameters == null) {
+			urlParameters = new HashMap<String, String>();
+		}
+		urlParameters.put(key, value);
+		return this;
+	}
+
+	public EndpointCall header(String key, String value) {
+		if (headers == null) {
+			headers = new HashMap<String, String>();
+		}
+		headers.put(key, value);
+		return this;
+	}
+
+	/**
+	 * Replaces the body of the definition.
+	 */
+	public EndpointCall body(String body) {
+		this.body = body;
+		return this;
+	}
+
+	/**
+	 * Replaces {{key}} with the value in the body, as EndpointConfiguration.replaceOnBody does.
+	 */
+	public EndpointCall replaceOnBody(String key, String value) {
+		if (bodyReplacements == null) {
+			bodyReplacements = new LinkedHashMap<String, String>();
+		}
+		bodyReplacements.put(key, value);
+		return this;
+	}
+
+	public Map<String, String> getUrlParameters() {
+		return urlParameters == null ? Collections.<String, String>emptyMap() : urlParameters;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers == null ? Collections.<String, String>emptyMap() : headers;
+	}
+
+	/**
+	 * @param definitionBody body of the EndpointDefinition
+	 * @return the body of the call with the replacements applied
+	 */
+	public String getBody(String definitionBody) {
+		String callBody = body == null ? definitionBody : body;
+		if (callBody == null || bodyReplacements == null) {
+			return callBody;
+		}
+		for (Map.Entry<String, String> replacement : bodyReplacements.entrySet()) {
+			callBody = callBody.replace("{{" + replacement.getKey() + "}}", replacement.getValue());
+		}
+		return callBody;
+	}
+}
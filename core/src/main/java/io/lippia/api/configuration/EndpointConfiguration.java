@@ -124,9 +124,43 @@ public class EndpointConfiguration {
 		return getInstance();
 	}
 	
+	/**
+	 * Marks the configuration as a token request: CallerService obtains the token at this json path of the response
+	 * once and sends it in the following calls.
+	 */
+	public static EndpointConfiguration tokenPath(String tokenPath) {
+		getInstance().setTokenPath(tokenPath);
+		return getInstance();
+	}
+	
 	public static EndpointConfiguration methodService(MethodServiceEnum methodServiceEnum) {
 		getInstance().setMethodService(methodServiceEnum);	
 		return getInstance();
 	}
 	
+	/**
+	 * @return an immutable EndpointDefinition with the configuration of the current thread, that can be kept and shared
+	 * between threads instead of configuring the endpoint again for each call
+	 */
+	public static EndpointDefinition toDefinition() {
+		EndpointConfiguration config = getInstance();
+		HttpConfiguration http = config.getHttConfiguration();
+		EndpointDefinition.Builder builder = EndpointDefinition.builder()
+				.url(http.getUrl())
+				.endpoint(http.getEndpoint())
+				.protocol(http.getProtocol())
+				.port(http.getPort())
+				.method(http.getMethod())
+				.body(config.getBody())
+				.tokenPath(config.getTokenPath())
+				.methodService(config.getMethodService());
+		for (Map.Entry<String, String> header : config.getHeaders().entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+		}
+		for (Map.Entry<String, String> urlParameter : config.getUrlParameters().entrySet()) {
+			builder.urlParameter(urlParameter.getKey(), urlParameter.getValue());
+		}
+		return builder.build();
+	}
+	
 }
@@ -0,0 +1,207 @@
+package io.lippia.api.configuration;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.crowdar.api.rest.Request;
+
+import io.lippia.api.service.MethodServiceEnum;
+
+/**
+ * Immutable endpoint, built once and shared by every thread. The url is assembled and parsed when it is built,
+ * headers and url parameters are frozen. The variable parts of each call go in an EndpointCall.
+ */
+public final class EndpointDefinition {
+
+	private static final List<String> HTTP_METHODS = Arrays.asList("get", "post", "put", "patch", "delete");
+
+	private final String method;
+	private final String url;
+	private final URI uri;
+	private final Map<String, String> headers;
+	private final Map<String, String> urlParameters;
+	private final String body;
+	private final String tokenPath;
+	private final MethodServiceEnum methodService;
+
+	private EndpointDefinition(Builder builder) {
+		this.method = builder.method.toLowerCase();
+		this.url = builder.getCompleteUrl();
+		this.uri = parse(this.url);
+		this.headers = Collections.unmodifiableMap(new LinkedHashMap<String, String>(builder.headers));
+		this.urlParameters = Collections.unmodifiableMap(new LinkedHashMap<String, String>(builder.urlParameters));
+		this.body = builder.body;
+		this.tokenPath = builder.tokenPath;
+		this.methodService = builder.methodService == null ? MethodServiceEnum.DEFAULT : builder.methodService;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the request for a call to this endpoint: the definition with the parameters, headers and body of the call on top
+	 */
+	public Request newRequest(EndpointCall call) {
+		Request request = new Request();
+		request.setUri(uri);
+
+		Map<String, String> requestHeaders = new HashMap<String, String>(headers);
+		Map<String, String> requestUrlParameters = new HashMap<String, String>(urlParameters);
+		String requestBody = body;
+		if (call != null) {
+			requestHeaders.putAll(call.getHeaders());
+			requestUrlParameters.putAll(call.getUrlParameters());
+			requestBody = call.getBody(body);
+		}
+		request.setHeaders(requestHeaders);
+		request.setUrlParameters(requestUrlParameters);
+		request.setBody(requestBody);
+		return request;
+	}
+
+	/**
+	 * @return http verb in lower case
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public URI getUri() {
+		return uri;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public Map<String, String> getUrlParameters() {
+		return urlParameters;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public String getTokenPath() {
+		return tokenPath;
+	}
+
+	public MethodServiceEnum getMethodService() {
+		return methodService;
+	}
+
+	@Override
+	public String toString() {
+		return method.toUpperCase() + " " + url;
+	}
+
+	private static URI parse(String url) {
+		try {
+			URI uri = new URI(url);
+			if (uri.getScheme() == null || uri.getHost() == null) {
+				throw new IllegalArgumentException("Endpoint url " + url + " must be absolute");
+			}
+			return uri;
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid endpoint url " + url, e);
+		}
+	}
+
+	public static class Builder {
+
+		private String url;
+		private String endpoint;
+		private String method;
+		private String protocol;
+		private String port;
+		private Map<String, String> headers = new LinkedHashMap<String, String>();
+		private Map<String, String> urlParameters = new LinkedHashMap<String, String>();
+		private String body;
+		private String tokenPath;
+		private MethodServiceEnum methodService;
+
+		private Builder() {
+		}
+
+		public Builder url(String url) {
+			this.url = url;
+			return this;
+		}
+
+		public Builder endpoint(String endpoint) {
+			this.endpoint = endpoint;
+			return this;
+		}
+
+		public Builder method(String method) {
+			this.method = method;
+			return this;
+		}
+
+		public Builder protocol(String protocol) {
+			this.protocol = protocol;
+			return this;
+		}
+
+		public Builder port(String port) {
+			this.port = port;
+			return this;
+		}
+
+		public Builder header(String key, String value) {
+			this.headers.put(key, value);
+			return this;
+		}
+
+		public Builder urlParameter(String key, String value) {
+			this.urlParameters.put(key, value);
+			return this;
+		}
+
+		public Builder body(String body) {
+			this.body = body;
+			return this;
+		}
+
+		public Builder tokenPath(String tokenPath) {
+			this.tokenPath = tokenPath;
+			return this;
+		}
+
+		public Builder methodService(MethodServiceEnum methodService) {
+			this.methodService = methodService;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException when the method is not an http verb or the url is not a valid absolute url
+		 */
+		public EndpointDefinition build() {
+			if (method == null || !HTTP_METHODS.contains(method.toLowerCase())) {
+				throw new IllegalArgumentException("Invalid endpoint method " + method + ", expected one of " + HTTP_METHODS);
+			}
+			return new EndpointDefinition(this);
+		}
+
+		private String getCompleteUrl() {
+			String completeUrl = HttpConfiguration.getCompleteUrl(protocol, url, port, endpoint);
+			if (StringUtils.isEmpty(completeUrl)) {
+				throw new IllegalArgumentException("Endpoint without url and base.api.url is not defined");
+			}
+			return completeUrl;
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package io.lippia.api.configuration;
 
+import org.apache.commons.lang.StringUtils;
+
+import com.crowdar.api.rest.APIManager;
+
 public class HttpConfiguration {
 	private String url;
 	private String endpoint;
@@ -38,4 +42,26 @@ public class HttpConfiguration {
 		this.port = port;
 	}
 	
+
+	/**
+	 * Url of an endpoint: the base.api.url when there is no url, otherwise protocol, url, port and endpoint.
+	 * Shared by the EndpointConfiguration calls and the EndpointDefinitions, so both build the same url.
+	 */
+	public static String getCompleteUrl(String protocol, String url, String port, String endpoint) {
+		if (StringUtils.isEmpty(url)) {
+			return APIManager.BASE_URL;
+		}
+		StringBuilder completeUrl = new StringBuilder();
+		if (protocol != null) {
+			completeUrl.append(protocol).append("://");
+		}
+		completeUrl.append(url);
+		if (port != null) {
+			completeUrl.append(':').append(port);
+		}
+		if (endpoint != null) {
+			completeUrl.append(endpoint);
+		}
+		return completeUrl.toString();
+	}
 }
@@ -11,12 +11,7 @@ import org.xml.sax.SAXException;
 public class DatabaseIntegerValueExtractor {
 	
 	public static int handle(List<Map<String, Object>> result, String varPath) throws ParserConfigurationException, SAXException, IOException {
-		
-		String[] varPaths = varPath.split("\\.");
-				
-		String index = varPaths[0].split("\\[")[0].replace("]", "");
-
-		return (Integer) result.get(Integer.parseInt(index)).get(varPaths[1]);
+		return DatabasePath.compile(varPath).getInt(result);
 	}
 	
 }
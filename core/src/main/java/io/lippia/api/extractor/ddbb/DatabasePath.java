@@ -0,0 +1,64 @@
+package io.lippia.api.extractor.ddbb;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.crowdar.database.ColumnarResult;
+
+/**
+ * Path [row].column over a query result, compiled once.
+ */
+final class DatabasePath {
+
+	private static final Map<String, DatabasePath> COMPILED = new ConcurrentHashMap<String, DatabasePath>();
+
+	private final String path;
+	private final int row;
+	private final String column;
+
+	private DatabasePath(String path) {
+		this.path = path;
+		int open = path.indexOf('[');
+		int close = path.indexOf(']', open + 1);
+		int dot = path.indexOf('.', close + 1);
+		if (open < 0 || close < 0 || dot < 0 || dot + 1 == path.length()) {
+			throw new IllegalArgumentException("Invalid database path " + path + ", expected [row].column");
+		}
+		try {
+			this.row = Integer.parseInt(path.substring(open + 1, close).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid row in database path " + path + ", expected [row].column");
+		}
+		this.column = path.substring(dot + 1).trim();
+	}
+
+	static DatabasePath compile(String path) {
+		DatabasePath compiled = COMPILED.get(path);
+		if (compiled == null) {
+			compiled = new DatabasePath(path);
+			COMPILED.put(path, compiled);
+		}
+		return compiled;
+	}
+
+	Object get(List<Map<String, Object>> result) {
+		if (result instanceof ColumnarResult) {
+			return ((ColumnarResult) result).get(row, column);
+		}
+		return result.get(row).get(column);
+	}
+
+	int getInt(List<Map<String, Object>> result) {
+		if (result instanceof ColumnarResult) {
+			ColumnarResult columnar = (ColumnarResult) result;
+			return columnar.getInt(row, columnar.getColumns().indexOf(column));
+		}
+		return ((Number) get(result)).intValue();
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
@@ -10,14 +10,8 @@ import org.xml.sax.SAXException;
 public class DatabaseStringValueExtractor{
     
 	public static String handle(List<Map<String, Object>> result, String varPath) throws ParserConfigurationException, SAXException, IOException {
-				
-		String[] varPaths = varPath.split("\\.");
-				
-		String index = varPaths[0].split("\\[")[1].replace("]", "");
-
-		return (String) result.get(Integer.parseInt(index)).get(varPaths[1]);
-		
-		
+		Object value = DatabasePath.compile(varPath).get(result);
+		return value == null ? null : value.toString();
 	}
 
 }
\ No newline at end of file
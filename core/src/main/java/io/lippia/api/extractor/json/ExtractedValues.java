@@ -0,0 +1,122 @@
+package io.lippia.api.extractor.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Values extracted from one json by {@link JsonMultiValueExtractor}, keyed by the requested path.
+ * Typed getters throw JSONException when the path was not found, as the single value extractors do.
+ */
+public class ExtractedValues {
+
+	private final Map<String, JsonNode> values;
+
+	ExtractedValues(Map<String, JsonNode> values) {
+		this.values = values;
+	}
+
+	public boolean contains(String jsonPath) {
+		return values.containsKey(jsonPath);
+	}
+
+	/**
+	 * @return the paths that were found, in the order they were requested
+	 */
+	public List<String> getPaths() {
+		return new ArrayList<String>(values.keySet());
+	}
+
+	public JsonNode getNode(String jsonPath) {
+		JsonNode value = values.get(jsonPath);
+		if (value == null) {
+			throw new JSONException("JSON path " + jsonPath + " not found.");
+		}
+		return value;
+	}
+
+	public String getString(String jsonPath) {
+		JsonNode value = getNode(jsonPath);
+		if (value.isNull()) {
+			throw new JSONException("JSON path " + jsonPath + " not found.");
+		}
+		return value.isTextual() ? value.textValue() : value.toString();
+	}
+
+	public int getInt(String jsonPath) {
+		return (int) getLong(jsonPath);
+	}
+
+	public long getLong(String jsonPath) {
+		JsonNode value = getNode(jsonPath);
+		if (value.isNumber()) {
+			return value.longValue();
+		}
+		try {
+			return Long.parseLong(value.asText());
+		} catch (NumberFormatException e) {
+			throw new JSONException("JSON path " + jsonPath + " is not an integer: " + value);
+		}
+	}
+
+	public double getDouble(String jsonPath) {
+		JsonNode value = getNode(jsonPath);
+		if (value.isNumber()) {
+			return value.doubleValue();
+		}
+		try {
+			return Double.parseDouble(value.asText());
+		} catch (NumberFormatException e) {
+			throw new JSONException("JSON path " + jsonPath + " is not a number: " + value);
+		}
+	}
+
+	public boolean getBoolean(String jsonPath) {
+		JsonNode value = getNode(jsonPath);
+		if (value.isBoolean()) {
+			return value.booleanValue();
+		}
+		if ("true".equalsIgnoreCase(value.asText()) || "false".equalsIgnoreCase(value.asText())) {
+			return Boolean.parseBoolean(value.asText());
+		}
+		throw new JSONException("JSON path " + jsonPath + " is not a boolean: " + value);
+	}
+
+	public List<Object> getList(String jsonPath) {
+		JsonNode value = getNode(jsonPath);
+		if (!value.isArray()) {
+			throw new JSONException("JSON path " + jsonPath + " is not an array.");
+		}
+		List<Object> list = new ArrayList<Object>(value.size());
+		for (JsonNode element : value) {
+			list.add(JsonPath.MAPPER.convertValue(element, Object.class));
+		}
+		return list;
+	}
+
+	public <T> T get(String jsonPath, Class<T> type) {
+		return JsonPath.MAPPER.convertValue(getNode(jsonPath), type);
+	}
+
+	/**
+	 * @return the found values as plain java objects: String, Integer, Long, Double, Boolean, List, Map or null
+	 */
+	public Map<String, Object> asMap() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, JsonNode> value : values.entrySet()) {
+			map.put(value.getKey(), JsonPath.MAPPER.convertValue(value.getValue(), Object.class));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
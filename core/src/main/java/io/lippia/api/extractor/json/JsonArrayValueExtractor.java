@@ -1,22 +1,42 @@
 package io.lippia.api.extractor.json;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import org.json.JSONObject;
+import org.json.JSONException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class JsonArrayValueExtractor {
 	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	/**
+	 * @return the elements of the array at the path, or every value matched by a path with wildcards, deep scans or filters
+	 * @throws JSONException when the json is invalid or the path does not exist
+	 */
 	public static List<Object> handle(String jsonString, String jsonPath) {
-		String[] jsonPaths = jsonPath.split("\\.");
-		int count  = 0;
-		for(String once : jsonPaths) {
-			count++;
-			JSONObject jsonObject = new JSONObject(jsonString);
-			if(count == jsonPaths.length) return jsonObject.getJSONArray(once).toList();
-			jsonString = jsonObject.getJSONObject(once).toString();
+		return handle(JsonPath.read(jsonString), jsonPath);
+	}
+	
+	public static List<Object> handle(JsonNode json, String jsonPath) {
+		JsonPath path = JsonPath.compile(jsonPath);
+		List<Object> values = new ArrayList<Object>();
+		if (path.isDefinite()) {
+			JsonNode array = path.first(json);
+			if (array == null || !array.isArray()) {
+				throw new JSONException("JSON path " + jsonPath + " is not an array.");
+			}
+			for (JsonNode element : array) {
+				values.add(MAPPER.convertValue(element, Object.class));
+			}
+			return values;
+		}
+		for (JsonNode value : path.evaluate(json)) {
+			values.add(MAPPER.convertValue(value, Object.class));
 		}
-		
-		return null;
+		return values;
 	}
 	
 }
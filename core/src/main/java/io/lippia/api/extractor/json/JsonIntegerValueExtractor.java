@@ -1,21 +1,31 @@
 package io.lippia.api.extractor.json;
 
-import org.json.JSONObject;
+import org.json.JSONException;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 public class JsonIntegerValueExtractor {
 	
+	/**
+	 * @throws JSONException when the json is invalid, the path does not exist or its value is not an int
+	 */
 	public static int handle(String jsonString, String jsonPath) {
-		String[] jsonPaths = jsonPath.split("\\.");
-		int response = 0;
-		int count  = 0;
-		for(String once : jsonPaths) {
-			count++;
-			JSONObject jsonObject = new JSONObject(jsonString);
-			if(count == jsonPaths.length) return jsonObject.getInt(once);
-			jsonString = jsonObject.getJSONObject(once).toString();
+		return handle(JsonPath.read(jsonString), jsonPath);
+	}
+	
+	public static int handle(JsonNode json, String jsonPath) {
+		JsonNode value = JsonPath.compile(jsonPath).first(json);
+		if (value == null) {
+			throw new JSONException("JSON path " + jsonPath + " not found.");
+		}
+		if (value.isNumber()) {
+			return value.intValue();
+		}
+		try {
+			return Integer.parseInt(value.asText());
+		} catch (NumberFormatException e) {
+			throw new JSONException("JSON path " + jsonPath + " is not an int: " + value);
 		}
-		
-		return response;
 	}
 	
 }
@@ -0,0 +1,258 @@
+package io.lippia.api.extractor.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONException;
+
+import com.crowdar.api.rest.Response;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * Extracts several paths from one json in a single pass.
+ * When every path is definite (only fields and non negative indexes) the json is read as a token stream: branches
+ * no path goes through are skipped without being built, only the matched values are materialized and reading stops
+ * as soon as every path has been resolved. Otherwise the json is parsed once and every path is evaluated over the tree;
+ * paths with wildcards, deep scans or filters then hold the array of all their matches.
+ */
+public class JsonMultiValueExtractor {
+
+	public static ExtractedValues handle(String json, String... jsonPaths) {
+		return handle(json, Arrays.asList(jsonPaths));
+	}
+
+	/**
+	 * @throws JSONException when the json is invalid
+	 */
+	public static ExtractedValues handle(String json, Collection<String> jsonPaths) {
+		PathTree tree = new PathTree(jsonPaths);
+		if (!tree.isStreamable()) {
+			return tree.evaluate(JsonPath.read(json));
+		}
+		try (JsonParser parser = JsonPath.MAPPER.getFactory().createParser(json)) {
+			return tree.stream(parser);
+		} catch (JsonProcessingException e) {
+			throw new JSONException("Invalid json: " + e.getOriginalMessage());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static ExtractedValues handle(byte[] json, Collection<String> jsonPaths) {
+		PathTree tree = new PathTree(jsonPaths);
+		try (JsonParser parser = JsonPath.MAPPER.getFactory().createParser(json)) {
+			return tree.isStreamable() ? tree.stream(parser) : tree.evaluate(readTree(parser));
+		} catch (JsonProcessingException e) {
+			throw new JSONException("Invalid json: " + e.getOriginalMessage());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the stream only up to the last value needed; the stream is not closed.
+	 */
+	public static ExtractedValues handle(InputStream json, Collection<String> jsonPaths) {
+		PathTree tree = new PathTree(jsonPaths);
+		try (JsonParser parser = JsonPath.MAPPER.getFactory().createParser(json)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			return tree.isStreamable() ? tree.stream(parser) : tree.evaluate(readTree(parser));
+		} catch (JsonProcessingException e) {
+			throw new JSONException("Invalid json: " + e.getOriginalMessage());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Uses the body of the response: streamed when it was kept as text, walked as a tree when it was deserialized.
+	 */
+	public static ExtractedValues handle(Response response, Collection<String> jsonPaths) {
+		Object body = response.getResponse();
+		if (body instanceof String) {
+			return handle((String) body, jsonPaths);
+		}
+		JsonNode json = body instanceof JsonNode ? (JsonNode) body : JsonPath.MAPPER.valueToTree(body);
+		return new PathTree(jsonPaths).evaluate(json);
+	}
+
+	private static JsonNode readTree(JsonParser parser) throws IOException {
+		if (parser.nextToken() == null) {
+			throw new JSONException("Invalid json: empty content");
+		}
+		return parser.readValueAsTree();
+	}
+
+	private static class Target {
+		private final JsonPath path;
+
+		Target(JsonPath path) {
+			this.path = path;
+		}
+
+		/**
+		 * Walks the rest of the path from a value already read at the given depth.
+		 */
+		JsonNode resolve(JsonNode value, int depth) {
+			List<JsonPath.DefiniteSegment> segments = path.getDefiniteSegments();
+			JsonNode node = value;
+			for (int i = depth; i < segments.size() && node != null; i++) {
+				node = segments.get(i).get(node);
+			}
+			return node;
+		}
+	}
+
+	private static class PathNode {
+		private final Map<String, PathNode> fields = new HashMap<String, PathNode>();
+		private final Map<Integer, PathNode> indexes = new HashMap<Integer, PathNode>();
+		private final List<Target> below = new ArrayList<Target>();
+		private boolean ending;
+	}
+
+	private static class PathTree {
+		private final List<Target> targets = new ArrayList<Target>();
+		private final PathNode root = new PathNode();
+		private boolean streamable = true;
+
+		private final Map<Target, JsonNode> found = new HashMap<Target, JsonNode>();
+		private final Set<Target> done = new HashSet<Target>();
+
+		PathTree(Collection<String> jsonPaths) {
+			for (String jsonPath : new LinkedHashSet<String>(jsonPaths)) {
+				Target target = new Target(JsonPath.compile(jsonPath));
+				targets.add(target);
+				add(target);
+			}
+		}
+
+		boolean isStreamable() {
+			return streamable;
+		}
+
+		private void add(Target target) {
+			if (!target.path.isDefinite()) {
+				streamable = false;
+				return;
+			}
+			PathNode node = root;
+			node.below.add(target);
+			for (JsonPath.DefiniteSegment segment : target.path.getDefiniteSegments()) {
+				if (segment instanceof JsonPath.Field) {
+					node = child(node.fields, ((JsonPath.Field) segment).getName());
+				} else {
+					int index = ((JsonPath.Index) segment).getIndex();
+					if (index < 0) {
+						streamable = false;
+						return;
+					}
+					node = child(node.indexes, index);
+				}
+				node.below.add(target);
+			}
+			node.ending = true;
+		}
+
+		private static <K> PathNode child(Map<K, PathNode> children, K key) {
+			PathNode child = children.get(key);
+			if (child == null) {
+				child = new PathNode();
+				children.put(key, child);
+			}
+			return child;
+		}
+
+		ExtractedValues evaluate(JsonNode json) {
+			for (Target target : targets) {
+				JsonNode value;
+				if (target.path.isDefinite()) {
+					value = target.path.first(json);
+				} else {
+					ArrayNode matches = JsonPath.MAPPER.createArrayNode();
+					matches.addAll(target.path.evaluate(json));
+					value = matches;
+				}
+				if (value != null) {
+					found.put(target, value);
+				}
+			}
+			return result();
+		}
+
+		ExtractedValues stream(JsonParser parser) throws IOException {
+			if (parser.nextToken() == null) {
+				throw new JSONException("Invalid json: empty content");
+			}
+			if (!targets.isEmpty()) {
+				walk(parser, root, 0);
+			}
+			return result();
+		}
+
+		/**
+		 * @return true once every path is resolved, so the caller stops reading
+		 */
+		private boolean walk(JsonParser parser, PathNode node, int depth) throws IOException {
+			JsonToken token = parser.currentToken();
+			if (node.ending) {
+				JsonNode value = parser.readValueAsTree();
+				for (Target target : node.below) {
+					JsonNode resolved = target.resolve(value, depth);
+					if (resolved != null) {
+						found.put(target, resolved);
+					}
+				}
+			} else if (token == JsonToken.START_OBJECT && !node.fields.isEmpty()) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					PathNode child = node.fields.get(parser.getCurrentName());
+					parser.nextToken();
+					if (child == null || done.containsAll(child.below)) {
+						parser.skipChildren();
+					} else if (walk(parser, child, depth + 1)) {
+						return true;
+					}
+				}
+			} else if (token == JsonToken.START_ARRAY && !node.indexes.isEmpty()) {
+				int index = 0;
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					PathNode child = node.indexes.get(index++);
+					if (child == null || done.containsAll(child.below)) {
+						parser.skipChildren();
+					} else if (walk(parser, child, depth + 1)) {
+						return true;
+					}
+				}
+			} else {
+				parser.skipChildren();
+			}
+			done.addAll(node.below);
+			return done.size() == targets.size();
+		}
+
+		private ExtractedValues result() {
+			Map<String, JsonNode> values = new LinkedHashMap<String, JsonNode>();
+			for (Target target : targets) {
+				JsonNode value = found.get(target);
+				if (value != null) {
+					values.put(target.path.getPath(), value);
+				}
+			}
+			return new ExtractedValues(values);
+		}
+	}
+}
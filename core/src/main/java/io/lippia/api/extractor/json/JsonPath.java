@@ -0,0 +1,426 @@
+package io.lippia.api.extractor.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Json path compiled once and evaluated over a Jackson tree.
+ * Supported syntax, with or without the leading $:
+ * <ul>
+ * <li>fields: data.user.name or ['user name']</li>
+ * <li>array indexes, negative from the end: items[0], items[-1]</li>
+ * <li>wildcards: items[*].id, data.*</li>
+ * <li>deep scan: ..id</li>
+ * <li>filters over array elements: items[?(@.price &lt; 10)], items[?(@.type == 'book')], items[?(@.isbn)]</li>
+ * </ul>
+ * The last {@value #COMPILED_LIMIT} paths used are kept compiled.
+ */
+public final class JsonPath {
+
+	static final ObjectMapper MAPPER = new ObjectMapper();
+	static final int COMPILED_LIMIT = 512;
+	private static final Map<String, JsonPath> COMPILED = Collections.synchronizedMap(new LinkedHashMap<String, JsonPath>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, JsonPath> eldest) {
+			return size() > COMPILED_LIMIT;
+		}
+	});
+	private static final Pattern FILTER = Pattern.compile("\\?\\(\\s*@((?:\\.[^\\s.\\[=!<>]+|\\[[^\\]]*\\])*)\\s*(?:(==|!=|<=|>=|<|>)\\s*(.+?))?\\s*\\)");
+	private static final Pattern INDEX = Pattern.compile("-?\\d+");
+
+	private final String path;
+	private final List<Segment> segments;
+	private final List<DefiniteSegment> definiteSegments;
+
+	private JsonPath(String path, List<Segment> segments) {
+		this.path = path;
+		this.segments = segments;
+		List<DefiniteSegment> definite = new ArrayList<DefiniteSegment>(segments.size());
+		for (Segment segment : segments) {
+			if (!(segment instanceof DefiniteSegment)) {
+				definite = null;
+				break;
+			}
+			definite.add((DefiniteSegment) segment);
+		}
+		this.definiteSegments = definite;
+	}
+
+	/**
+	 * @return the compiled path, parsed only the first time it is used
+	 * @throws IllegalArgumentException when the path is not valid
+	 */
+	public static JsonPath compile(String path) {
+		JsonPath compiled = COMPILED.get(path);
+		if (compiled == null) {
+			compiled = new JsonPath(path, parse(path));
+			COMPILED.put(path, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * @throws JSONException when the text is not valid json, as the org.json based extractors did
+	 */
+	public static JsonNode read(String json) {
+		try {
+			return MAPPER.readTree(json);
+		} catch (IOException e) {
+			throw new JSONException("Invalid json: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return every value matched by the path, empty when there is none
+	 */
+	public List<JsonNode> evaluate(JsonNode root) {
+		List<JsonNode> current = Collections.singletonList(root);
+		for (Segment segment : segments) {
+			List<JsonNode> next = new ArrayList<JsonNode>();
+			for (JsonNode node : current) {
+				segment.apply(node, next);
+			}
+			if (next.isEmpty()) {
+				return next;
+			}
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * @return the first value matched by the path, null when there is none
+	 */
+	public JsonNode first(JsonNode root) {
+		if (definiteSegments == null) {
+			List<JsonNode> values = evaluate(root);
+			return values.isEmpty() ? null : values.get(0);
+		}
+		JsonNode node = root;
+		for (DefiniteSegment segment : definiteSegments) {
+			node = segment.get(node);
+			if (node == null) {
+				return null;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * @return true when the path has only fields and indexes, so it matches at most one value
+	 */
+	public boolean isDefinite() {
+		return definiteSegments != null;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	List<Segment> getSegments() {
+		return segments;
+	}
+
+	/**
+	 * @return the segments of a definite path, null when the path is not definite
+	 */
+	List<DefiniteSegment> getDefiniteSegments() {
+		return definiteSegments;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	private static List<Segment> parse(String path) {
+		String expression = path.trim();
+		if (expression.startsWith("$")) {
+			expression = expression.substring(1);
+		}
+		List<Segment> segments = new ArrayList<Segment>();
+		int i = 0;
+		while (i < expression.length()) {
+			char c = expression.charAt(i);
+			if (c == '[') {
+				int end = findClosingBracket(expression, i, path);
+				segments.add(parseBracket(expression.substring(i + 1, end).trim(), path));
+				i = end + 1;
+			} else if (c == '.' && i + 1 < expression.length() && expression.charAt(i + 1) == '.') {
+				int end = findNameEnd(expression, i + 2);
+				String name = expression.substring(i + 2, end);
+				if (name.isEmpty()) {
+					throw new IllegalArgumentException("Missing field name after .. in json path " + path);
+				}
+				segments.add(new DeepScan(name));
+				i = end;
+			} else {
+				int start = c == '.' ? i + 1 : i;
+				int end = findNameEnd(expression, start);
+				String name = expression.substring(start, end);
+				if (name.isEmpty()) {
+					throw new IllegalArgumentException("Empty field name at " + start + " in json path " + path);
+				}
+				segments.add("*".equals(name) ? new Wildcard() : new Field(name));
+				i = end;
+			}
+		}
+		return segments;
+	}
+
+	private static Segment parseBracket(String content, String path) {
+		if ("*".equals(content)) {
+			return new Wildcard();
+		}
+		if (content.startsWith("?")) {
+			Matcher matcher = FILTER.matcher(content);
+			if (!matcher.matches()) {
+				throw new IllegalArgumentException("Invalid filter [" + content + "] in json path " + path);
+			}
+			JsonPath relative = new JsonPath(matcher.group(1), parse(matcher.group(1)));
+			return new Filter(relative, matcher.group(2), matcher.group(3) == null ? null : parseLiteral(matcher.group(3)));
+		}
+		if (isQuoted(content)) {
+			return new Field(content.substring(1, content.length() - 1));
+		}
+		if (INDEX.matcher(content).matches()) {
+			return new Index(Integer.parseInt(content));
+		}
+		return new Field(content);
+	}
+
+	private static int findClosingBracket(String expression, int open, String path) {
+		char quote = 0;
+		for (int i = open + 1; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == ']') {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unclosed [ in json path " + path);
+	}
+
+	private static int findNameEnd(String expression, int start) {
+		int i = start;
+		while (i < expression.length() && expression.charAt(i) != '.' && expression.charAt(i) != '[') {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isQuoted(String text) {
+		return text.length() >= 2 && (text.charAt(0) == '\'' || text.charAt(0) == '"') && text.charAt(text.length() - 1) == text.charAt(0);
+	}
+
+	private static Object parseLiteral(String literal) {
+		if (isQuoted(literal)) {
+			return literal.substring(1, literal.length() - 1);
+		}
+		if ("true".equals(literal) || "false".equals(literal)) {
+			return Boolean.valueOf(literal);
+		}
+		if ("null".equals(literal)) {
+			return null;
+		}
+		try {
+			return new BigDecimal(literal);
+		} catch (NumberFormatException e) {
+			return literal;
+		}
+	}
+
+	interface Segment {
+
+		void apply(JsonNode node, List<JsonNode> matches);
+	}
+
+	/**
+	 * Segment matching at most one value: a field or an index.
+	 */
+	interface DefiniteSegment extends Segment {
+
+		/**
+		 * @return the single match, null when there is none
+		 */
+		JsonNode get(JsonNode node);
+	}
+
+	static final class Field implements DefiniteSegment {
+		private final String name;
+
+		Field(String name) {
+			this.name = name;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		@Override
+		public void apply(JsonNode node, List<JsonNode> matches) {
+			JsonNode value = get(node);
+			if (value != null) {
+				matches.add(value);
+			}
+		}
+
+		@Override
+		public JsonNode get(JsonNode node) {
+			return node.isObject() ? node.get(name) : null;
+		}
+
+	}
+
+	static final class Index implements DefiniteSegment {
+		private final int index;
+
+		Index(int index) {
+			this.index = index;
+		}
+
+		int getIndex() {
+			return index;
+		}
+
+		@Override
+		public void apply(JsonNode node, List<JsonNode> matches) {
+			JsonNode value = get(node);
+			if (value != null) {
+				matches.add(value);
+			}
+		}
+
+		@Override
+		public JsonNode get(JsonNode node) {
+			if (!node.isArray()) {
+				return null;
+			}
+			int position = index < 0 ? node.size() + index : index;
+			return position < 0 ? null : node.get(position);
+		}
+
+	}
+
+	static final class Wildcard implements Segment {
+
+		@Override
+		public void apply(JsonNode node, List<JsonNode> matches) {
+			if (node.isContainerNode()) {
+				for (JsonNode child : node) {
+					matches.add(child);
+				}
+			}
+		}
+
+	}
+
+	static final class DeepScan implements Segment {
+		private final String name;
+
+		DeepScan(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void apply(JsonNode node, List<JsonNode> matches) {
+			if (node.isObject()) {
+				Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+				while (fields.hasNext()) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					if ("*".equals(name) || name.equals(field.getKey())) {
+						matches.add(field.getValue());
+					}
+					apply(field.getValue(), matches);
+				}
+			} else if (node.isArray()) {
+				for (JsonNode child : node) {
+					apply(child, matches);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Keeps the elements of an array (or the object itself) whose relative path exists, or compares to the literal.
+	 */
+	static final class Filter implements Segment {
+		private final JsonPath relative;
+		private final String operator;
+		private final Object literal;
+
+		Filter(JsonPath relative, String operator, Object literal) {
+			this.relative = relative;
+			this.operator = operator;
+			this.literal = literal;
+		}
+
+		@Override
+		public void apply(JsonNode node, List<JsonNode> matches) {
+			if (node.isArray()) {
+				for (JsonNode element : node) {
+					if (test(element)) {
+						matches.add(element);
+					}
+				}
+			} else if (node.isObject() && test(node)) {
+				matches.add(node);
+			}
+		}
+
+
+		private boolean test(JsonNode element) {
+			JsonNode value = relative.first(element);
+			if (operator == null) {
+				return value != null;
+			}
+			int comparison;
+			if (literal == null) {
+				comparison = value == null || value.isNull() ? 0 : 1;
+			} else if (value == null || value.isNull()) {
+				return "!=".equals(operator);
+			} else if (literal instanceof BigDecimal && value.isNumber()) {
+				comparison = value.decimalValue().compareTo((BigDecimal) literal);
+			} else if (literal instanceof Boolean && value.isBoolean()) {
+				comparison = value.booleanValue() == (Boolean) literal ? 0 : 1;
+			} else if (literal instanceof String && value.isTextual()) {
+				comparison = value.textValue().compareTo((String) literal);
+			} else {
+				return "!=".equals(operator);
+			}
+			switch (operator) {
+				case "==":
+					return comparison == 0;
+				case "!=":
+					return comparison != 0;
+				case "<":
+					return comparison < 0;
+				case "<=":
+					return comparison <= 0;
+				case ">":
+					return comparison > 0;
+				default:
+					return comparison >= 0;
+			}
+		}
+	}
+}
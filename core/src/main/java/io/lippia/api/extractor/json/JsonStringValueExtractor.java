@@ -1,33 +1,25 @@
 package io.lippia.api.extractor.json;
 
-import org.json.JSONObject;
+import org.json.JSONException;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 public class JsonStringValueExtractor {
 	
+	/**
+	 * @return the text of the value at the path, or the json of the value when it is not a string
+	 * @throws JSONException when the json is invalid or the path does not exist
+	 */
 	public static String handle(String jsonString, String jsonPath) {
-		String[] jsonPaths = jsonPath.split("\\.");
-			
-		for (int i = 0; i < jsonPaths.length; i++) {
-			String[] once = jsonPaths[i].split("\\[");
-			JSONObject jsonObject;
-			
-			jsonObject= new JSONObject(jsonString);
-			
-			if(once.length > 1) {
-				jsonString = jsonObject.getJSONArray(once[0]).get(Integer.parseInt(once[1].replace("]",""))).toString();
-				if(i+1 == jsonPaths.length) {
-					return jsonString;
-				}
-				continue;
-			}		
-			
-			if(i+1 == jsonPaths.length) {
-				return jsonObject.getString(once[0]);
-			}
-			
-			jsonString = jsonObject.getJSONObject(once[i]).toString();
+		return handle(JsonPath.read(jsonString), jsonPath);
+	}
+	
+	public static String handle(JsonNode json, String jsonPath) {
+		JsonNode value = JsonPath.compile(jsonPath).first(json);
+		if (value == null || value.isNull()) {
+			throw new JSONException("JSON path " + jsonPath + " not found.");
 		}
-		return jsonString;
+		return value.isTextual() ? value.textValue() : value.toString();
 	}
 	
 }
@@ -0,0 +1,86 @@
+package io.lippia.api.extractor.xml;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * One DocumentBuilder per thread, reset between parses, and the last documents parsed by the thread keyed by the
+ * identity of the response text, so extracting several values from the same response parses it once.
+ * Documents are not shared between threads as DOM reads are not thread safe. The documents of the thread are dropped
+ * after each scenario by {@link #clean()}.
+ */
+public final class XmlDocuments {
+
+	private static final int CACHED_DOCUMENTS = 8;
+	private static final DocumentBuilderFactory FACTORY = DocumentBuilderFactory.newInstance();
+	private static final ThreadLocal<DocumentBuilder> BUILDERS = new ThreadLocal<DocumentBuilder>();
+	private static final ThreadLocal<List<ParsedDocument>> DOCUMENTS = new ThreadLocal<List<ParsedDocument>>() {
+		@Override
+		protected List<ParsedDocument> initialValue() {
+			return new ArrayList<ParsedDocument>(CACHED_DOCUMENTS + 1);
+		}
+	};
+
+	private XmlDocuments() {
+	}
+
+	static Document parse(String xml) throws ParserConfigurationException, SAXException, IOException {
+		List<ParsedDocument> documents = DOCUMENTS.get();
+		for (int i = 0; i < documents.size(); i++) {
+			ParsedDocument parsed = documents.get(i);
+			if (parsed.xml == xml) {
+				if (i > 0) {
+					documents.remove(i);
+					documents.add(0, parsed);
+				}
+				return parsed.document;
+			}
+		}
+		Document document = getBuilder().parse(new InputSource(new StringReader(xml)));
+		documents.add(0, new ParsedDocument(xml, document));
+		if (documents.size() > CACHED_DOCUMENTS) {
+			documents.remove(CACHED_DOCUMENTS);
+		}
+		return document;
+	}
+
+	/**
+	 * Drops the documents parsed by the current thread.
+	 */
+	public static void clean() {
+		DOCUMENTS.remove();
+	}
+
+	private static DocumentBuilder getBuilder() throws ParserConfigurationException {
+		DocumentBuilder builder = BUILDERS.get();
+		if (builder == null) {
+			synchronized (FACTORY) {
+				builder = FACTORY.newDocumentBuilder();
+			}
+			BUILDERS.set(builder);
+		} else {
+			builder.reset();
+		}
+		return builder;
+	}
+
+	private static class ParsedDocument {
+		private final String xml;
+		private final Document document;
+
+		ParsedDocument(String xml, Document document) {
+			this.xml = xml;
+			this.document = document;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package io.lippia.api.extractor.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Extracts the first element of several paths from one xml in a single pass, as {@link XmlStringValueExtractor} does
+ * for one path. Small responses are parsed to a DOM once; big ones are read with StAX until every path is resolved.
+ */
+public class XmlMultiValueExtractor {
+
+	public static Map<String, String> handle(String xmlString, String... xmlPaths) throws ParserConfigurationException, SAXException, IOException {
+		return handle(xmlString, Arrays.asList(xmlPaths));
+	}
+
+	/**
+	 * @return the text content of the element at each path that was found, keyed by the path in the order requested
+	 */
+	public static Map<String, String> handle(String xmlString, Collection<String> xmlPaths) throws ParserConfigurationException, SAXException, IOException {
+		List<XmlPath> paths = new ArrayList<XmlPath>();
+		for (String xmlPath : new LinkedHashSet<String>(xmlPaths)) {
+			paths.add(XmlPath.compile(xmlPath));
+		}
+		List<String> values = XmlPath.first(xmlString, paths);
+		Map<String, String> found = new LinkedHashMap<String, String>();
+		for (int i = 0; i < paths.size(); i++) {
+			if (values.get(i) != null) {
+				found.put(paths.get(i).toString(), values.get(i));
+			}
+		}
+		return Collections.unmodifiableMap(found);
+	}
+
+}
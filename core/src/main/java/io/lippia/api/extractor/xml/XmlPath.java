@@ -0,0 +1,178 @@
+package io.lippia.api.extractor.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import com.crowdar.core.Constants;
+
+/**
+ * Dotted xml path compiled once. Each step selects, among the descendants of the element selected by the previous
+ * step, the first element with that name, or the n-th with name[n]. Names match with or without the namespace prefix,
+ * so soap:Body and Body select the same element. When all the values are requested, a last step without index selects
+ * every matching element.
+ */
+final class XmlPath {
+
+	private static final Map<String, XmlPath> COMPILED = new ConcurrentHashMap<String, XmlPath>();
+
+	private final String path;
+	private final String[] names;
+	private final int[] indexes;
+
+	private XmlPath(String path) {
+		this.path = path;
+		String[] steps = path.trim().split("\\.");
+		this.names = new String[steps.length];
+		this.indexes = new int[steps.length];
+		for (int i = 0; i < steps.length; i++) {
+			int bracket = steps[i].indexOf('[');
+			if (bracket < 0) {
+				names[i] = steps[i];
+				indexes[i] = -1;
+			} else {
+				names[i] = steps[i].substring(0, bracket);
+				try {
+					indexes[i] = Integer.parseInt(steps[i].substring(bracket + 1, steps[i].length() - 1).trim());
+				} catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+					throw new IllegalArgumentException("Invalid index in step " + steps[i] + " of xml path " + path);
+				}
+			}
+			if (names[i].isEmpty()) {
+				throw new IllegalArgumentException("Empty step in xml path " + path);
+			}
+		}
+	}
+
+	static XmlPath compile(String path) {
+		XmlPath compiled = COMPILED.get(path);
+		if (compiled == null) {
+			compiled = new XmlPath(path);
+			COMPILED.put(path, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Responses up to crowdar.api.xml.streamThreshold characters are parsed to a DOM, kept for the next lookups on the
+	 * same response; bigger ones are read with StAX up to the last selected element.
+	 *
+	 * @return the text content of the selected elements
+	 */
+	List<String> find(String xml, boolean all) throws ParserConfigurationException, SAXException, IOException {
+		if (xml.length() >= Constants.getApiXmlStreamThreshold()) {
+			return XmlStreamEvaluator.evaluate(xml, this, all);
+		}
+		return evaluate(XmlDocuments.parse(xml), all);
+	}
+
+	String first(String xml) throws ParserConfigurationException, SAXException, IOException {
+		List<String> values = find(xml, false);
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("XML path " + path + " not found.");
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * Same as {@link #find(String, boolean)} for the first element of several paths: the DOM is parsed once, or the
+	 * xml is read with StAX once for all of them.
+	 *
+	 * @return the text content selected by each path, in the order of the paths, null when the path was not found
+	 */
+	static List<String> first(String xml, List<XmlPath> paths) throws ParserConfigurationException, SAXException, IOException {
+		if (xml.length() >= Constants.getApiXmlStreamThreshold()) {
+			return XmlStreamEvaluator.evaluate(xml, paths);
+		}
+		Document document = XmlDocuments.parse(xml);
+		List<String> values = new ArrayList<String>(paths.size());
+		for (XmlPath path : paths) {
+			List<String> found = path.evaluate(document, false);
+			values.add(found.isEmpty() ? null : found.get(0));
+		}
+		return values;
+	}
+
+	List<String> evaluate(Document document, boolean all) {
+		Node scope = document;
+		for (int step = 0; step < names.length; step++) {
+			if (all && isLast(step) && indexes[step] < 0) {
+				List<String> values = new ArrayList<String>();
+				for (Node match : descendants(scope, step, Integer.MAX_VALUE)) {
+					values.add(match.getTextContent());
+				}
+				return values;
+			}
+			List<Node> matches = descendants(scope, step, getIndex(step) + 1);
+			if (matches.size() <= getIndex(step)) {
+				return Collections.emptyList();
+			}
+			scope = matches.get(getIndex(step));
+		}
+		return Collections.singletonList(scope.getTextContent());
+	}
+
+	/**
+	 * @return the first matching descendants of the scope in document order, up to limit
+	 */
+	private List<Node> descendants(Node scope, int step, int limit) {
+		List<Node> matches = new ArrayList<Node>();
+		Node node = scope.getFirstChild();
+		while (node != null && matches.size() < limit) {
+			if (node.getNodeType() == Node.ELEMENT_NODE && matches(step, node.getNodeName())) {
+				matches.add(node);
+			}
+			if (node.getFirstChild() != null) {
+				node = node.getFirstChild();
+				continue;
+			}
+			while (node != null && node != scope && node.getNextSibling() == null) {
+				node = node.getParentNode();
+			}
+			node = node == null || node == scope ? null : node.getNextSibling();
+		}
+		return matches;
+	}
+
+	boolean matches(int step, String qualifiedName) {
+		String name = names[step];
+		if (name.equals(qualifiedName)) {
+			return true;
+		}
+		int colon = qualifiedName.indexOf(':');
+		return colon >= 0 && name.length() == qualifiedName.length() - colon - 1 && qualifiedName.endsWith(name);
+	}
+
+	int size() {
+		return names.length;
+	}
+
+	boolean isLast(int step) {
+		return step == names.length - 1;
+	}
+
+	/**
+	 * @return the index of the element selected by the step, 0 when the step has no index
+	 */
+	int getIndex(int step) {
+		return indexes[step] < 0 ? 0 : indexes[step];
+	}
+
+	boolean hasIndex(int step) {
+		return indexes[step] >= 0;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
@@ -0,0 +1,239 @@
+package io.lippia.api.extractor.xml;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Evaluates an xml path over a StAX reader, without building the DOM. Only the text of the selected elements is kept
+ * and reading stops as soon as the selection is complete, so a value near the start of a large SOAP payload is found
+ * without reading the rest. Selects the same elements as the DOM evaluation of {@link XmlPath}.
+ */
+final class XmlStreamEvaluator {
+
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private XmlStreamEvaluator() {
+	}
+
+	static List<String> evaluate(String xml, XmlPath path, boolean all) throws SAXException {
+		XMLStreamReader reader = null;
+		try {
+			reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+			return evaluate(reader, path, all);
+		} catch (XMLStreamException e) {
+			throw new SAXException("Invalid xml: " + e.getMessage(), e);
+		} finally {
+			close(reader);
+		}
+	}
+
+	private static List<String> evaluate(XMLStreamReader reader, XmlPath path, boolean all) throws XMLStreamException {
+		boolean allOfLast = all && !path.hasIndex(path.size() - 1);
+		List<String> values = new ArrayList<String>();
+		Deque<Capture> captures = new ArrayDeque<Capture>();
+		int step = 0;
+		int depth = 0;
+		int scopeDepth = 0;
+		int count = 0;
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					String name = getQualifiedName(reader);
+					if (!path.matches(step, name)) {
+						break;
+					}
+					if (path.isLast(step) && allOfLast) {
+						captures.push(new Capture(depth, values.size()));
+						values.add(null);
+					} else if (captures.isEmpty() && count++ == path.getIndex(step)) {
+						if (path.isLast(step)) {
+							captures.push(new Capture(depth, values.size()));
+							values.add(null);
+						} else {
+							step++;
+							scopeDepth = depth;
+							count = 0;
+						}
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					if (!captures.isEmpty()) {
+						String text = reader.getText();
+						for (Capture capture : captures) {
+							capture.text.append(text);
+						}
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if (!captures.isEmpty() && captures.peek().depth == depth) {
+						Capture capture = captures.pop();
+						values.set(capture.position, capture.text.toString());
+						if (!allOfLast) {
+							return values;
+						}
+					}
+					if (depth == scopeDepth) {
+						return values;
+					}
+					depth--;
+					break;
+				default:
+					break;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Evaluates several paths in one pass over the xml, each selecting its first element. Reading stops as soon as
+	 * every path is resolved.
+	 *
+	 * @return the text content selected by each path, in the order of the paths, null when the path was not found
+	 */
+	static List<String> evaluate(String xml, List<XmlPath> paths) throws SAXException {
+		XMLStreamReader reader = null;
+		try {
+			reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+			return evaluate(reader, paths);
+		} catch (XMLStreamException e) {
+			throw new SAXException("Invalid xml: " + e.getMessage(), e);
+		} finally {
+			close(reader);
+		}
+	}
+
+	private static List<String> evaluate(XMLStreamReader reader, List<XmlPath> paths) throws XMLStreamException {
+		List<Selection> pending = new ArrayList<Selection>(paths.size());
+		for (XmlPath path : paths) {
+			pending.add(new Selection(path));
+		}
+		List<Selection> selections = new ArrayList<Selection>(pending);
+		int depth = 0;
+		while (reader.hasNext() && !pending.isEmpty()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					String name = getQualifiedName(reader);
+					for (Selection selection : pending) {
+						selection.start(depth, name);
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					String text = null;
+					for (Selection selection : pending) {
+						if (selection.capture != null) {
+							text = text == null ? reader.getText() : text;
+							selection.capture.append(text);
+						}
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					for (Iterator<Selection> iterator = pending.iterator(); iterator.hasNext(); ) {
+						if (iterator.next().end(depth)) {
+							iterator.remove();
+						}
+					}
+					depth--;
+					break;
+				default:
+					break;
+			}
+		}
+		List<String> values = new ArrayList<String>(selections.size());
+		for (Selection selection : selections) {
+			values.add(selection.value);
+		}
+		return values;
+	}
+
+	private static String getQualifiedName(XMLStreamReader reader) {
+		String prefix = reader.getPrefix();
+		return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+	}
+
+	private static void close(XMLStreamReader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				// nothing left to read
+			}
+		}
+	}
+
+	/**
+	 * Progress of one path selecting its first element: the step being matched, the depth of the element selected by
+	 * the previous step and the text of the last element while it is being read.
+	 */
+	private static class Selection {
+		private final XmlPath path;
+		private int step;
+		private int scopeDepth;
+		private int count;
+		private int captureDepth;
+		private StringBuilder capture;
+		private String value;
+
+		Selection(XmlPath path) {
+			this.path = path;
+		}
+
+		void start(int depth, String name) {
+			if (capture != null || !path.matches(step, name) || count++ != path.getIndex(step)) {
+				return;
+			}
+			if (path.isLast(step)) {
+				captureDepth = depth;
+				capture = new StringBuilder();
+			} else {
+				step++;
+				scopeDepth = depth;
+				count = 0;
+			}
+		}
+
+		/**
+		 * @return true when the path is resolved, found or not
+		 */
+		boolean end(int depth) {
+			if (capture != null && captureDepth == depth) {
+				value = capture.toString();
+				return true;
+			}
+			return depth == scopeDepth;
+		}
+	}
+
+	private static class Capture {
+		private final int depth;
+		private final int position;
+		private final StringBuilder text = new StringBuilder();
+
+		Capture(int depth, int position) {
+			this.depth = depth;
+			this.position = position;
+		}
+	}
+}
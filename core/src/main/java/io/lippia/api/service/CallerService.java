@@ -1,26 +1,84 @@
 package io.lippia.api.service;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
-
-import org.apache.commons.lang.StringUtils;
+import java.util.HashMap;
 
 import com.crowdar.api.rest.APIManager;
 import com.crowdar.api.rest.Request;
+import com.crowdar.api.rest.Response;
+import com.crowdar.core.Constants;
 
+import io.lippia.api.configuration.EndpointCall;
 import io.lippia.api.configuration.EndpointConfiguration;
+import io.lippia.api.configuration.EndpointDefinition;
+import io.lippia.api.configuration.HttpConfiguration;
 
 public class CallerService {
+	/**
+	 * Configurations with a tokenPath are token requests: the token is obtained once through the TokenManager
+	 * and sent in the following calls of the scenario that do not set that header.
+	 */
 	public static String call(EndpointConfiguration config) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException, IOException {
 		
+		if (config.getTokenPath() != null) {
+			return (String) TokenManager.getTokenResponse(config).getResponse();
+		}
+		
 		String methodName = config.getHttConfiguration().getMethod();
+		
+		Request request = getRequest(config);
+		addAuthorization(request);
 		            
-		config.getMethodService().getClazz().getMethod(methodName.toLowerCase(), Request.class).invoke("", getRequest(config));
+		execute(config.getMethodService(), methodName.toLowerCase(), request);
         
 		return (String) APIManager.getLastResponse().getResponse();
 	}
 	
-	protected static Request getRequest(EndpointConfiguration config) throws IOException {
+	public static String call(EndpointDefinition definition) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		return call(definition, null);
+	}
+	
+	/**
+	 * Calls a shared EndpointDefinition with the parameters, headers and body of the call, without touching the
+	 * EndpointConfiguration of the thread. Definitions with a tokenPath go through the TokenManager as configurations do.
+	 */
+	public static String call(EndpointDefinition definition, EndpointCall call) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		
+		if (definition.getTokenPath() != null) {
+			return (String) TokenManager.getTokenResponse(definition, call).getResponse();
+		}
+		
+		Request request = definition.newRequest(call);
+		addAuthorization(request);
+		
+		return (String) execute(definition.getMethodService(), definition.getMethod(), request).getResponse();
+	}
+	
+	static Response execute(MethodServiceEnum methodService, String methodName, Request request) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		MethodHandle httpMethod = methodService.getHttpMethod(methodName);
+		try {
+			return (Response) httpMethod.invokeExact(request);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+	
+	private static void addAuthorization(Request request) {
+		String header = Constants.getApiTokenHeader();
+		for (String key : request.getHeaders().keySet()) {
+			if (key.equalsIgnoreCase(header)) {
+				return;
+			}
+		}
+		String authorization = TokenManager.getCurrentAuthorization();
+		if (authorization != null) {
+			request.addHeader(header, authorization);
+		}
+	}
+	
+	protected static Request getRequest(EndpointConfiguration config) {
 		Request request = new Request();
 		
 		request.setBody(config.getBody());
@@ -32,34 +90,14 @@ public class CallerService {
 		}
 		
 		if(config.getHeaders() != null) {
-			request.setHeaders(config.getHeaders());		
+			request.setHeaders(new HashMap<String, String>(config.getHeaders()));		
 		}
 				
         return request;
     }
 	
 	public static String getCompleteUrl(EndpointConfiguration config) {
-       
-        String url = "";	
-        
-        if (StringUtils.isEmpty(config.getHttConfiguration().getUrl())) {
-        	return APIManager.BASE_URL;
-        }
-		
-		if(config.getHttConfiguration().getProtocol() != null) {
-			url += config.getHttConfiguration().getProtocol() + "://";
-		}
-		
-		url += config.getHttConfiguration().getUrl();
-		
-		if(config.getHttConfiguration().getPort() != null) {
-			url += ":" + config.getHttConfiguration().getPort();
-		}
-		
-		if(config.getHttConfiguration().getEndpoint() != null) {
-			url += config.getHttConfiguration().getEndpoint();
-		}
-		
-         return url;
-    }
+		HttpConfiguration http = config.getHttConfiguration();
+		return HttpConfiguration.getCompleteUrl(http.getProtocol(), http.getUrl(), http.getPort(), http.getEndpoint());
+	}
 }
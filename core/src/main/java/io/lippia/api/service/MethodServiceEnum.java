@@ -1,6 +1,14 @@
 package io.lippia.api.service;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.crowdar.api.rest.MethodsService;
+import com.crowdar.api.rest.Request;
+import com.crowdar.api.rest.Response;
 
 public enum MethodServiceEnum {
 
@@ -17,6 +25,23 @@ NOSSLVERIFICATION {
 	}
 };
 	
+	private static final MethodType HTTP_METHOD_TYPE = MethodType.methodType(Response.class, Request.class);
+	
+	private final Map<String, MethodHandle> httpMethods = new ConcurrentHashMap<String, MethodHandle>();
+	
 	public abstract Class<? extends MethodsService> getClazz();
+	
+	/**
+	 * @param methodName http verb in lower case, the name of the static method of the service class
+	 * @return handle of the static method, looked up once per verb
+	 */
+	public MethodHandle getHttpMethod(String methodName) throws NoSuchMethodException, IllegalAccessException {
+		MethodHandle handle = httpMethods.get(methodName);
+		if (handle == null) {
+			handle = MethodHandles.publicLookup().findStatic(getClazz(), methodName, HTTP_METHOD_TYPE);
+			httpMethods.put(methodName, handle);
+		}
+		return handle;
+	}
 
 }
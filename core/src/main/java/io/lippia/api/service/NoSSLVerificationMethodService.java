@@ -12,17 +12,16 @@ import javax.net.ssl.SSLContext;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
 
+import com.crowdar.api.rest.HttpClientFactory;
 import com.crowdar.api.rest.MethodsService;
 import com.crowdar.api.rest.Request;
 import com.crowdar.api.rest.Response;
 import com.crowdar.api.rest.RestClient;
 
 public class NoSSLVerificationMethodService extends MethodsService{
+
+	private static RestClient noSslVerificationRestClient;
 	
 	public static Response get(Request request) {
 		return MethodsService.get(request, String.class, getNoSslVerificationRestClient());
@@ -45,7 +44,13 @@ public class NoSSLVerificationMethodService extends MethodsService{
 	}
 
 	
-   private static RestClient getNoSslVerificationRestClient() {
+   /**
+    * The client is created on the first call and reused, so every call shares its connection pool.
+    */
+   private static synchronized RestClient getNoSslVerificationRestClient() {
+	   if (noSslVerificationRestClient != null) {
+		   return noSslVerificationRestClient;
+	   }
 
 	   TrustStrategy acceptingTrustStrategy = new TrustStrategy() {
 		
@@ -63,11 +68,8 @@ public class NoSSLVerificationMethodService extends MethodsService{
 		   throw new RuntimeException(e);
 	   }
 	   SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier());
-	   CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(csf).build();
-	   HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-	   requestFactory.setHttpClient(httpClient);
-	 
-	   return RestClient.getRestClient(new RestTemplate(requestFactory));
+	   noSslVerificationRestClient = RestClient.create(HttpClientFactory.create(csf));
+	   return noSslVerificationRestClient;
     }
    
 }
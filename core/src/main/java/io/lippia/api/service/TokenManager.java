@@ -0,0 +1,265 @@
+package io.lippia.api.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.crowdar.api.rest.APIManager;
+import com.crowdar.api.rest.Request;
+import com.crowdar.api.rest.Response;
+import com.crowdar.core.Constants;
+
+import io.lippia.api.configuration.EndpointCall;
+import io.lippia.api.configuration.EndpointConfiguration;
+import io.lippia.api.configuration.EndpointDefinition;
+import io.lippia.api.extractor.json.JsonStringValueExtractor;
+
+/**
+ * Tokens of the EndpointConfigurations that define a tokenPath, shared by every thread of the execution.
+ * The login call is made once per endpoint and credentials, the token is extracted with the tokenPath and kept until
+ * it expires (jwt exp claim, expires_in of the response or crowdar.api.token.ttl). Tokens in use are refreshed in background
+ * crowdar.api.token.refreshBefore seconds before they expire. Concurrent fetches of the same token make a single call.
+ * After a token is obtained, the calls of the same scenario send it in the crowdar.api.token.header header.
+ * A login answered with a status other than 2xx is not cached: its response is returned as the last response, so the
+ * scenario can assert it, and the following calls of the thread are sent without a token.
+ */
+public class TokenManager {
+
+	private static final Map<String, Token> TOKENS = new ConcurrentHashMap<String, Token>();
+	private static final Map<String, CompletableFuture<Token>> IN_FLIGHT = new ConcurrentHashMap<String, CompletableFuture<Token>>();
+	private static final ThreadLocal<String> CURRENT_KEY = new ThreadLocal<String>();
+	private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "token-refresher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private TokenManager() {
+	}
+
+	/**
+	 * Returns the token response of the configuration, calling the endpoint only when there is no valid token.
+	 * The token becomes the one injected in the following calls of the current thread.
+	 */
+	public static Response getTokenResponse(EndpointConfiguration config) {
+		String method = config.getHttConfiguration().getMethod().toLowerCase();
+		return getTokenResponse(config.getMethodService(), method, CallerService.getRequest(config), config.getTokenPath());
+	}
+
+	/**
+	 * Same as {@link #getTokenResponse(EndpointConfiguration)} for an EndpointDefinition with a tokenPath.
+	 */
+	public static Response getTokenResponse(EndpointDefinition definition, EndpointCall call) {
+		return getTokenResponse(definition.getMethodService(), definition.getMethod(), definition.newRequest(call), definition.getTokenPath());
+	}
+
+	static Response getTokenResponse(MethodServiceEnum service, String method, Request request, String tokenPath) {
+		TokenSource source = new TokenSource(service, method, request, tokenPath);
+		Token token;
+		try {
+			token = getToken(source);
+		} catch (TokenRejectedException e) {
+			CURRENT_KEY.remove();
+			APIManager.setLastResponse(e.response);
+			return e.response;
+		}
+		token.used = true;
+		CURRENT_KEY.set(source.key);
+		APIManager.setLastResponse(token.response);
+		return token.response;
+	}
+
+	/**
+	 * @return header value for the token obtained in the current thread, null when there is none
+	 */
+	public static String getCurrentAuthorization() {
+		String key = CURRENT_KEY.get();
+		if (key == null) {
+			return null;
+		}
+		Token token = TOKENS.get(key);
+		if (token == null) {
+			return null;
+		}
+		if (token.isExpired()) {
+			token = getToken(token.source);
+		}
+		token.used = true;
+		String prefix = Constants.getApiTokenPrefix();
+		return prefix.isEmpty() ? token.value : prefix + " " + token.value;
+	}
+
+	public static void clean() {
+		CURRENT_KEY.remove();
+	}
+
+	public static void purge() {
+		TOKENS.clear();
+		CURRENT_KEY.remove();
+	}
+
+	private static Token getToken(TokenSource source) {
+		Token token = TOKENS.get(source.key);
+		if (token != null && !token.isExpired()) {
+			token.used = true;
+			return token;
+		}
+		return fetch(source);
+	}
+
+	private static Token fetch(TokenSource source) {
+		CompletableFuture<Token> fetching = new CompletableFuture<Token>();
+		CompletableFuture<Token> inFlight = IN_FLIGHT.putIfAbsent(source.key, fetching);
+		if (inFlight != null) {
+			try {
+				return inFlight.join();
+			} catch (CompletionException e) {
+				throw (RuntimeException) e.getCause();
+			}
+		}
+		try {
+			Token token = requestToken(source);
+			TOKENS.put(source.key, token);
+			scheduleRefresh(token);
+			fetching.complete(token);
+			return token;
+		} catch (RuntimeException e) {
+			fetching.completeExceptionally(e);
+			throw e;
+		} finally {
+			IN_FLIGHT.remove(source.key, fetching);
+		}
+	}
+
+	private static Token requestToken(TokenSource source) {
+		Response response;
+		try {
+			response = CallerService.execute(source.service, source.method, source.request);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Token request to " + source.request.getCompleteUrl() + " failed", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Token request to " + source.request.getCompleteUrl() + " failed", e);
+		}
+		if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+			throw new TokenRejectedException(source, response);
+		}
+		String body = String.valueOf(response.getResponse());
+		String value;
+		try {
+			value = JsonStringValueExtractor.handle(body, source.tokenPath);
+		} catch (JSONException e) {
+			throw new IllegalStateException("Token not found in " + source.tokenPath + " of the response of " + source.request.getCompleteUrl(), e);
+		}
+		long expiresAt = getExpiresAt(value, body);
+		Logger.getLogger(TokenManager.class).info(">>>Token obtained from " + source.request.getCompleteUrl() + ", valid for " + TimeUnit.MILLISECONDS.toSeconds(expiresAt - System.currentTimeMillis()) + " seconds");
+		return new Token(source, value, response, expiresAt);
+	}
+
+	private static void scheduleRefresh(Token token) {
+		long delay = token.expiresAt - TimeUnit.SECONDS.toMillis(Constants.getApiTokenRefreshBeforeSeconds()) - System.currentTimeMillis();
+		if (delay <= 0) {
+			return;
+		}
+		REFRESHER.schedule(() -> {
+			if (TOKENS.get(token.source.key) != token || !token.used) {
+				return;
+			}
+			try {
+				fetch(token.source);
+			} catch (RuntimeException e) {
+				Logger.getLogger(TokenManager.class).warn(">>>Token refresh of " + token.source.request.getCompleteUrl() + " failed, it will be requested again when it expires: " + e.getMessage());
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return expiration of the token: the exp claim when it is a jwt, otherwise the expires_in of the response,
+	 * otherwise crowdar.api.token.ttl seconds from now
+	 */
+	static long getExpiresAt(String token, String responseBody) {
+		String[] jwt = token.split("\\.");
+		if (jwt.length == 3) {
+			try {
+				JSONObject claims = new JSONObject(new String(Base64.getUrlDecoder().decode(jwt[1]), StandardCharsets.UTF_8));
+				long exp = claims.optLong("exp", 0);
+				if (exp > 0) {
+					return TimeUnit.SECONDS.toMillis(exp);
+				}
+			} catch (IllegalArgumentException | JSONException e) {
+				// not a jwt
+			}
+		}
+		try {
+			long expiresIn = new JSONObject(responseBody).optLong("expires_in", 0);
+			if (expiresIn > 0) {
+				return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn);
+			}
+		} catch (JSONException e) {
+			// the response is not a json object
+		}
+		return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Constants.getApiTokenTtlSeconds());
+	}
+
+	private static class TokenSource {
+		private final MethodServiceEnum service;
+		private final String method;
+		private final Request request;
+		private final String tokenPath;
+		private final String key;
+
+		TokenSource(MethodServiceEnum service, String method, Request request, String tokenPath) {
+			this.service = service;
+			this.method = method;
+			this.request = request;
+			this.tokenPath = tokenPath;
+			this.key = method + " " + request.getCompleteUrl() + " " + new TreeMap<String, String>(request.getUrlParameters())
+					+ " " + new TreeMap<String, String>(request.getHeaders()) + " " + request.getEncodedBody() + " " + tokenPath;
+		}
+	}
+
+	/**
+	 * Login answered with a status other than 2xx, thrown to the fetch of every thread waiting for the same token.
+	 */
+	private static class TokenRejectedException extends RuntimeException {
+		private final transient Response response;
+
+		TokenRejectedException(TokenSource source, Response response) {
+			super("Token request to " + source.request.getCompleteUrl() + " failed with status " + response.getStatusCode());
+			this.response = response;
+		}
+	}
+
+	private static class Token {
+		private final TokenSource source;
+		private final String value;
+		private final Response response;
+		private final long expiresAt;
+		private volatile boolean used;
+
+		Token(TokenSource source, String value, Response response, long expiresAt) {
+			this.source = source;
+			this.value = value;
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() >= expiresAt;
+		}
+	}
+}
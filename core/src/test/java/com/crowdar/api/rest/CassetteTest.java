@@ -0,0 +1,78 @@
+package com.crowdar.api.rest;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.springframework.http.HttpMethod;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CassetteTest {
+
+	private Path cassettePath;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		cassettePath = Files.createTempFile("cassette", ".jsonl");
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		Cassette.purge();
+		Files.deleteIfExists(cassettePath);
+	}
+
+	@Test
+	public void whenUrlsOnlyDifferInCaseDefaultPortOrParameterOrderThenTheyShareTheKey() {
+		byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+		String key = Cassette.getKey(HttpMethod.POST, URI.create("HTTP://API.test:80/users/?b=2&a=1"), body);
+
+		Assert.assertEquals(key, Cassette.getKey(HttpMethod.POST, URI.create("http://api.test/users?a=1&b=2"), body));
+		Assert.assertNotEquals(key, Cassette.getKey(HttpMethod.POST, URI.create("http://api.test/users?a=1&b=2"), new byte[0]));
+		Assert.assertNotEquals(key, Cassette.getKey(HttpMethod.PUT, URI.create("http://api.test/users?a=1&b=2"), body));
+		Assert.assertEquals(Cassette.getLenientKey(HttpMethod.GET, URI.create("https://other.test:8443/users?b=2&a=1")), "GET /users?a=1&b=2");
+	}
+
+	@Test
+	public void whenCassetteIsReplayedThenRecordingsAreReturnedInOrderAndTheLastOneIsRepeated() throws Exception {
+		URI uri = URI.create("http://api.test/users/1");
+		Cassette recording = Cassette.get(cassettePath.toString(), true);
+		recording.record(new Cassette.Recording(HttpMethod.GET, uri, null, 200, Collections.emptyMap(), bytes("first")));
+		recording.record(new Cassette.Recording(HttpMethod.GET, uri, null, 404, Collections.emptyMap(), bytes("second")));
+		Cassette.purge();
+
+		Cassette replay = Cassette.get(cassettePath.toString(), false);
+
+		Assert.assertEquals(replay.size(), 2);
+		Assert.assertEquals(replay.find(HttpMethod.GET, uri, null, Cassette.Matching.STRICT).getBodyBytes(), bytes("first"));
+		Assert.assertEquals(replay.find(HttpMethod.GET, uri, null, Cassette.Matching.STRICT).getStatus(), 404);
+		Assert.assertEquals(replay.find(HttpMethod.GET, uri, null, Cassette.Matching.STRICT).getStatus(), 404);
+		Assert.assertNull(replay.find(HttpMethod.DELETE, uri, null, Cassette.Matching.STRICT));
+	}
+
+	@Test
+	public void whenMatchingIsLenientThenHostAndBodyAreIgnored() throws Exception {
+		byte[] binary = {(byte) 0xff, 0, (byte) 0xfe};
+		Cassette cassette = Cassette.get(cassettePath.toString(), true);
+		cassette.record(new Cassette.Recording(HttpMethod.POST, URI.create("http://api.test/files"), bytes("a"), 201, Collections.emptyMap(), binary));
+		Cassette.purge();
+
+		Cassette replay = Cassette.get(cassettePath.toString(), false);
+		URI otherHost = URI.create("http://localhost:8080/files");
+
+		Assert.assertNull(replay.find(HttpMethod.POST, otherHost, bytes("b"), Cassette.Matching.STRICT));
+		Cassette.Recording found = replay.find(HttpMethod.POST, otherHost, bytes("b"), Cassette.Matching.LENIENT);
+		Assert.assertTrue(found.isBase64());
+		Assert.assertEquals(found.getBodyBytes(), binary);
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
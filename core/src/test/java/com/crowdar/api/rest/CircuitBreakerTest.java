@@ -0,0 +1,64 @@
+package com.crowdar.api.rest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void whenFailuresReachTheThresholdThenTheCircuitOpensUntilATrialCallSucceeds() throws Exception {
+		CircuitBreaker circuit = new CircuitBreaker("api.test", 2, 50);
+
+		circuit.onFailure();
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.CLOSED);
+		circuit.onFailure();
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.OPEN);
+		Assert.assertFalse(circuit.tryAcquire());
+
+		Thread.sleep(60);
+		Assert.assertTrue(circuit.tryAcquire());
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.HALF_OPEN);
+		Assert.assertFalse(circuit.tryAcquire());
+
+		circuit.onSuccess();
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.CLOSED);
+		Assert.assertTrue(circuit.tryAcquire());
+	}
+
+	@Test
+	public void whenTrialCallFailsThenTheCircuitOpensAgain() throws Exception {
+		CircuitBreaker circuit = new CircuitBreaker("api.test", 1, 50);
+		circuit.onFailure();
+		Thread.sleep(60);
+
+		Assert.assertTrue(circuit.tryAcquire());
+		circuit.onFailure();
+
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.OPEN);
+		Assert.assertFalse(circuit.tryAcquire());
+	}
+
+	@Test
+	public void whenTrialCallIsReleasedThenTheNextCallIsTheTrial() throws Exception {
+		CircuitBreaker circuit = new CircuitBreaker("api.test", 1, 0);
+		circuit.onFailure();
+
+		Assert.assertTrue(circuit.tryAcquire());
+		Assert.assertFalse(circuit.tryAcquire());
+		circuit.release();
+
+		Assert.assertTrue(circuit.tryAcquire());
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.HALF_OPEN);
+	}
+
+	@Test
+	public void whenThresholdIsZeroThenTheCircuitNeverOpens() {
+		CircuitBreaker circuit = new CircuitBreaker("api.test", 0, 50);
+		for (int i = 0; i < 10; i++) {
+			circuit.onFailure();
+		}
+
+		Assert.assertEquals(circuit.getState(), CircuitBreaker.State.CLOSED);
+		Assert.assertTrue(circuit.tryAcquire());
+	}
+}
@@ -0,0 +1,115 @@
+package com.crowdar.api.rest;
+
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.crowdar.core.PropertyManager;
+
+@PrepareForTest({PropertyManager.class})
+@PowerMockIgnore({"javax.net.ssl.*","org.apache.log4j.*","org.slf4j.*","org.apache.xerces.*","org.w3c.*", "javax.xml.*", "org.xml.*", "org.apache.*", "org.w3c.dom.*", "org.apache.cxf.*"})
+public class ConditionalCacheInterceptorTest extends PowerMockTestCase {
+
+	private static final URI USERS = URI.create("http://api.test/users");
+	private static final byte[] NO_BODY = new byte[0];
+
+	private ConditionalCacheInterceptor interceptor;
+	private List<HttpHeaders> sentHeaders;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		PowerMockito.mockStatic(PropertyManager.class);
+		when(PropertyManager.class, "getProperty", Mockito.anyString()).thenReturn(null);
+		interceptor = new ConditionalCacheInterceptor(true, 10);
+		sentHeaders = new ArrayList<>();
+	}
+
+	@Test
+	public void whenResourceIsNotModifiedThenTheCachedBodyIsReturned() throws Exception {
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, "\"v1\"", null, "users"));
+
+		ClientHttpResponse response = interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(304, "\"v1\"", null, ""));
+
+		Assert.assertEquals(sentHeaders.get(1).getFirst(HttpHeaders.IF_NONE_MATCH), "\"v1\"");
+		Assert.assertEquals(response.getRawStatusCode(), 200);
+		Assert.assertEquals(body(response), "users");
+	}
+
+	@Test
+	public void whenResourceChangedThenTheNewBodyIsReturnedAndCached() throws Exception {
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, "\"v1\"", null, "users"));
+		ClientHttpResponse changed = interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, "\"v2\"", null, "new users"));
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(304, null, null, ""));
+
+		Assert.assertEquals(body(changed), "new users");
+		Assert.assertEquals(sentHeaders.get(2).getFirst(HttpHeaders.IF_NONE_MATCH), "\"v2\"");
+	}
+
+	@Test
+	public void whenUrlIsModifiedThenItsCachedResponseIsDropped() throws Exception {
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, null, "Wed, 21 Oct 2026 07:28:00 GMT", "users"));
+		interceptor.intercept(request(HttpMethod.POST), NO_BODY, answer(201, null, null, ""));
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, null, null, "users"));
+
+		Assert.assertFalse(sentHeaders.get(2).containsKey(HttpHeaders.IF_MODIFIED_SINCE));
+	}
+
+	@Test
+	public void whenResponseIsNoStoreThenItIsNotCached() throws Exception {
+		HttpHeaders noStore = new HttpHeaders();
+		noStore.setETag("\"v1\"");
+		noStore.setCacheControl("no-store");
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, (request, body) -> {
+			sentHeaders.add(request.getHeaders());
+			return new BufferedClientHttpResponse(200, noStore, "users".getBytes(StandardCharsets.UTF_8));
+		});
+		interceptor.intercept(request(HttpMethod.GET), NO_BODY, answer(200, null, null, "users"));
+
+		Assert.assertFalse(sentHeaders.get(1).containsKey(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	private ClientHttpRequestExecution answer(int statusCode, String etag, String lastModified, String body) {
+		return (request, requestBody) -> {
+			sentHeaders.add(request.getHeaders());
+			HttpHeaders headers = new HttpHeaders();
+			if (etag != null) {
+				headers.setETag(etag);
+			}
+			if (lastModified != null) {
+				headers.set(HttpHeaders.LAST_MODIFIED, lastModified);
+			}
+			return new BufferedClientHttpResponse(statusCode, headers, body.getBytes(StandardCharsets.UTF_8));
+		};
+	}
+
+	private static HttpRequest request(HttpMethod method) {
+		HttpRequest request = Mockito.mock(HttpRequest.class);
+		HttpHeaders headers = new HttpHeaders();
+		Mockito.when(request.getMethod()).thenReturn(method);
+		Mockito.when(request.getURI()).thenReturn(USERS);
+		Mockito.when(request.getHeaders()).thenReturn(headers);
+		return request;
+	}
+
+	private static String body(ClientHttpResponse response) throws Exception {
+		return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,72 @@
+package com.crowdar.api.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class EncodedBodyTest {
+
+	@Test
+	public void whenTextBodyIsNotChangedThenItIsEncodedOnce() {
+		Request request = new Request();
+		request.setBody("{\"name\":\"lippia\"}");
+
+		EncodedBody first = request.getEncodedBody();
+
+		Assert.assertSame(request.getEncodedBody(), first);
+		Assert.assertEquals(new String(first.getBytes(), StandardCharsets.UTF_8), "{\"name\":\"lippia\"}");
+		Assert.assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(first.getContentType()));
+	}
+
+	@Test
+	public void whenObjectBodyIsModifiedAfterSetBodyThenTheChangeIsSent() {
+		Map<String, String> body = new HashMap<>();
+		body.put("name", "lippia");
+		Request request = new Request();
+		request.setBody(body);
+		EncodedBody first = request.getEncodedBody();
+
+		body.put("name", "core");
+
+		Assert.assertEquals(new String(first.getBytes(), StandardCharsets.UTF_8), "{\"name\":\"lippia\"}");
+		Assert.assertEquals(new String(request.getEncodedBody().getBytes(), StandardCharsets.UTF_8), "{\"name\":\"core\"}");
+		Assert.assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(request.getEncodedBody().getContentType()));
+	}
+
+	@Test
+	public void whenBodyOrHeadersChangeThenItIsEncodedAgain() {
+		Request request = new Request();
+		request.setBody("\u00f1and\u00fa");
+		EncodedBody first = request.getEncodedBody();
+
+		request.addHeader("Content-Type", "text/plain;charset=ISO-8859-1");
+		EncodedBody second = request.getEncodedBody();
+		request.setBody("{\"id\": 1}");
+		EncodedBody third = request.getEncodedBody();
+
+		Assert.assertNotSame(second, first);
+		Assert.assertEquals(first.getBytes().length, 7);
+		Assert.assertEquals(second.getBytes().length, 5);
+		Assert.assertEquals(second.getContentType().getCharset(), StandardCharsets.ISO_8859_1);
+		Assert.assertNotSame(third, second);
+		Assert.assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(third.getContentType()));
+		Assert.assertEquals(request.getBody(), "{\"id\": 1}");
+	}
+
+	@Test
+	public void whenBodyIsEmptyOrBinaryThenNothingIsEncoded() {
+		Assert.assertSame(EncodedBody.encode(null, null), EncodedBody.EMPTY);
+		Assert.assertSame(EncodedBody.encode("", null), EncodedBody.EMPTY);
+
+		byte[] binary = {1, 2, 3};
+		EncodedBody body = EncodedBody.encode(binary, null);
+
+		Assert.assertNull(body.getBytes());
+		Assert.assertFalse(body.isEmpty());
+		Assert.assertSame(body.getValue(), binary);
+	}
+}
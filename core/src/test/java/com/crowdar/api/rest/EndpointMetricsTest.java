@@ -0,0 +1,25 @@
+package com.crowdar.api.rest;
+
+import java.net.URI;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class EndpointMetricsTest {
+
+	@Test
+	public void whenPathHasIdsThenTheyAreGroupedInTheSameEndpoint() {
+		Assert.assertEquals(EndpointMetrics.getEndpointKey("GET", URI.create("https://api.test/users/10/orders/7?page=2")),
+				"GET api.test/users/{id}/orders/{id}");
+		Assert.assertEquals(EndpointMetrics.getEndpointKey("DELETE", URI.create("http://api.test:8080/users/123e4567-e89b-12d3-a456-426614174000")),
+				"DELETE api.test:8080/users/{id}");
+		Assert.assertEquals(EndpointMetrics.getEndpointKey("GET", URI.create("https://api.test/items/507f1f77bcf86cd799439011/")),
+				"GET api.test/items/{id}");
+	}
+
+	@Test
+	public void whenSegmentIsNotAnIdThenItIsKept() {
+		Assert.assertEquals(EndpointMetrics.getEndpointKey("POST", URI.create("https://api.test/v2/users")), "POST api.test/v2/users");
+		Assert.assertEquals(EndpointMetrics.getEndpointKey("GET", null), "GET");
+	}
+}
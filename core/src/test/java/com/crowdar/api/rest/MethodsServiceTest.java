@@ -50,7 +50,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 				restClient.get(
 						"http://test.test", 
 						Response.class, 
-						request.getBody().toString(), 
+						request.getEncodedBody(), 
 						request.getUrlParameters(), 
 						request.getHeaders()
 				)
@@ -60,7 +60,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 				restClient.post(
 						"http://test.test", 
 						Response.class, 
-						request.getBody().toString(), 
+						request.getEncodedBody(), 
 						request.getUrlParameters(), 
 						request.getHeaders()
 				)
@@ -70,7 +70,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 				restClient.patch(
 						"http://test.test", 
 						Response.class, 
-						request.getBody().toString(), 
+						request.getEncodedBody(), 
 						request.getUrlParameters(), 
 						request.getHeaders()
 				)
@@ -80,7 +80,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 				restClient.delete(
 						"http://test.test", 
 						Response.class, 
-						request.getBody().toString(), 
+						request.getEncodedBody(), 
 						request.getUrlParameters(), 
 						request.getHeaders()
 				)
@@ -90,7 +90,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 				restClient.put(
 						"http://test.test", 
 						Response.class, 
-						request.getBody().toString(), 
+						request.getEncodedBody(), 
 						request.getUrlParameters(), 
 						request.getHeaders()
 				)
@@ -104,7 +104,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).get(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -117,7 +117,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).get(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -131,7 +131,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).post(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -144,7 +144,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
     	Mockito.verify(restClient, Mockito.times(1)).post(
     			"http://test.test", 
     			Response.class, 
-    			request.getBody().toString(), 
+    			request.getEncodedBody(), 
     			request.getUrlParameters(), 
     			request.getHeaders());
     	Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -157,7 +157,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).patch(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -170,7 +170,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
     	Mockito.verify(restClient, Mockito.times(1)).patch(
     			"http://test.test", 
     			Response.class, 
-    			request.getBody().toString(), 
+    			request.getEncodedBody(), 
     			request.getUrlParameters(), 
     			request.getHeaders());
     	Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -183,7 +183,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).delete(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -196,7 +196,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
     	Mockito.verify(restClient, Mockito.times(1)).delete(
     			"http://test.test", 
     			Response.class, 
-    			request.getBody().toString(), 
+    			request.getEncodedBody(), 
     			request.getUrlParameters(), 
     			request.getHeaders());
     	Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -209,7 +209,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
 		Mockito.verify(restClient, Mockito.times(1)).put(
 				"http://test.test", 
 				Response.class, 
-				request.getBody().toString(), 
+				request.getEncodedBody(), 
 				request.getUrlParameters(), 
 				request.getHeaders());
 		Assert.assertTrue(response.equals(responseFromStaticMethod));
@@ -222,7 +222,7 @@ public class MethodsServiceTest extends PowerMockTestCase {
     	Mockito.verify(restClient, Mockito.times(1)).put(
     			"http://test.test", 
     			Response.class, 
-    			request.getBody().toString(), 
+    			request.getEncodedBody(), 
     			request.getUrlParameters(), 
     			request.getHeaders());
     	Assert.assertTrue(response.equals(responseFromStaticMethod));
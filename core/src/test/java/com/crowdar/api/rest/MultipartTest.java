@@ -0,0 +1,74 @@
+package com.crowdar.api.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.http.HttpEntity;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MultipartTest {
+
+	private Path file;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		file = Files.createTempFile("upload", ".csv");
+		Files.write(file, "id,name\n1,ana\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void whenEntityIsWrittenThenItsLengthIsTheContentLength() throws Exception {
+		Multipart multipart = Multipart.create().field("description", "clientes \u00f1").file("data", file, "text/csv");
+		HttpEntity entity = multipart.toEntity();
+
+		byte[] written = write(entity);
+
+		Assert.assertEquals(entity.getContentLength(), written.length);
+		Assert.assertEquals(entity.getContentType().getValue(), multipart.getContentType());
+		String body = new String(written, StandardCharsets.UTF_8);
+		String boundary = multipart.getContentType().substring(multipart.getContentType().indexOf("boundary=") + "boundary=".length());
+		Assert.assertTrue(body.startsWith("--" + boundary + "\r\nContent-Disposition: form-data; name=\"description\"\r\n"));
+		Assert.assertTrue(body.contains("name=\"data\"; filename=\"" + file.getFileName() + "\"\r\nContent-Type: text/csv\r\n\r\nid,name\n1,ana\n"));
+		Assert.assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"));
+	}
+
+	@Test
+	public void whenContentIsReadAgainThenItIsTheWrittenBody() throws Exception {
+		HttpEntity entity = Multipart.create().field("description", "clientes").file("data", file, "text/csv").toEntity();
+
+		byte[] written = write(entity);
+
+		Assert.assertTrue(entity.isRepeatable());
+		Assert.assertEquals(read(entity), written);
+		Assert.assertEquals(read(entity), written);
+	}
+
+	private static byte[] write(HttpEntity entity) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		return out.toByteArray();
+	}
+
+	private static byte[] read(HttpEntity entity) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream content = entity.getContent()) {
+			byte[] buffer = new byte[7];
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,159 @@
+package com.crowdar.api.rest;
+
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.crowdar.core.PropertyManager;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.lippia.api.service.TokenManager;
+
+@PrepareForTest({PropertyManager.class, TokenManager.class})
+@PowerMockIgnore({"javax.net.ssl.*","org.apache.log4j.*","org.slf4j.*","org.apache.xerces.*","org.w3c.*", "javax.xml.*", "org.xml.*", "org.apache.*", "org.w3c.dom.*", "org.apache.cxf.*"})
+public class PageIteratorTest extends PowerMockTestCase {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private RestClient restClient;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		PowerMockito.mockStatic(PropertyManager.class);
+		when(PropertyManager.class, "getProperty", Mockito.anyString()).thenReturn(null);
+		PowerMockito.mockStatic(TokenManager.class);
+		restClient = Mockito.mock(RestClient.class);
+	}
+
+	@Test
+	public void whenLinkHeaderHasANextRelationThenItIsFollowedUntilThereIsNone() throws Exception {
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[1, 2]", "</items?page=2>; rel=\"next\", </items?page=9>; rel=\"last\""));
+		Mockito.when(restClient.get(Mockito.eq(URI.create("http://api.test/items?page=2")), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[3]", "<http://api.test/items?page=3>; rel=\"prev NEXT\""));
+		Mockito.when(restClient.get(Mockito.eq(URI.create("http://api.test/items?page=3")), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[4]", "</items?page=2>; rel=\"prev\""));
+
+		Assert.assertEquals(consume(new PageIterator<>(restClient, request(), JsonNode.class, Pagination.link())), Arrays.asList(1, 2, 3, 4));
+	}
+
+	@Test
+	public void whenPageIsShorterThanThePageSizeThenThereAreNoMorePages() throws Exception {
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenAnswer(invocation -> {
+					Map<String, String> urlParameters = invocation.getArgument(3);
+					Assert.assertEquals(urlParameters.get("size"), "2");
+					return response("1".equals(urlParameters.get("page")) ? "[1, 2]" : "[3]", null);
+				});
+
+		PageIterator<JsonNode> iterator = new PageIterator<>(restClient, request(), JsonNode.class, Pagination.page("page", "size", 2));
+
+		Assert.assertEquals(consume(iterator), Arrays.asList(1, 2, 3));
+		Assert.assertFalse(iterator.hasNext());
+		Mockito.verify(restClient, Mockito.times(2)).get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap());
+	}
+
+	@Test
+	public void whenNextCursorIsMissingThenThereAreNoMorePages() throws Exception {
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenAnswer(invocation -> {
+					Map<String, String> urlParameters = invocation.getArgument(3);
+					return "b".equals(urlParameters.get("cursor"))
+							? response("{\"data\": [2], \"meta\": {\"next\": null}}", null)
+							: response("{\"data\": [1], \"meta\": {\"next\": \"b\"}}", null);
+				});
+
+		List<Integer> items = consume(new PageIterator<>(restClient, request(), JsonNode.class, Pagination.cursor("cursor", "meta.next").items("data")));
+
+		Assert.assertEquals(items, Arrays.asList(1, 2));
+	}
+
+	@Test(expectedExceptions = NoSuchElementException.class)
+	public void whenPagesAreExhaustedThenNextFails() throws Exception {
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[]", null));
+
+		PageIterator<JsonNode> iterator = new PageIterator<>(restClient, request(), JsonNode.class, Pagination.offset("offset", "limit", 10));
+
+		Assert.assertFalse(iterator.hasNext());
+		iterator.next();
+	}
+
+	@Test
+	public void whenMaxPagesIsReachedThenTheNextPageIsNotRequested() throws Exception {
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[1]", "</items?page=2>; rel=\"next\""));
+
+		List<Integer> items = consume(new PageIterator<>(restClient, request(), JsonNode.class, Pagination.link().maxPages(1)));
+
+		Assert.assertEquals(items, Collections.singletonList(1));
+		Mockito.verify(restClient, Mockito.never()).get(Mockito.any(URI.class), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap());
+	}
+
+	@Test
+	public void whenThreadHasATokenThenPrefetchedPagesSendItToo() throws Exception {
+		when(TokenManager.class, "getCurrentAuthorization").thenReturn("Bearer first");
+		Mockito.when(restClient.get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[1]", "</items?page=2>; rel=\"next\""));
+		Mockito.when(restClient.get(Mockito.any(URI.class), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response("[2]", null));
+
+		PageIterator<JsonNode> iterator = new PageIterator<>(restClient, request(), JsonNode.class, Pagination.link());
+		when(TokenManager.class, "getCurrentAuthorization").thenReturn(null);
+
+		Assert.assertEquals(consume(iterator), Arrays.asList(1, 2));
+		Mockito.verify(restClient).get(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(),
+				Mockito.eq(Collections.singletonMap("Authorization", "Bearer first")));
+		Mockito.verify(restClient).get(Mockito.eq(URI.create("http://api.test/items?page=2")), Mockito.any(), Mockito.any(), Mockito.anyMap(),
+				Mockito.eq(Collections.singletonMap("Authorization", "Bearer first")));
+	}
+
+	@Test
+	public void whenClosedBeforeTheFirstPageThenNothingIsRequested() throws Exception {
+		PageIterator<JsonNode> iterator = new PageIterator<>(restClient, request(), JsonNode.class, Pagination.link());
+
+		iterator.close();
+
+		Assert.assertFalse(iterator.hasNext());
+		Mockito.verifyZeroInteractions(restClient);
+	}
+
+	private static List<Integer> consume(PageIterator<JsonNode> iterator) {
+		List<Integer> items = new ArrayList<>();
+		iterator.forEachRemaining(item -> items.add(item.asInt()));
+		return items;
+	}
+
+	private static Request request() {
+		Request request = new Request();
+		request.setUrl("http://api.test");
+		request.setEndpoint("/items");
+		return request;
+	}
+
+	private static Response response(String body, String link) throws IOException {
+		Map<String, List<String>> headers = new HashMap<>();
+		if (link != null) {
+			headers.put("link", Collections.singletonList(link));
+		}
+		return new Response(200, "OK", MAPPER.readTree(body), new Headers(headers));
+	}
+}
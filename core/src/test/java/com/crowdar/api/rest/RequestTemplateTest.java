@@ -0,0 +1,78 @@
+package com.crowdar.api.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RequestTemplateTest {
+
+	private Path jsonFile;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		jsonFile = Files.createTempFile("request", ".json");
+		write("{\"endpoint\": \"/users/{{id}}\", \"body\": {\"name\": \"{{name}}\"}}");
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		RequestTemplate.purge();
+		Files.deleteIfExists(jsonFile);
+	}
+
+	@Test
+	public void whenRenderWithParametersThenPlaceholdersAreReplaced() throws Exception {
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("id", "10");
+		parameters.put("name", "lippia");
+
+		String json = RequestTemplate.get(jsonFile).render(parameters);
+
+		Assert.assertEquals(json, "{\"endpoint\":\"/users/10\",\"body\":{\"name\":\"lippia\"}}");
+	}
+
+	@Test
+	public void whenParameterIsMissingThenPlaceholderIsKept() throws Exception {
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("id", "10");
+
+		Request request = RequestTemplate.get(jsonFile).toRequest(parameters);
+
+		Assert.assertEquals(request.getEndpoint(), "/users/10");
+		Assert.assertEquals(request.getBody(), "{\"name\":\"{{name}}\"}");
+	}
+
+	@Test
+	public void whenFileIsNotModifiedThenTemplateIsReused() throws Exception {
+		RequestTemplate first = RequestTemplate.get(jsonFile);
+
+		Assert.assertSame(RequestTemplate.get(jsonFile), first);
+		Assert.assertEquals(first.getPlaceholders().size(), 2);
+	}
+
+	@Test
+	public void whenFileIsModifiedThenTemplateIsRecompiled() throws Exception {
+		RequestTemplate first = RequestTemplate.get(jsonFile);
+		write("{\"endpoint\": \"/accounts/{{id}}\"}");
+		Files.setLastModifiedTime(jsonFile, FileTime.fromMillis(Files.getLastModifiedTime(jsonFile).toMillis() + 1000));
+
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("id", "7");
+		RequestTemplate second = RequestTemplate.get(jsonFile);
+
+		Assert.assertNotSame(second, first);
+		Assert.assertEquals(second.render(parameters), "{\"endpoint\":\"/accounts/7\"}");
+	}
+
+	private void write(String json) throws Exception {
+		Files.write(jsonFile, json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,150 @@
+package com.crowdar.api.rest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ResilienceInterceptorTest {
+
+	private static final byte[] BODY = new byte[0];
+
+	@Test
+	public void whenRetryAfterIsInSecondsOrDateThenItIsConvertedToMillis() {
+		Assert.assertEquals(ResilienceInterceptor.getRetryAfterMillis(headers("120")), 120000);
+		Assert.assertEquals(ResilienceInterceptor.getRetryAfterMillis(headers(" ")), -1);
+		Assert.assertEquals(ResilienceInterceptor.getRetryAfterMillis(headers("soon")), -1);
+		Assert.assertEquals(ResilienceInterceptor.getRetryAfterMillis(new HttpHeaders()), -1);
+
+		HttpHeaders future = new HttpHeaders();
+		future.setDate("Retry-After", System.currentTimeMillis() + 5000);
+		long millis = ResilienceInterceptor.getRetryAfterMillis(future);
+		Assert.assertTrue(millis > 3000 && millis <= 5000, "Retry-After date was " + millis + " ms away");
+
+		HttpHeaders past = new HttpHeaders();
+		past.setDate("Retry-After", System.currentTimeMillis() - 5000);
+		Assert.assertEquals(ResilienceInterceptor.getRetryAfterMillis(past), 0);
+	}
+
+	@Test
+	public void whenAttemptsGrowThenBackoffDoublesUpToTheMax() {
+		ResilienceInterceptor interceptor = new ResilienceInterceptor(3, "503", 100, 1000, 0.1, 0, 0);
+
+		for (int i = 0; i < 20; i++) {
+			assertBetween(interceptor.getBackoffMillis(0), 50, 100);
+			assertBetween(interceptor.getBackoffMillis(3), 400, 800);
+			assertBetween(interceptor.getBackoffMillis(10), 500, 1000);
+			assertBetween(interceptor.getBackoffMillis(40), 500, 1000);
+		}
+	}
+
+	@Test
+	public void whenRetryAfterIsLongerThanTheMaxBackoffThenTheResponseIsReturned() throws Exception {
+		ResilienceInterceptor interceptor = new ResilienceInterceptor(3, "503", 1, 1000, 0.1, 0, 0);
+		ClientHttpResponse unavailable = response(503);
+		Mockito.when(unavailable.getHeaders()).thenReturn(headers("10"));
+		AtomicInteger executions = new AtomicInteger();
+
+		ClientHttpResponse response = interceptor.intercept(request(HttpMethod.GET), BODY, (request, body) -> {
+			executions.incrementAndGet();
+			return unavailable;
+		});
+
+		Assert.assertSame(response, unavailable);
+		Assert.assertEquals(executions.get(), 1);
+	}
+
+	@Test
+	public void whenRetryBudgetIsExhaustedThenCallsAreNotRetried() throws Exception {
+		ResilienceInterceptor interceptor = new ResilienceInterceptor(3, "503", 1, 1, 0, 0, 0);
+		AtomicInteger executions = new AtomicInteger();
+		ClientHttpRequestExecution failing = (request, body) -> {
+			executions.incrementAndGet();
+			throw new IOException("connection reset");
+		};
+
+		for (int i = 0; i < 4; i++) {
+			try {
+				interceptor.intercept(request(HttpMethod.GET), BODY, failing);
+				Assert.fail("The call should have failed");
+			} catch (IOException e) {
+				Assert.assertEquals(e.getMessage(), "connection reset");
+			}
+		}
+
+		Assert.assertEquals(executions.get(), 3 * 4 + 2);
+	}
+
+	@Test
+	public void whenMethodIsNotIdempotentThenItIsNotRetried() throws Exception {
+		ResilienceInterceptor interceptor = new ResilienceInterceptor(3, "503", 1, 1, 1, 0, 0);
+		AtomicInteger executions = new AtomicInteger();
+
+		ClientHttpResponse response = interceptor.intercept(request(HttpMethod.POST), BODY, (request, body) -> {
+			executions.incrementAndGet();
+			return response(503);
+		});
+
+		Assert.assertEquals(response.getRawStatusCode(), 503);
+		Assert.assertEquals(executions.get(), 1);
+	}
+
+	@Test
+	public void whenTrialCallThrowsARuntimeExceptionThenTheCircuitAcceptsTheNextTrial() throws Exception {
+		ResilienceInterceptor interceptor = new ResilienceInterceptor(0, "503", 1, 1, 0, 1, 0);
+		HttpRequest request = request(HttpMethod.POST);
+		try {
+			interceptor.intercept(request, BODY, (req, body) -> {
+				throw new IOException("connection reset");
+			});
+			Assert.fail("The call should have failed");
+		} catch (IOException e) {
+			Assert.assertEquals(interceptor.getCircuit(request.getURI()).getState(), CircuitBreaker.State.OPEN);
+		}
+		try {
+			interceptor.intercept(request, BODY, (req, body) -> {
+				throw new IllegalStateException("no cassette entry");
+			});
+			Assert.fail("The call should have failed");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals(e.getMessage(), "no cassette entry");
+		}
+
+		ClientHttpResponse response = interceptor.intercept(request, BODY, (req, body) -> response(200));
+
+		Assert.assertEquals(response.getRawStatusCode(), 200);
+		Assert.assertEquals(interceptor.getCircuit(request.getURI()).getState(), CircuitBreaker.State.CLOSED);
+	}
+
+	private static HttpRequest request(HttpMethod method) {
+		HttpRequest request = Mockito.mock(HttpRequest.class);
+		Mockito.when(request.getMethod()).thenReturn(method);
+		Mockito.when(request.getURI()).thenReturn(URI.create("http://api.test/users"));
+		return request;
+	}
+
+	private static ClientHttpResponse response(int statusCode) throws IOException {
+		ClientHttpResponse response = Mockito.mock(ClientHttpResponse.class);
+		Mockito.when(response.getRawStatusCode()).thenReturn(statusCode);
+		Mockito.when(response.getHeaders()).thenReturn(new HttpHeaders());
+		return response;
+	}
+
+	private static HttpHeaders headers(String retryAfter) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", retryAfter);
+		return headers;
+	}
+
+	private static void assertBetween(long value, long min, long max) {
+		Assert.assertTrue(value >= min && value <= max, value + " is not between " + min + " and " + max);
+	}
+}
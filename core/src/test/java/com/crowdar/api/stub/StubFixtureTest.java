@@ -0,0 +1,61 @@
+package com.crowdar.api.stub;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.crowdar.api.rest.Request;
+
+public class StubFixtureTest {
+
+	private static final byte[] RESPONSE = "{}".getBytes();
+
+	@Test
+	public void whenPathMatchesWithPlaceholdersThenTheFixtureMatches() {
+		StubFixture fixture = new StubFixture("user", null, request("http://api.test", "/users/{{id}}/orders/"), RESPONSE);
+
+		Assert.assertTrue(fixture.matches("GET", URI.create("http://localhost:8089/users/10/orders")));
+		Assert.assertTrue(fixture.matches("GET", URI.create("http://localhost:8089/users/10/orders/")));
+		Assert.assertFalse(fixture.matches("GET", URI.create("http://localhost:8089/users/10/orders/7")));
+		Assert.assertFalse(fixture.matches("GET", URI.create("http://localhost:8089/users/10")));
+		Assert.assertEquals(fixture.getSpecificity(), "/users//orders".length());
+	}
+
+	@Test
+	public void whenFixtureHasUrlParametersThenTheRequestMustHaveThem() {
+		Request request = request("{{baseUrl}}", "/users");
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("status", "active");
+		parameters.put("page", "{{page}}");
+		request.setUrlParameters(parameters);
+		StubFixture fixture = new StubFixture("users", null, request, RESPONSE);
+
+		Assert.assertTrue(fixture.matches("GET", URI.create("http://localhost:8089/users?page=2&status=active")));
+		Assert.assertFalse(fixture.matches("GET", URI.create("http://localhost:8089/users?page=2&status=blocked")));
+		Assert.assertFalse(fixture.matches("GET", URI.create("http://localhost:8089/users?status=active")));
+	}
+
+	@Test
+	public void whenFixtureHasAMethodThenOtherMethodsDoNotMatch() {
+		StubFixture delete = new StubFixture("deleteUser", "delete", request("http://api.test", "/users/{{id}}"), RESPONSE);
+		StubFixture any = new StubFixture("user", null, request("http://api.test", "/users/{{id}}"), RESPONSE);
+		URI uri = URI.create("http://localhost:8089/users/10");
+
+		Assert.assertEquals(delete.getMethod(), "DELETE");
+		Assert.assertTrue(delete.matches("DELETE", uri));
+		Assert.assertFalse(delete.matches("GET", uri));
+		Assert.assertNull(any.getMethod());
+		Assert.assertTrue(any.matches("GET", uri));
+		Assert.assertTrue(any.matches("DELETE", uri));
+	}
+
+	private static Request request(String url, String endpoint) {
+		Request request = new Request();
+		request.setUrl(url);
+		request.setEndpoint(endpoint);
+		return request;
+	}
+}
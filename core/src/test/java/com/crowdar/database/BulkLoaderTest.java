@@ -0,0 +1,60 @@
+package com.crowdar.database;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BulkLoaderTest {
+
+	private String url;
+	private ConnectionPool pool;
+	private Path fixture;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		url = H2Database.create("create table users (id int primary key, name varchar(50))");
+		pool = H2Database.pool("test", url, 2);
+		fixture = Files.createTempFile("fixture", ".csv");
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		pool.close();
+		H2Database.drop(url);
+		Files.deleteIfExists(fixture);
+	}
+
+	@Test
+	public void whenCsvIsLoadedThenRowsAreSentInBatchesOfOneTransaction() throws Exception {
+		Files.write(fixture, Arrays.asList("id,name", "1,\"Smith, John\"", "2,\"say \"\"hi\"\"\"", "", "3,", "4,d", "5,e"), StandardCharsets.UTF_8);
+
+		BulkLoadResult result = BulkLoader.into(pool, "users").batchSize(2).fromCsv(fixture).execute();
+
+		Assert.assertEquals(result.getRows(), 5);
+		Assert.assertEquals(result.getBatches(), 3);
+		Assert.assertEquals(H2Database.count(url, "users"), 5);
+		Assert.assertEquals(H2Database.get(url, "select name from users where id = 1"), "Smith, John");
+		Assert.assertEquals(H2Database.get(url, "select name from users where id = 2"), "say \"hi\"");
+		Assert.assertNull(H2Database.get(url, "select name from users where id = 3"));
+		Assert.assertEquals(pool.getActiveConnections(), 0);
+	}
+
+	@Test
+	public void whenJsonFixtureIsInvalidThenTheLoadIsRolledBack() throws Exception {
+		Files.write(fixture, "[{\"id\": 1}, {\"id\": 2}, 3]".getBytes(StandardCharsets.UTF_8));
+
+		try {
+			BulkLoader.into(pool, "users").batchSize(1).fromJson(fixture).execute();
+			Assert.fail("The load did not fail");
+		} catch (java.sql.SQLException e) {
+			Assert.assertEquals(H2Database.count(url, "users"), 0);
+			Assert.assertEquals(pool.getActiveConnections(), 0);
+		}
+	}
+}
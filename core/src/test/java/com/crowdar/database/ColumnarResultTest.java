@@ -0,0 +1,96 @@
+package com.crowdar.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.lippia.api.extractor.ddbb.DatabaseIntegerValueExtractor;
+import io.lippia.api.extractor.ddbb.DatabaseShortValueExtractor;
+import io.lippia.api.extractor.ddbb.DatabaseStringValueExtractor;
+
+public class ColumnarResultTest {
+
+	private String url;
+	private ColumnarResult result;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		url = H2Database.create("create table users (id int primary key, name varchar(10), level smallint, code varchar(10), \"id\" int)",
+				"insert into users values (1, 'a', 3, null, 2), (2, null, 4, '10', 3), (3, 'c', null, 'x', 4)");
+		result = read("select id, name, level, code from users order by id");
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		H2Database.drop(url);
+	}
+
+	@Test
+	public void whenResultIsReadThenRowsKeepTheValuesAndTypesOfTheDriver() {
+		Map<String, Object> first = new HashMap<String, Object>();
+		first.put("ID", 1);
+		first.put("NAME", "a");
+		first.put("LEVEL", (short) 3);
+		first.put("CODE", null);
+
+		Assert.assertEquals(result.size(), 3);
+		Assert.assertEquals(result.get(0), first);
+		Assert.assertEquals(result.get(2).get("LEVEL"), null);
+		Assert.assertEquals(result.get(1).get("code"), "10");
+		Assert.assertEquals(result.get(2, "CODE"), "x");
+		Assert.assertEquals(result.getInt(1, 0), 2);
+		Assert.assertEquals(result.getColumns().getLabels(), Arrays.asList("ID", "NAME", "LEVEL", "CODE"));
+	}
+
+	@Test
+	public void whenLabelsAreRepeatedThenTheLastColumnWinsOnce() throws Exception {
+		ColumnarResult repeated = read("select id, name, \"id\" from users where id = 1");
+		result = read("select id, name, \"id\" as id from users where id = 1");
+
+		Assert.assertEquals(repeated.get(0, "ID"), 1);
+		Assert.assertEquals(repeated.get(0, "Id"), 2);
+		Assert.assertEquals(result.get(0).size(), 2);
+		Assert.assertEquals(result.get(0).entrySet().size(), 2);
+		Assert.assertEquals(result.get(0).get("ID"), 2);
+		Assert.assertEquals(result.get(0), result.toRows().get(0));
+	}
+
+	@Test
+	public void whenRowsAreCopiedThenTheyCanBeModified() {
+		List<Map<String, Object>> rows = result.toRows();
+
+		rows.get(0).put("NAME", "z");
+		rows.remove(2);
+
+		Assert.assertEquals(rows.size(), 2);
+		Assert.assertEquals(rows.get(0).get("NAME"), "z");
+		Assert.assertEquals(rows.get(1), result.get(1));
+		Assert.assertEquals(result.get(0).get("NAME"), "a");
+	}
+
+	@Test
+	public void whenExtractorsReadAPathThenTheColumnOfTheRowIsReturned() throws Exception {
+		Assert.assertEquals(DatabaseIntegerValueExtractor.handle(result, "[2].ID"), 3);
+		Assert.assertEquals(DatabaseShortValueExtractor.handle(result, "[1].LEVEL"), 4);
+		Assert.assertEquals(DatabaseStringValueExtractor.handle(result, "[0].NAME"), "a");
+		Assert.assertNull(DatabaseStringValueExtractor.handle(result, "[1].NAME"));
+	}
+
+	private ColumnarResult read(String query) throws Exception {
+		try (Connection connection = DriverManager.getConnection(url, H2Database.USER, H2Database.PASSWORD);
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(query)) {
+			return ColumnarResult.read(resultSet);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.crowdar.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ConnectionPoolTest {
+
+	private String url;
+	private ConnectionPool pool;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		url = H2Database.create("create table users (id int primary key, name varchar(50))",
+				"insert into users values (1, 'a'), (2, 'b'), (3, 'c'), (4, 'd')");
+		pool = H2Database.pool("test", url, 2);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		pool.close();
+		H2Database.drop(url);
+	}
+
+	@Test
+	public void whenConnectionIsClosedThenThePhysicalConnectionIsReused() throws Exception {
+		int session;
+		try (Connection connection = pool.getConnection()) {
+			session = H2Database.getSessionId(connection);
+		}
+		for (int i = 0; i < 4; i++) {
+			try (Connection connection = pool.getConnection()) {
+				Assert.assertFalse(connection.isClosed());
+				Assert.assertEquals(H2Database.getSessionId(connection), session);
+			}
+		}
+
+		Assert.assertEquals(pool.getOpenConnections(), 1);
+		Assert.assertEquals(pool.getLeases(), 5);
+		Assert.assertEquals(pool.getActiveConnections(), 0);
+		Assert.assertEquals(pool.getIdleConnections(), 1);
+		Assert.assertEquals(pool.getLeaseTime().getCount(), 5);
+	}
+
+	@Test
+	public void whenEveryConnectionIsLeasedThenTheNextOneWaitsAndFails() throws Exception {
+		Connection first = pool.getConnection();
+		Connection second = pool.getConnection();
+		try {
+			pool.getConnection();
+			Assert.fail("A third connection was handed out");
+		} catch (SQLTransientConnectionException e) {
+			Assert.assertEquals(pool.getActiveConnections(), 2);
+		}
+		first.close();
+		pool.getConnection().close();
+		second.close();
+
+		Assert.assertEquals(pool.getOpenConnections(), 2);
+	}
+
+	@Test(expectedExceptions = SQLException.class)
+	public void whenReturnedConnectionIsUsedThenItFails() throws Exception {
+		Connection connection = pool.getConnection();
+		connection.close();
+		connection.close();
+
+		connection.createStatement();
+	}
+
+	@Test
+	public void whenIdleConnectionIsNotValidThenItIsReplaced() throws Exception {
+		FakeDriver.register();
+		ConnectionPool fakePool = new ConnectionPool("fake", FakeDriver.URL + "test", "user", "pass", 0, 2, 100, 0, 4);
+		try {
+			fakePool.getConnection().close();
+			FakeDriver.valid = false;
+			Thread.sleep(1100);
+
+			fakePool.getConnection().close();
+
+			Assert.assertEquals(FakeDriver.OPENED.get(), 2);
+			Assert.assertEquals(FakeDriver.CLOSED.get(), 1);
+			Assert.assertEquals(fakePool.getOpenConnections(), 1);
+		} finally {
+			fakePool.close();
+			FakeDriver.deregister();
+		}
+	}
+
+	@Test
+	public void whenConnectionIsReturnedInsideATransactionThenItIsRolledBack() throws Exception {
+		Connection connection = pool.getConnection();
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection.prepareStatement("insert into users values (5, 'e')")) {
+			Assert.assertEquals(statement.executeUpdate(), 1);
+		}
+		connection.close();
+
+		try (Connection next = pool.getConnection()) {
+			Assert.assertTrue(next.getAutoCommit());
+		}
+		Assert.assertEquals(H2Database.count(url, "users"), 4);
+	}
+
+	@Test
+	public void whenSameSqlIsPreparedAgainThenTheCachedStatementIsReused() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			try (Connection connection = pool.getConnection();
+					PreparedStatement statement = connection.prepareStatement("select count(*) from users where id > ?")) {
+				statement.setInt(1, i);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					Assert.assertTrue(resultSet.next());
+					Assert.assertEquals(resultSet.getInt(1), 4 - i);
+				}
+			}
+		}
+		try (Connection connection = pool.getConnection();
+				PreparedStatement first = connection.prepareStatement("select count(*) from users where id > ?");
+				PreparedStatement second = connection.prepareStatement("select count(*) from users where id > ?")) {
+			Assert.assertNotSame(first, second);
+		}
+
+		Assert.assertEquals(pool.getOpenConnections(), 1);
+		Assert.assertEquals(pool.getStatementCacheHits(), 3);
+		Assert.assertEquals(pool.getStatementCacheMisses(), 2);
+	}
+
+	@Test
+	public void whenCachedStatementIsReturnedThenItsSettingsAreRestored() throws Exception {
+		int fetchSize;
+		int maxRows;
+		int queryTimeout;
+		int fetchDirection;
+		try (Connection connection = pool.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select id from users")) {
+			fetchSize = statement.getFetchSize();
+			maxRows = statement.getMaxRows();
+			queryTimeout = statement.getQueryTimeout();
+			fetchDirection = statement.getFetchDirection();
+			statement.setFetchSize(500);
+			statement.setMaxRows(10);
+			statement.setQueryTimeout(30);
+			statement.setFetchDirection(ResultSet.FETCH_REVERSE);
+		}
+
+		try (Connection connection = pool.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select id from users")) {
+			Assert.assertEquals(pool.getStatementCacheHits(), 1);
+			Assert.assertEquals(statement.getFetchSize(), fetchSize);
+			Assert.assertEquals(statement.getMaxRows(), maxRows);
+			Assert.assertEquals(statement.getQueryTimeout(), queryTimeout);
+			Assert.assertEquals(statement.getFetchDirection(), fetchDirection);
+		}
+	}
+
+	@Test
+	public void whenRowsAreStreamedThenTheConnectionIsReturnedWithTheStatementSettings() throws Exception {
+		int fetchSize;
+		try (Connection connection = pool.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select id, name from users order by id")) {
+			fetchSize = statement.getFetchSize();
+		}
+
+		try (Stream<Row> rows = RowCursor.open(pool.getConnection(), "select id, name from users order by id", Collections.emptyMap(), 2).stream()) {
+			Row row = rows.filter(candidate -> candidate.getInt("id") > 1).findFirst().get();
+			Assert.assertEquals(row.getString("name"), "b");
+			Assert.assertEquals(row.getNumber(), 1);
+		}
+
+		Assert.assertEquals(pool.getActiveConnections(), 0);
+		try (Connection connection = pool.getConnection();
+				PreparedStatement statement = connection.prepareStatement("select id, name from users order by id")) {
+			Assert.assertTrue(connection.getAutoCommit());
+			Assert.assertEquals(statement.getFetchSize(), fetchSize);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.crowdar.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Jdbc driver for jdbc:fake: urls, counting the physical connections it opens and closes. It only injects the faults a
+ * real database does not produce on demand, invalid connections and aborted transactions; the behavior of the driver is
+ * tested against {@link H2Database}.
+ */
+public class FakeDriver implements Driver {
+
+	static final String URL = "jdbc:fake:";
+	static final AtomicInteger OPENED = new AtomicInteger();
+	static final AtomicInteger CLOSED = new AtomicInteger();
+	/** Sql containing it fails; outside autocommit the transaction is then aborted, as in postgresql, until a rollback. */
+	static final String FAILING = "fail";
+	/** Whether the connections pass the validation of the pool. */
+	static volatile boolean valid = true;
+
+	private static final FakeDriver INSTANCE = new FakeDriver();
+
+	static synchronized void register() throws SQLException {
+		OPENED.set(0);
+		CLOSED.set(0);
+		valid = true;
+		DriverManager.registerDriver(INSTANCE);
+	}
+
+	static synchronized void deregister() throws SQLException {
+		DriverManager.deregisterDriver(INSTANCE);
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		OPENED.incrementAndGet();
+		// closed, autocommit and aborted
+		final boolean[] state = {false, true, false};
+		return (Connection) proxy(Connection.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "close":
+					if (!state[0]) {
+						state[0] = true;
+						CLOSED.incrementAndGet();
+					}
+					return null;
+				case "isClosed":
+					return state[0];
+				case "isValid":
+					return valid && !state[0];
+				case "getAutoCommit":
+					return state[1];
+				case "setAutoCommit":
+					state[1] = (Boolean) args[0];
+					return null;
+				case "setSavepoint":
+				case "releaseSavepoint":
+					checkAborted(state);
+					return method.getReturnType() == Savepoint.class ? proxy(Savepoint.class, (savepoint, call, values) -> null) : null;
+				case "rollback":
+				case "commit":
+					state[2] = false;
+					return null;
+				case "createStatement":
+				case "prepareStatement":
+					return statement(method.getReturnType(), args == null ? null : (String) args[0], state);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return defaultValue(method);
+			}
+		});
+	}
+
+	/**
+	 * @return a statement whose executions fail for {@link #FAILING} sql and while the transaction is aborted
+	 */
+	private static Object statement(Class<?> type, String preparedSql, boolean[] state) {
+		return proxy(type, (proxy, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				checkAborted(state);
+				String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+				if (sql.contains(FAILING)) {
+					state[2] = !state[1];
+					throw new SQLException("syntax error at or near \"" + FAILING + "\"", "42601");
+				}
+				if (method.getReturnType() == ResultSet.class) {
+					return proxy(ResultSet.class, (resultSet, call, values) -> defaultValue(call));
+				}
+				return method.getReturnType() == int.class ? 1 : defaultValue(method);
+			}
+			switch (method.getName()) {
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return defaultValue(method);
+			}
+		});
+	}
+
+	private static void checkAborted(boolean[] state) throws SQLException {
+		if (state[2]) {
+			throw new SQLException("current transaction is aborted, commands ignored until end of transaction block", "25P02");
+		}
+	}
+
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{type}, handler);
+	}
+
+	private static Object defaultValue(Method method) {
+		return method.getReturnType() == boolean.class ? false : method.getReturnType() == int.class ? 0 : null;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url != null && url.startsWith(URL);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() {
+		return Logger.getGlobal();
+	}
+}
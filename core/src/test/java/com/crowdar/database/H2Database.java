@@ -0,0 +1,88 @@
+package com.crowdar.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In memory H2 databases for the tests that depend on the behavior of a real driver: transactions, savepoints,
+ * batches and statement settings. Each one is created empty and lives until it is dropped.
+ */
+final class H2Database {
+
+	static final String USER = "sa";
+	static final String PASSWORD = "";
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private H2Database() {
+	}
+
+	/**
+	 * @return the url of a new database, after running the statements on it
+	 */
+	static String create(String... statements) throws SQLException {
+		String url = "jdbc:h2:mem:test" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+		try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+				Statement statement = connection.createStatement()) {
+			for (String sql : statements) {
+				statement.execute(sql);
+			}
+		}
+		return url;
+	}
+
+	static ConnectionPool pool(String name, String url, int maxSize) {
+		return new ConnectionPool(name, url, USER, PASSWORD, 0, maxSize, 100, 0, 4);
+	}
+
+	/**
+	 * @return the first column of the first row of the query, read on a connection of its own
+	 */
+	static Object get(String url, String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD)) {
+			return get(connection, query);
+		}
+	}
+
+	static Object get(Connection connection, String query) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(query)) {
+			return resultSet.next() ? resultSet.getObject(1) : null;
+		}
+	}
+
+	/**
+	 * Runs the statement on a connection of its own, committing it.
+	 */
+	static void execute(String url, String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	/**
+	 * @return committed rows of the table
+	 */
+	static int count(String url, String table) throws SQLException {
+		return ((Number) get(url, "select count(*) from " + table)).intValue();
+	}
+
+	/**
+	 * @return id of the physical session behind the connection
+	 */
+	static int getSessionId(Connection connection) throws SQLException {
+		return ((Number) get(connection, "select session_id()")).intValue();
+	}
+
+	static void drop(String url) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+				Statement statement = connection.createStatement()) {
+			statement.execute("shutdown");
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.crowdar.database;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class QueryMetricsTest {
+
+	private String url;
+	private ConnectionPool pool;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		QueryMetrics.purge();
+		QueryMetrics.setSlowQueryLog(1000, 50);
+		url = H2Database.create("create table users (id int primary key, name varchar(50))",
+				"insert into users values (1, 'ana'), (2, 'juan')");
+		pool = H2Database.pool("test", url, 1);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		pool.close();
+		H2Database.drop(url);
+		QueryMetrics.purge();
+		QueryMetrics.setSlowQueryLog(0, 0);
+	}
+
+	@Test
+	public void whenQueriesOnlyDifferInTheirLiteralsThenTheyShareTheTemplate() {
+		Assert.assertEquals(QueryMetrics.getTemplateKey("select *  from users2\n where id = 10 and name = 'o''neil'"),
+				"select * from users2 where id = ? and name = ?");
+		Assert.assertEquals(QueryMetrics.getTemplateKey("select * from users where id = {{id}} and age > 18"),
+				"select * from users where id = {{id}} and age > 18");
+	}
+
+	@Test
+	public void whenCursorIsClosedThenItsRowsBytesAndConnectionWaitAreRecorded() throws Exception {
+		try (RowCursor cursor = RowCursor.open(pool, "select id, name from users order by id", Collections.emptyMap(), 10)) {
+			while (cursor.hasNext()) {
+				cursor.next();
+			}
+		}
+
+		QueryMetrics metrics = QueryMetrics.get("test").get("select id, name from users order by id");
+		Assert.assertEquals(metrics.getLatency().getCount(), 1);
+		Assert.assertEquals(metrics.getConnectionWait().getCount(), 1);
+		Assert.assertEquals(metrics.getRows(), 2);
+		Assert.assertEquals(metrics.getBytes(), 4 + 3 + 4 + 4);
+		Assert.assertEquals(metrics.getErrors(), 0);
+	}
+
+	@Test
+	public void whenQueriesAreAboveTheThresholdThenTheSlowestAreListedFirst() {
+		QueryMetrics.record("test", "select 1", TimeUnit.SECONDS.toNanos(2), -1, 1, 4, false);
+		QueryMetrics.record("test", "select 2", TimeUnit.SECONDS.toNanos(5), -1, 1, 4, false);
+		QueryMetrics.record("test", "select 3", TimeUnit.MILLISECONDS.toNanos(5), -1, 1, 4, false);
+
+		List<QueryMetrics.SlowQuery> slowQueries = QueryMetrics.getSlowQueries();
+
+		Assert.assertEquals(slowQueries.size(), 2);
+		Assert.assertEquals(slowQueries.get(0).getQuery(), "select 2");
+		Assert.assertEquals(slowQueries.get(1).getQuery(), "select 1");
+		Assert.assertEquals(QueryMetrics.get("test").get("select ?").getLatency().getCount(), 3);
+	}
+}
@@ -0,0 +1,66 @@
+package com.crowdar.database;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class QueryWaitTest {
+
+	private String url;
+	private ConnectionPool pool;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		url = H2Database.create("create table orders (id int primary key, status varchar(10))");
+		pool = H2Database.pool("test", url, 1);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		pool.close();
+		H2Database.drop(url);
+	}
+
+	@Test
+	public void whenRowsAreThereThenTheWaitEndsAtTheFirstAttempt() throws Exception {
+		H2Database.execute(url, "insert into orders values (1, 'PAID')");
+
+		QueryWaitResult result = QueryWait.on(pool, "select status from orders").untilValue("PAID").timeout(1000).pollInterval(10, 40).await();
+
+		Assert.assertTrue(result.isMatched());
+		Assert.assertEquals(result.getAttempts(), 1);
+		Assert.assertEquals(result.getRows().get(0).get("status"), "PAID");
+	}
+
+	@Test
+	public void whenRowsNeverArriveThenTheSameStatementIsPolledWithBackoffUntilTheDeadline() throws Exception {
+		QueryWaitResult result = QueryWait.on(pool, "select status from orders").timeout(150).pollInterval(10, 40).await();
+
+		Assert.assertFalse(result.isMatched());
+		Assert.assertTrue(result.getWaitedMillis() >= 150, result.toString());
+		Assert.assertTrue(result.getAttempts() > 2 && result.getAttempts() < 15, result.toString());
+		Assert.assertEquals(pool.getStatementCacheMisses(), 1);
+		Assert.assertEquals(pool.getOpenConnections(), 1);
+		Assert.assertEquals(pool.getActiveConnections(), 0);
+	}
+
+	@Test
+	public void whenScenarioTransactionIsActiveThenTheWaitUsesAConnectionOfItsOwn() throws Exception {
+		H2Database.execute(url, "insert into orders values (1, 'PAID')");
+		ConnectionPool scenarioPool = H2Database.pool("scenario", url, 2);
+		ScenarioTransaction.begin();
+		try {
+			scenarioPool.getConnection().close();
+
+			QueryWaitResult result = QueryWait.on(scenarioPool, "select status from orders").untilValue("PAID").timeout(1000).pollInterval(10, 40).await();
+
+			Assert.assertTrue(result.isMatched());
+			Assert.assertEquals(scenarioPool.getOpenConnections(), 2);
+			Assert.assertEquals(scenarioPool.getActiveConnections(), 1);
+		} finally {
+			ScenarioTransaction.rollback();
+			scenarioPool.close();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.crowdar.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ScenarioTransactionTest {
+
+	private String url;
+	private ConnectionPool pool;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		url = H2Database.create("create table users (id int primary key, name varchar(50))");
+		pool = H2Database.pool("test", url, 1);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		ScenarioTransaction.rollback();
+		pool.close();
+		H2Database.drop(url);
+	}
+
+	@Test
+	public void whenScenarioTransactionIsActiveThenEveryConnectionIsTheSameUntilRollback() throws Exception {
+		ScenarioTransaction.begin();
+		int session;
+		try (Connection first = pool.getConnection()) {
+			session = H2Database.getSessionId(first);
+			first.prepareStatement("insert into users values (1, 'a')").executeUpdate();
+		}
+		try (Connection second = pool.getConnection()) {
+			Assert.assertTrue(second.getAutoCommit());
+			Assert.assertEquals(H2Database.getSessionId(second), session);
+			second.prepareStatement("insert into users values (2, 'b')").executeUpdate();
+			Assert.assertEquals(((Number) H2Database.get(second, "select count(*) from users")).intValue(), 2);
+		}
+
+		Assert.assertEquals(pool.getOpenConnections(), 1);
+		Assert.assertEquals(pool.getActiveConnections(), 1);
+
+		ScenarioTransaction.rollback();
+
+		Assert.assertFalse(ScenarioTransaction.isActive());
+		Assert.assertEquals(pool.getActiveConnections(), 0);
+		Assert.assertEquals(H2Database.count(url, "users"), 0);
+	}
+
+	@Test
+	public void whenCodeCommitsInsideTheScenarioThenOnlyItsSavepointIsReleased() throws Exception {
+		ScenarioTransaction.begin();
+		BulkLoader.into(pool, "users").batchSize(10).rows(Collections.singletonList(Collections.<String, Object>singletonMap("id", 1))).execute();
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			connection.prepareStatement("insert into users values (2, 'b')").executeUpdate();
+			connection.rollback();
+			connection.setAutoCommit(true);
+			Assert.assertEquals(H2Database.get(connection, "select id from users"), 1);
+		}
+
+		ScenarioTransaction.rollback();
+
+		Assert.assertEquals(H2Database.count(url, "users"), 0);
+	}
+
+	@Test
+	public void whenStatementFailsInsideTheScenarioThenOnlyItIsUndone() throws Exception {
+		ScenarioTransaction.begin();
+		try (Connection connection = pool.getConnection()) {
+			connection.prepareStatement("insert into users values (1, 'a')").executeUpdate();
+			try {
+				connection.prepareStatement("insert into users values (1, 'b')").executeUpdate();
+				Assert.fail("The duplicated key was inserted");
+			} catch (SQLException e) {
+				Assert.assertEquals(H2Database.get(connection, "select name from users where id = 1"), "a");
+			}
+			connection.prepareStatement("insert into users values (2, 'c')").executeUpdate();
+			Assert.assertEquals(((Number) H2Database.get(connection, "select count(*) from users")).intValue(), 2);
+		}
+
+		ScenarioTransaction.rollback();
+
+		Assert.assertEquals(H2Database.count(url, "users"), 0);
+	}
+
+	@Test
+	public void whenStatementFailsOnADatabaseThatAbortsTheTransactionThenTheNextOneStillRuns() throws Exception {
+		FakeDriver.register();
+		ConnectionPool abortingPool = new ConnectionPool("aborting", FakeDriver.URL + "test", "user", "pass", 0, 1, 100, 0, 4);
+		ScenarioTransaction.begin();
+		try (Connection connection = abortingPool.getConnection()) {
+			try {
+				connection.createStatement().execute("select " + FakeDriver.FAILING);
+				Assert.fail("The failing statement ran");
+			} catch (SQLException e) {
+				Assert.assertEquals(e.getSQLState(), "42601");
+			}
+			Assert.assertEquals(connection.prepareStatement("update users set name = 'a'").executeUpdate(), 1);
+			Assert.assertNotNull(connection.createStatement().executeQuery("select name from users"));
+		} finally {
+			ScenarioTransaction.rollback();
+			abortingPool.close();
+			FakeDriver.deregister();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.crowdar.database;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SqlTemplateTest {
+
+	@Test
+	public void whenTemplateIsCompiledThenPlaceholdersBecomeParameters() {
+		SqlTemplate template = SqlTemplate.compile("select * from users where name = '{{name}}' and age > {{ age }} and note = 'it''s {x}' or id = {{name}}");
+
+		Assert.assertEquals(template.getSql(), "select * from users where name = ? and age > ? and note = 'it''s {x}' or id = ?");
+		Assert.assertEquals(template.getParameterNames(), Arrays.asList("name", "age", "name"));
+		Assert.assertSame(SqlTemplate.compile(template.getTemplate()), template);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void whenPlaceholderIsPartOfALiteralThenTemplateIsRejected() {
+		SqlTemplate.compile("select * from users where name like '%{{name}}%'");
+	}
+
+	@Test
+	public void whenPlaceholderIsNotAValueThenItIsReplacedInTheText() {
+		SqlTemplate template = SqlTemplate.compile("select {{column}} from {{schema}}.users where id in ({{a}}, {{b}}) and age between {{min}} and {{max}}"
+				+ " order by {{column}} limit {{size}}");
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("column", "name");
+		parameters.put("schema", "public");
+
+		Assert.assertEquals(template.getParameterNames(), Arrays.asList("a", "b", "min", "max", "size"));
+		Assert.assertEquals(template.getTextNames(), Arrays.asList("column", "schema", "column"));
+		Assert.assertEquals(template.getSql(parameters),
+				"select name from public.users where id in (?, ?) and age between ? and ? order by name limit ?");
+	}
+
+	@Test
+	public void whenUnquotedValueIsTextThenItIsBoundAsTheLiteralTheDatabaseWouldRead() {
+		Assert.assertEquals(SqlTemplate.parseLiteral("18"), 18L);
+		Assert.assertEquals(SqlTemplate.parseLiteral("007"), 7L);
+		Assert.assertEquals(SqlTemplate.parseLiteral("-1.50"), new BigDecimal("-1.50"));
+		Assert.assertEquals(SqlTemplate.parseLiteral("12345678901234567890"), new BigDecimal("12345678901234567890"));
+		Assert.assertEquals(SqlTemplate.parseLiteral("TRUE"), Boolean.TRUE);
+		Assert.assertNull(SqlTemplate.parseLiteral("null"));
+		Assert.assertEquals(SqlTemplate.parseLiteral("'it''s'"), "it's");
+		Assert.assertEquals(SqlTemplate.parseLiteral("PAID"), "PAID");
+	}
+}
@@ -0,0 +1,45 @@
+package com.crowdar.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void whenLatenciesAreRecordedThenPercentilesAreTheUpperBoundOfTheirBucket() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+
+		Assert.assertEquals(histogram.getCount(), 100);
+		Assert.assertEquals(histogram.getMinMillis(), 1);
+		Assert.assertEquals(histogram.getMaxMillis(), 100);
+		Assert.assertEquals(histogram.getTotalMillis(), 5050);
+		Assert.assertEquals(histogram.getMeanMillis(), 50.5, 0.001);
+		Assert.assertEquals(histogram.getPercentileMillis(50), 50);
+		Assert.assertEquals(histogram.getPercentileMillis(95), 100);
+		Assert.assertEquals(histogram.getPercentileMillis(10), 10);
+	}
+
+	@Test
+	public void whenPercentileBucketIsAboveTheMaxThenTheMaxIsReturned() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(120));
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(130));
+
+		Assert.assertEquals(histogram.getPercentileMillis(99), 130);
+	}
+
+	@Test
+	public void whenNothingIsRecordedThenEveryValueIsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		Assert.assertEquals(histogram.getCount(), 0);
+		Assert.assertEquals(histogram.getMinMillis(), 0);
+		Assert.assertEquals(histogram.getMeanMillis(), 0.0);
+		Assert.assertEquals(histogram.getPercentileMillis(95), 0);
+	}
+}
@@ -0,0 +1,81 @@
+package com.crowdar.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.crowdar.util.Models.Basket;
+import com.crowdar.util.Models.Item;
+
+public class ListDiffTest {
+
+	@Test
+	public void whenElementsAreMatchedByKeyThenMissingExtraAndChangedAreReported() throws Exception {
+		List<Item> expected = Arrays.asList(new Item(1, "uno", "Rosario"), new Item(2, "dos", "Cordoba"), new Item(3, "tres", "Salta"));
+		List<Item> actual = Arrays.asList(new Item(4, "cuatro", "Jujuy"), new Item(2, "dos", "Mendoza"), new Item(1, "uno", "Rosario"));
+
+		ListDiff diff = ListDiff.of(actual, expected, Integer.MAX_VALUE, "id");
+
+		Assert.assertFalse(diff.isEmpty());
+		Assert.assertEquals(diff.getMissing().size(), 1);
+		Assert.assertEquals(diff.getMissing().get(0).getKey(), 3L);
+		Assert.assertEquals(diff.getExtra().size(), 1);
+		Assert.assertEquals(diff.getExtra().get(0).getIndex(), 0);
+		Assert.assertEquals(diff.getChanged().size(), 1);
+		Assert.assertEquals(diff.getChanged().get(0).getActualIndex(), 1);
+		Assert.assertEquals(diff.getChanged().get(0).getFields().get(0).getPath(), "address.city");
+		Assert.assertEquals(diff.getChanged().get(0).getFields().get(0).getActual(), "Mendoza");
+	}
+
+	@Test
+	public void whenElementsHaveNoKeyThenTheyAreMatchedByContentInAnyOrder() throws Exception {
+		List<Item> expected = Arrays.asList(new Item(1, "uno", "Rosario"), new Item(1, "uno", "Rosario"), new Item(2, "dos", "Cordoba"));
+		List<Item> actual = Arrays.asList(new Item(2, "dos", "Cordoba"), new Item(1, "uno", "Rosario"), new Item(1, "uno", "Salta"));
+
+		ListDiff diff = ListDiff.of(actual, expected, Integer.MAX_VALUE);
+
+		Assert.assertEquals(diff.getMissing().size(), 1);
+		Assert.assertEquals(diff.getMissing().get(0).getIndex(), 1);
+		Assert.assertEquals(diff.getExtra().size(), 1);
+		Assert.assertEquals(diff.getExtra().get(0).getIndex(), 2);
+		Assert.assertTrue(diff.getChanged().isEmpty());
+	}
+
+	@Test
+	public void whenNestedListsAreInAnotherOrderThenTheyMatchWithoutBeingSorted() throws Exception {
+		List<Item> items = Collections.unmodifiableList(Arrays.asList(new Item(2, "dos", "Cordoba"), new Item(1, "uno", "Rosario")));
+		List<Basket> expected = Arrays.asList(new Basket(1, Arrays.asList(new Item(1, "uno", "Rosario"), new Item(2, "dos", "Cordoba")), null),
+				new Basket(2, Arrays.asList(new Item(3, "tres", "Salta")), null));
+		List<Basket> actual = Arrays.asList(new Basket(2, Arrays.asList(new Item(3, "tres", "Jujuy")), null), new Basket(1, items, null));
+
+		ListDiff byKey = ListDiff.of(actual, expected, Integer.MAX_VALUE, "id");
+		ListDiff byContent = ListDiff.of(actual, expected, Integer.MAX_VALUE);
+
+		Assert.assertEquals(byKey.getChanged().size(), 1);
+		Assert.assertEquals(byKey.getChanged().get(0).getKey(), 2L);
+		Assert.assertEquals(byKey.getChanged().get(0).getFields().get(0).getPath(), "items[0]");
+		Assert.assertTrue(byKey.getMissing().isEmpty() && byKey.getExtra().isEmpty());
+		Assert.assertEquals(byContent.getMissing().size(), 1);
+		Assert.assertEquals(byContent.getMissing().get(0).getIndex(), 1);
+		Assert.assertEquals(byContent.getExtra().get(0).getIndex(), 0);
+		Assert.assertEquals(items.get(0).getId(), Integer.valueOf(2));
+	}
+
+	@Test
+	public void whenLargeListsAreShuffledThenTheyMatchInParallel() throws Exception {
+		List<Item> expected = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			expected.add(new Item(i, "item" + i, "city" + (i % 100)));
+		}
+		List<Item> actual = new ArrayList<>(expected);
+		Collections.shuffle(actual, new Random(7));
+
+		Assert.assertTrue(ListDiff.of(actual, expected, 1000, "id").isEmpty());
+		Assert.assertTrue(ListDiff.of(actual, expected, 1000).isEmpty());
+	}
+}
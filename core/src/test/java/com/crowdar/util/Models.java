@@ -0,0 +1,117 @@
+package com.crowdar.util;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Models validated by {@link ValidateUtilsTest} and {@link ListDiffTest}, read through their getters.
+ */
+public final class Models {
+
+	private Models() {
+	}
+
+	public static class Person {
+		private final String firstName;
+		private final Integer age;
+		private final Address address;
+
+		Person(String firstName, Integer age, Address address) {
+			this.firstName = firstName;
+			this.age = age;
+			this.address = address;
+		}
+
+		public String getFirstName() {
+			return firstName;
+		}
+
+		public Integer getAge() {
+			return age;
+		}
+
+		public Address getAddress() {
+			return address;
+		}
+	}
+
+	public static class Item {
+		private final Integer id;
+		private final String name;
+		private final Address address;
+
+		Item(Integer id, String name, String city) {
+			this.id = id;
+			this.name = name;
+			this.address = new Address(city);
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Address getAddress() {
+			return address;
+		}
+	}
+
+	public static class Basket {
+		private final Integer id;
+		private final List<Item> items;
+		private final List<String> tags;
+
+		Basket(Integer id, List<Item> items, List<String> tags) {
+			this.id = id;
+			this.items = items;
+			this.tags = tags;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		public List<String> getTags() {
+			return tags;
+		}
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Contact {
+		private final String name;
+		private final String phone;
+
+		Contact(String name, String phone) {
+			this.name = name;
+			this.phone = phone;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getPhone() {
+			return phone;
+		}
+	}
+
+	public static class Address {
+		private final String city;
+
+		Address(String city) {
+			this.city = city;
+		}
+
+		public String getCity() {
+			return city;
+		}
+	}
+}
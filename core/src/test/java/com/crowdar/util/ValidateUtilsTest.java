@@ -0,0 +1,99 @@
+package com.crowdar.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.crowdar.util.Models.Address;
+import com.crowdar.util.Models.Basket;
+import com.crowdar.util.Models.Contact;
+import com.crowdar.util.Models.Item;
+import com.crowdar.util.Models.Person;
+
+public class ValidateUtilsTest {
+
+	@Test
+	public void whenExpectedMatchesThenNestedObjectsAndSeparatedKeysAreValidated() throws Exception {
+		ValidateUtils.validateFields(expected("Ana", 30, "Rosario"), new Person("Ana", 30, new Address("Rosario")));
+	}
+
+	@Test
+	public void whenValueDiffersThenTheFieldIsReported() throws Exception {
+		try {
+			ValidateUtils.validateFields(expected("Ana", 31, "Rosario"), new Person("Ana", 30, new Address("Rosario")));
+			Assert.fail("Validation should have failed");
+		} catch (AssertionError e) {
+			Assert.assertTrue(e.getMessage().startsWith("AGE field is invalid. Class: Person"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void whenGetterIsMissingThenValidationFails() throws Exception {
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("last_name", "Diaz");
+		try {
+			ValidateUtils.validateFields(expected, new Person("Ana", 30, null));
+			Assert.fail("Validation should have failed");
+		} catch (AssertionError e) {
+			Assert.assertTrue(e.getMessage().startsWith("Method getLastName was not found in"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void whenNestedListsAreEmptyThenTheyMatchWhateverTheirClass() throws Exception {
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("id", 1);
+		expected.put("items", new ArrayList<>());
+		expected.put("tags", new ArrayList<>());
+
+		ValidateUtils.validateFields(expected, new Basket(1, Collections.<Item>emptyList(), Collections.<String>emptyList()));
+	}
+
+	@Test
+	public void whenPlanIsRequestedAgainThenGettersAreNotResolvedAgain() {
+		ValidationPlan plan = ValidationPlan.of(Person.class);
+
+		Assert.assertSame(ValidationPlan.of(Person.class), plan);
+		Assert.assertSame(plan.getField("first_name"), plan.getField("first_name"));
+		Assert.assertTrue(plan.getField("first_name").exists());
+	}
+
+	@Test
+	public void whenExpectedIsAnObjectThenItsPropertiesAreReadWithoutAMap() throws Exception {
+		ExpectedPlan plan = ExpectedPlan.of(Basket.class);
+		Basket actual = new Basket(1, Arrays.asList(new Item(1, "a", "Rosario"), new Item(2, "b", "Parana")), Arrays.asList("x", "y"));
+
+		ValidateUtils.validateFields(new Basket(1, Arrays.asList(new Item(1, "a", "Rosario"), new Item(2, "b", "Parana")), Arrays.asList("x", "y")), actual);
+		Assert.assertTrue(plan.isSupported());
+		Assert.assertEquals(plan.getProperties().get(0).getName(), "id");
+		Assert.assertFalse(ExpectedPlan.of(HashMap.class).isSupported());
+		try {
+			ValidateUtils.validateFields(new Basket(1, Arrays.asList(new Item(1, "a", "Rosario"), new Item(2, "b", "Cordoba")), Arrays.asList("x", "y")), actual);
+			Assert.fail("Validation should have failed");
+		} catch (AssertionError e) {
+			Assert.assertTrue(e.getMessage().startsWith("CITY field is invalid. Class: Address"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void whenExpectedObjectOmitsNullsThenTheyAreNotValidated() throws Exception {
+		Assert.assertTrue(ExpectedPlan.of(Contact.class).isSupported());
+
+		ValidateUtils.validateFields(new Contact("Ana", null), new Contact("Ana", "4444"));
+	}
+
+	private Map<String, Object> expected(String firstName, int age, String city) {
+		Map<String, Object> address = new HashMap<>();
+		address.put("city", city);
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("first_name", firstName);
+		expected.put("age", age);
+		expected.put("address", address);
+		return expected;
+	}
+}
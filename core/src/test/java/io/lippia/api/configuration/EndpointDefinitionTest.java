@@ -0,0 +1,80 @@
+package io.lippia.api.configuration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.crowdar.api.rest.Request;
+
+import io.lippia.api.service.MethodServiceEnum;
+
+public class EndpointDefinitionTest {
+
+	private final EndpointDefinition definition = EndpointDefinition.builder()
+			.method("POST")
+			.protocol("https")
+			.url("api.test")
+			.port("8443")
+			.endpoint("/users")
+			.header("Content-Type", "application/json")
+			.header("X-Tenant", "lippia")
+			.urlParameter("page", "1")
+			.body("{\"name\": \"{{name}}\", \"role\": \"{{role}}\"}")
+			.build();
+
+	@Test
+	public void whenDefinitionIsBuiltThenTheUrlIsAssembledAndParsedOnce() {
+		Assert.assertEquals(definition.getMethod(), "post");
+		Assert.assertEquals(definition.getUrl(), "https://api.test:8443/users");
+		Assert.assertEquals(definition.getUri().getPort(), 8443);
+		Assert.assertEquals(definition.getMethodService(), MethodServiceEnum.DEFAULT);
+		Assert.assertEquals(definition.toString(), "POST https://api.test:8443/users");
+	}
+
+	@Test
+	public void whenCallHasValuesThenTheyAreOnTopOfTheDefinition() {
+		EndpointCall call = EndpointCall.create()
+				.header("X-Tenant", "crowdar")
+				.header("X-Trace", "1")
+				.urlParameter("page", "2")
+				.replaceOnBody("name", "ana")
+				.replaceOnBody("role", "admin");
+
+		Request request = definition.newRequest(call);
+
+		Assert.assertEquals(request.getUri(), definition.getUri());
+		Assert.assertEquals(request.getHeaders().get("X-Tenant"), "crowdar");
+		Assert.assertEquals(request.getHeaders().get("X-Trace"), "1");
+		Assert.assertEquals(request.getHeaders().get("Content-Type"), "application/json");
+		Assert.assertEquals(request.getUrlParameters().get("page"), "2");
+		Assert.assertEquals(request.getBody(), "{\"name\": \"ana\", \"role\": \"admin\"}");
+	}
+
+	@Test
+	public void whenCallsAreMadeThenTheDefinitionIsNotModified() {
+		definition.newRequest(EndpointCall.create().header("X-Tenant", "crowdar").body("{}")).addHeader("X-Other", "1");
+
+		Request request = definition.newRequest(null);
+
+		Assert.assertEquals(definition.getHeaders().size(), 2);
+		Assert.assertEquals(request.getHeaders().get("X-Tenant"), "lippia");
+		Assert.assertFalse(request.getHeaders().containsKey("X-Other"));
+		Assert.assertEquals(request.getBody(), "{\"name\": \"{{name}}\", \"role\": \"{{role}}\"}");
+	}
+
+	@Test
+	public void whenCallReplacesTheBodyThenReplacementsApplyToTheNewBody() {
+		EndpointCall call = EndpointCall.create().body("{\"id\": {{id}}}").replaceOnBody("id", "7");
+
+		Assert.assertEquals(definition.newRequest(call).getBody(), "{\"id\": 7}");
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void whenDefinitionHeadersAreChangedThenItFails() {
+		definition.getHeaders().put("X-Tenant", "crowdar");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void whenMethodIsNotAnHttpVerbThenTheDefinitionIsRejected() {
+		EndpointDefinition.builder().method("fetch").url("http://api.test").build();
+	}
+}
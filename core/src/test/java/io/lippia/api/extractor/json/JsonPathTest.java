@@ -0,0 +1,113 @@
+package io.lippia.api.extractor.json;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class JsonPathTest {
+
+	private static final String STORE = "{\"store\": {\"name\": \"lippia\", \"books\": ["
+			+ "{\"title\": \"a\", \"price\": 8, \"isbn\": \"1\"},"
+			+ "{\"title\": \"b\", \"price\": 12.5},"
+			+ "{\"title\": \"c\", \"price\": 30, \"isbn\": \"3\"}], \"open\": true}}";
+
+	@Test
+	public void whenPathIsCompiledTwiceThenTheSameInstanceIsReturned() {
+		Assert.assertSame(JsonPath.compile("store.books[0].title"), JsonPath.compile("store.books[0].title"));
+	}
+
+	@Test
+	public void whenMorePathsThanTheLimitAreCompiledThenTheLeastRecentlyUsedIsDropped() {
+		JsonPath used = JsonPath.compile("cache.used");
+		JsonPath unused = JsonPath.compile("cache.unused");
+		for (int i = 0; i < JsonPath.COMPILED_LIMIT - 1; i++) {
+			JsonPath.compile("cache.path" + i);
+			Assert.assertSame(JsonPath.compile("cache.used"), used);
+		}
+
+		Assert.assertSame(JsonPath.compile("cache.used"), used);
+		Assert.assertNotSame(JsonPath.compile("cache.unused"), unused);
+	}
+
+	@Test
+	public void whenPathIsDefiniteThenFirstReturnsTheValue() {
+		JsonNode root = JsonPath.read(STORE);
+
+		Assert.assertTrue(JsonPath.compile("$.store.books[-1].title").isDefinite());
+		Assert.assertEquals(JsonPath.compile("$.store.books[-1].title").first(root).textValue(), "c");
+		Assert.assertEquals(JsonPath.compile("store['name']").first(root).textValue(), "lippia");
+		Assert.assertNull(JsonPath.compile("store.books[5].title").first(root));
+		Assert.assertNull(JsonPath.compile("store.name.first").first(root));
+	}
+
+	@Test
+	public void whenPathHasWildcardsFiltersOrDeepScanThenEveryMatchIsReturned() {
+		JsonNode root = JsonPath.read(STORE);
+
+		Assert.assertEquals(texts(JsonPath.compile("store.books[*].title").evaluate(root)), Arrays.asList("a", "b", "c"));
+		Assert.assertEquals(texts(JsonPath.compile("$..isbn").evaluate(root)), Arrays.asList("1", "3"));
+		Assert.assertEquals(texts(JsonPath.compile("store.books[?(@.price < 12.5)].title").evaluate(root)), Arrays.asList("a"));
+		Assert.assertEquals(texts(JsonPath.compile("store.books[?(@.title != 'b')].title").evaluate(root)), Arrays.asList("a", "c"));
+		Assert.assertEquals(texts(JsonPath.compile("store.books[?(@.isbn)].title").evaluate(root)), Arrays.asList("a", "c"));
+	}
+
+	@Test
+	public void whenExtractorsReadThePathThenValuesKeepTheirPreviousFormat() {
+		Assert.assertEquals(JsonStringValueExtractor.handle(STORE, "store.books[1].title"), "b");
+		Assert.assertEquals(JsonStringValueExtractor.handle(STORE, "store.books[1]"), "{\"title\":\"b\",\"price\":12.5}");
+		Assert.assertEquals(JsonIntegerValueExtractor.handle(STORE, "store.books[2].price"), 30);
+		Assert.assertEquals(JsonArrayValueExtractor.handle(STORE, "store.books[*].price"), Arrays.<Object>asList(8, 12.5, 30));
+		Assert.assertEquals(JsonArrayValueExtractor.handle(STORE, "store.books").size(), 3);
+	}
+
+	@Test(expectedExceptions = JSONException.class)
+	public void whenPathDoesNotExistThenJsonExceptionIsThrown() {
+		JsonStringValueExtractor.handle(STORE, "store.address");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void whenFilterIsInvalidThenPathIsNotCompiled() {
+		JsonPath.compile("store.books[?(price)]");
+	}
+
+	@Test
+	public void whenSeveralPathsAreExtractedThenTheyAreReadInOnePassAndTyped() {
+		ExtractedValues values = JsonMultiValueExtractor.handle(STORE, "store.name", "store.books[1].price", "store.open", "store.books[0]", "store.missing");
+
+		Assert.assertEquals(values.getString("store.name"), "lippia");
+		Assert.assertEquals(values.getDouble("store.books[1].price"), 12.5);
+		Assert.assertTrue(values.getBoolean("store.open"));
+		Assert.assertEquals(values.getString("store.books[0]"), "{\"title\":\"a\",\"price\":8,\"isbn\":\"1\"}");
+		Assert.assertFalse(values.contains("store.missing"));
+		Assert.assertEquals(values.getPaths(), Arrays.asList("store.name", "store.books[1].price", "store.open", "store.books[0]"));
+	}
+
+	@Test
+	public void whenEveryPathIsResolvedThenTheRestOfTheJsonIsNotRead() {
+		ExtractedValues values = JsonMultiValueExtractor.handle("{\"id\": 7, \"name\": \"x\", \"rest\": [1, 2, ", "id", "name");
+
+		Assert.assertEquals(values.getInt("id"), 7);
+		Assert.assertEquals(values.getString("name"), "x");
+	}
+
+	@Test
+	public void whenPathsAreNotDefiniteThenEveryMatchIsExtracted() {
+		ExtractedValues values = JsonMultiValueExtractor.handle(STORE, "store.books[*].title", "store.books[-1].isbn");
+
+		Assert.assertEquals(values.getList("store.books[*].title"), Arrays.<Object>asList("a", "b", "c"));
+		Assert.assertEquals(values.getString("store.books[-1].isbn"), "3");
+	}
+
+	private static List<String> texts(List<JsonNode> nodes) {
+		String[] texts = new String[nodes.size()];
+		for (int i = 0; i < texts.length; i++) {
+			texts[i] = nodes.get(i).asText();
+		}
+		return Arrays.asList(texts);
+	}
+}
@@ -0,0 +1,61 @@
+package io.lippia.api.extractor.xml;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class XmlPathTest {
+
+	private static final String ENVELOPE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+			+ "<ns:GetOrdersResponse xmlns:ns=\"urn:orders\"><ns:total>3</ns:total>"
+			+ "<ns:order><ns:id>10</ns:id><ns:item>pen</ns:item></ns:order>"
+			+ "<ns:order><ns:id>11</ns:id><ns:item>ink</ns:item><ns:item><![CDATA[pad & paper]]></ns:item></ns:order>"
+			+ "<ns:order><ns:id>12</ns:id></ns:order>"
+			+ "</ns:GetOrdersResponse></soap:Body></soap:Envelope>";
+
+	@AfterMethod
+	public void tearDown() {
+		XmlDocuments.clean();
+	}
+
+	@Test
+	public void whenSameResponseIsParsedTwiceThenTheDocumentIsReused() throws Exception {
+		Assert.assertSame(XmlDocuments.parse(ENVELOPE), XmlDocuments.parse(ENVELOPE));
+		Assert.assertNotSame(XmlDocuments.parse(ENVELOPE), XmlDocuments.parse(new String(ENVELOPE)));
+	}
+
+	@Test
+	public void whenPathIsEvaluatedThenDomAndStreamSelectTheSameElements() throws Exception {
+		assertSelects("soap:Body.total", false, "3");
+		assertSelects("Envelope.order[1].id", false, "11");
+		assertSelects("order[1].item[1]", false, "pad & paper");
+		assertSelects("order.item", true, "pen");
+		assertSelects("GetOrdersResponse.id", true, "10", "11", "12");
+		assertSelects("order[1].item", true, "ink", "pad & paper");
+		assertSelects("order[5].id", false);
+		assertSelects("order.missing", true);
+	}
+
+	@Test
+	public void whenSeveralPathsAreEvaluatedThenTheStreamIsReadOnceForAll() throws Exception {
+		List<XmlPath> paths = Arrays.asList(XmlPath.compile("order[2].id"), XmlPath.compile("soap:Body.total"),
+				XmlPath.compile("order[1].item[1]"), XmlPath.compile("order[5].id"), XmlPath.compile("Envelope.order.id"));
+
+		List<String> values = XmlStreamEvaluator.evaluate(ENVELOPE, paths);
+
+		Assert.assertEquals(values, Arrays.asList("12", "3", "pad & paper", null, "10"));
+		for (int i = 0; i < paths.size(); i++) {
+			List<String> dom = paths.get(i).evaluate(XmlDocuments.parse(ENVELOPE), false);
+			Assert.assertEquals(values.get(i), dom.isEmpty() ? null : dom.get(0), "DOM " + paths.get(i));
+		}
+	}
+
+	private static void assertSelects(String path, boolean all, String... expected) throws Exception {
+		XmlPath xmlPath = XmlPath.compile(path);
+		Assert.assertEquals(xmlPath.evaluate(XmlDocuments.parse(ENVELOPE), all), Arrays.asList(expected), "DOM " + path);
+		Assert.assertEquals(XmlStreamEvaluator.evaluate(ENVELOPE, xmlPath, all), Arrays.asList(expected), "StAX " + path);
+	}
+}
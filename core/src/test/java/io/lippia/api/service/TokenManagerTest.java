@@ -0,0 +1,138 @@
+package io.lippia.api.service;
+
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.crowdar.api.rest.Headers;
+import com.crowdar.api.rest.Request;
+import com.crowdar.api.rest.Response;
+import com.crowdar.api.rest.RestClient;
+import com.crowdar.core.PropertyManager;
+
+@PrepareForTest({RestClient.class, PropertyManager.class})
+@PowerMockIgnore({"javax.net.ssl.*","org.apache.log4j.*","org.slf4j.*","org.apache.xerces.*","org.w3c.*", "javax.xml.*", "org.xml.*", "org.apache.*", "org.w3c.dom.*", "org.apache.cxf.*"})
+public class TokenManagerTest extends PowerMockTestCase {
+
+	@Mock
+	private RestClient restClient;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+
+		PowerMockito.mockStatic(RestClient.class);
+		when(RestClient.class, "getRestClient").thenReturn(restClient);
+
+		PowerMockito.mockStatic(PropertyManager.class);
+		when(PropertyManager.class, "getProperty", Mockito.anyString()).thenReturn(null);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		TokenManager.purge();
+	}
+
+	@Test
+	public void whenTokenIsValidThenTheLoginIsCalledOnce() {
+		answer("{\"access_token\": \"first\", \"expires_in\": 300}");
+
+		TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+		TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+
+		verifyLogins(1);
+		Assert.assertEquals(TokenManager.getCurrentAuthorization(), "Bearer first");
+	}
+
+	@Test
+	public void whenTokenExpiresThenItIsRequestedAgain() throws Exception {
+		answer("{\"access_token\": \"first\", \"expires_in\": 1}", "{\"access_token\": \"second\", \"expires_in\": 300}");
+		TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+
+		Thread.sleep(1100);
+
+		Assert.assertEquals(TokenManager.getCurrentAuthorization(), "Bearer second");
+		verifyLogins(2);
+	}
+
+	@Test
+	public void whenTokenInUseIsAboutToExpireThenItIsRefreshedInBackground() {
+		answer("{\"access_token\": \"first\", \"expires_in\": 31}", "{\"access_token\": \"second\", \"expires_in\": 300}");
+		TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+
+		Mockito.verify(restClient, Mockito.timeout(3000).times(2)).post(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap());
+	}
+
+	@Test
+	public void whenLoginIsRejectedThenItsResponseIsReturnedWithoutCachingIt() {
+		Response rejected = new Response(401, "Unauthorized", "{\"error\": \"invalid_grant\"}", new Headers(new HashMap<String, List<String>>()));
+		Mockito.when(restClient.post(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(rejected, response("{\"access_token\": \"first\", \"expires_in\": 300}"));
+
+		Response response = TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+
+		Assert.assertSame(response, rejected);
+		Assert.assertNull(TokenManager.getCurrentAuthorization());
+		TokenManager.getTokenResponse(MethodServiceEnum.DEFAULT, "post", login(), "access_token");
+		verifyLogins(2);
+		Assert.assertEquals(TokenManager.getCurrentAuthorization(), "Bearer first");
+	}
+
+	@Test
+	public void whenTokenIsAJwtThenItExpiresWithItsExpClaim() {
+		long exp = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 600;
+		String claims = Base64.getUrlEncoder().withoutPadding().encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+
+		Assert.assertEquals(TokenManager.getExpiresAt("header." + claims + ".signature", "{\"expires_in\": 10}"), TimeUnit.SECONDS.toMillis(exp));
+	}
+
+	@Test
+	public void whenResponseHasNoExpirationThenTheTtlIsUsed() {
+		long before = System.currentTimeMillis();
+
+		long expiresAt = TokenManager.getExpiresAt("opaque", "not a json");
+
+		Assert.assertTrue(expiresAt >= before + TimeUnit.SECONDS.toMillis(300) && expiresAt <= System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(300));
+	}
+
+	private void answer(String firstBody, String... nextBodies) {
+		Response[] next = new Response[nextBodies.length];
+		for (int i = 0; i < nextBodies.length; i++) {
+			next[i] = response(nextBodies[i]);
+		}
+		Mockito.when(restClient.post(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap()))
+				.thenReturn(response(firstBody), next);
+	}
+
+	private void verifyLogins(int times) {
+		Mockito.verify(restClient, Mockito.times(times)).post(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyMap(), Mockito.anyMap());
+	}
+
+	private static Request login() {
+		Request request = new Request();
+		request.setUrl("http://auth.test");
+		request.setEndpoint("/token");
+		request.setBody("{\"user\": \"lippia\"}");
+		return request;
+	}
+
+	private static Response response(String body) {
+		return new Response(200, "OK", body, new Headers(new HashMap<String, List<String>>()));
+	}
+}